@@ -0,0 +1,174 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcachesimulator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import io.github.d_sch.webfluxcached.common.cache.internal.LRUCacheMap;
+
+/**
+ * CacheSimulator
+ *
+ * Replay an access trace against {@link LRUCacheMap} configurations to choose size,
+ * expiration and eviction policy from real traffic. Every miss is loaded and put at
+ * once, the number of loader calls is estimated from the misses and the micro batching
+ * of the configuration.
+ *
+ * Usage: {@code CacheSimulator [--format binary|lirs|arc] [--sizes 1000,10000]
+ * [--policies lru,slru,arc,lru+tinylfu] [--ttl-seconds 60] [--batch-size 100]
+ * [--batch-linger-millis 5] trace}
+ *
+ */
+public final class CacheSimulator {
+
+    //Expired entries are removed periodically as by the clean up of a FluxCacheImpl
+    private static final int CLEAN_UP_INTERVAL = 4096;
+
+    private CacheSimulator() {
+    }
+
+    public static SimulationResult simulate(TraceFormat format, Path trace, SimulationConfig config) throws IOException {
+        var replay = new Replay(config);
+        format.read(trace, replay::access);
+        return replay.result();
+    }
+
+    /**
+     * Replay the trace once per configuration.
+     */
+    public static List<SimulationResult> simulate(TraceFormat format, Path trace, List<SimulationConfig> configs) throws IOException {
+        var results = new ArrayList<SimulationResult>(configs.size());
+        for (var config : configs) {
+            results.add(simulate(format, trace, config));
+        }
+        return results;
+    }
+
+    public static void main(String[] args) throws IOException {
+        var format = TraceFormat.BINARY;
+        var sizes = List.of(10_000L);
+        var policies = List.of("lru");
+        Duration ttl = null;
+        var batchSize = 0;
+        var batchLinger = Duration.ofMillis(5);
+        Path trace = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--format" -> format = TraceFormat.valueOf(args[++i].toUpperCase());
+                case "--sizes" -> sizes = Arrays.stream(args[++i].split(",")).map(Long::valueOf).toList();
+                case "--policies" -> policies = List.of(args[++i].split(","));
+                case "--ttl-seconds" -> ttl = Duration.ofSeconds(Long.parseLong(args[++i]));
+                case "--batch-size" -> batchSize = Integer.parseInt(args[++i]);
+                case "--batch-linger-millis" -> batchLinger = Duration.ofMillis(Long.parseLong(args[++i]));
+                default -> trace = Path.of(args[i]);
+            }
+        }
+        if (trace == null) {
+            throw new IllegalArgumentException("Trace file expected.");
+        }
+        var configs = new ArrayList<SimulationConfig>();
+        for (var policy : policies) {
+            for (var size : sizes) {
+                configs.add(SimulationConfig.builder()
+                    .maximumSize(size)
+                    .policy(SimulationConfig.Policy.valueOf(policy.replace("+tinylfu", "").toUpperCase()))
+                    .frequencyAdmission(policy.endsWith("+tinylfu"))
+                    .entryExpiration(ttl)
+                    .maxBatchSize(batchSize)
+                    .maxBatchLinger(batchLinger)
+                    .build());
+            }
+        }
+        System.out.println(SimulationResult.header());
+        for (var result : simulate(format, trace, configs)) {
+            System.out.println(result);
+        }
+    }
+
+    private static final class Replay {
+        private final SimulationConfig config;
+        private final LRUCacheMap<Long, Boolean> cacheMap;
+        private final long batchLingerNanos;
+
+        private long time;
+        private long accesses;
+        private long hits;
+        private long misses;
+        private long loaderCalls;
+
+        //Current micro batch
+        private long batchStart;
+        private int batchCount;
+
+        Replay(SimulationConfig config) {
+            this.config = config;
+            this.batchLingerNanos = config.getMaxBatchLinger().toNanos();
+            var builder = LRUCacheMap.<Long, Boolean>builder()
+                .map(new HashMap<>())
+                .maximumSize(config.getMaximumSize())
+                .evictionPolicy(config.getPolicy().create())
+                .frequencyAdmission(config.isFrequencyAdmission())
+                .ticker(() -> time);
+            if (config.getEntryExpiration() != null) {
+                builder
+                    .entryExpirationChronoUnit(ChronoUnit.NANOS)
+                    .entryExpirationDuration(config.getEntryExpiration().toNanos());
+            }
+            this.cacheMap = builder.build();
+        }
+
+        void access(long keyHash, long timeNanos) {
+            time = timeNanos;
+            accesses++;
+            if (!cacheMap.get(keyHash).isEmpty()) {
+                hits++;
+            } else {
+                misses++;
+                load();
+                cacheMap.put(keyHash, Boolean.TRUE);
+            }
+            if (accesses % CLEAN_UP_INTERVAL == 0) {
+                cacheMap.cleanUp();
+            }
+        }
+
+        private void load() {
+            if (config.getMaxBatchSize() <= 0) {
+                loaderCalls++;
+                return;
+            }
+            //A miss opens a new batch if the current one is full or lingered long enough
+            if (batchCount == 0 || batchCount >= config.getMaxBatchSize() || time - batchStart > batchLingerNanos) {
+                loaderCalls++;
+                batchStart = time;
+                batchCount = 0;
+            }
+            batchCount++;
+        }
+
+        SimulationResult result() {
+            return new SimulationResult(config.getName(), accesses, hits, misses, cacheMap.getEvictionCount(), loaderCalls);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcachesimulator;
+
+import java.time.Duration;
+
+import io.github.d_sch.webfluxcached.common.cache.internal.EvictionPolicy;
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Getter;
+
+/**
+ * SimulationConfig
+ *
+ * Cache map configuration replayed by the {@link CacheSimulator}.
+ *
+ */
+@Builder
+@Getter
+public class SimulationConfig {
+
+    public enum Policy {
+        LRU, SLRU, ARC;
+
+        <K, T> EvictionPolicy<K, T> create() {
+            return switch (this) {
+                case LRU -> EvictionPolicy.lru();
+                case SLRU -> EvictionPolicy.segmentedLru();
+                case ARC -> EvictionPolicy.arc();
+            };
+        }
+    }
+
+    @Default
+    private long maximumSize = 10_000;
+
+    @Default
+    private Policy policy = Policy.LRU;
+
+    /**
+     * W-TinyLFU admission in front of the eviction policy.
+     */
+    @Default
+    private boolean frequencyAdmission = false;
+
+    /**
+     * Entries not accessed for this duration expire, never if null.
+     */
+    @Default
+    private Duration entryExpiration = null;
+
+    /**
+     * Misses of one micro batch share one loader call, every miss is loaded on its
+     * own if not positive, see {@code CachedConfig#getMaxBatchSize()}.
+     */
+    @Default
+    private int maxBatchSize = 0;
+
+    @Default
+    private Duration maxBatchLinger = Duration.ofMillis(5);
+
+    public String getName() {
+        return policy.name().toLowerCase()
+            + (frequencyAdmission ? "+tinylfu" : "")
+            + " size=" + maximumSize
+            + (entryExpiration != null ? " ttl=" + entryExpiration : "");
+    }
+}
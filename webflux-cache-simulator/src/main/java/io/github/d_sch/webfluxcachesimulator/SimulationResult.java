@@ -0,0 +1,48 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcachesimulator;
+
+/**
+ * SimulationResult
+ *
+ * Outcome of replaying a trace against one {@link SimulationConfig}.
+ *
+ */
+public record SimulationResult(
+    String name,
+    long accesses,
+    long hits,
+    long misses,
+    long evictions,
+    long loaderCalls
+) {
+
+    public double hitRatio() {
+        return accesses == 0
+            ? 0
+            : (double) hits / accesses;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-36s %12d %8.4f %12d %12d %12d", name, accesses, hitRatio(), misses, evictions, loaderCalls);
+    }
+
+    public static String header() {
+        return String.format("%-36s %12s %8s %12s %12s %12s", "configuration", "accesses", "hit", "misses", "evictions", "loads");
+    }
+}
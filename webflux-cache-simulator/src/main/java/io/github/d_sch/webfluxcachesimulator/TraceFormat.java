@@ -0,0 +1,108 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcachesimulator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import io.github.d_sch.webfluxcached.common.cache.trace.AccessTrace;
+
+/**
+ * TraceFormat
+ *
+ * Formats of access traces replayed by the {@link CacheSimulator}. Text formats carry
+ * no time, their accesses are replayed at time zero and expiration is not simulated.
+ *
+ */
+public enum TraceFormat {
+
+    /**
+     * Binary trace of an {@link io.github.d_sch.webfluxcached.common.cache.trace.AccessTraceRecorder}.
+     */
+    BINARY {
+        @Override
+        public long read(Path path, AccessTrace.Visitor visitor) throws IOException {
+            return AccessTrace.read(path, visitor);
+        }
+    },
+
+    /**
+     * One numeric key per line, e.g. the traces published with LIRS.
+     */
+    LIRS {
+        @Override
+        public long read(Path path, AccessTrace.Visitor visitor) throws IOException {
+            return readLines(path, fields -> {
+                visitor.access(Long.parseLong(fields[0]), 0);
+                return 1;
+            });
+        }
+    },
+
+    /**
+     * Lines of start block, number of blocks, ignored and request number, e.g. the
+     * traces published with ARC. Every block of a request is one access.
+     */
+    ARC {
+        @Override
+        public long read(Path path, AccessTrace.Visitor visitor) throws IOException {
+            return readLines(path, fields -> {
+                if (fields.length < 2) {
+                    throw new IOException("Invalid ARC trace line, start block and number of blocks expected.");
+                }
+                var start = Long.parseLong(fields[0]);
+                var blocks = Long.parseLong(fields[1]);
+                for (long block = start; block < start + blocks; block++) {
+                    visitor.access(block, 0);
+                }
+                return blocks;
+            });
+        }
+    };
+
+    /**
+     * Read all accesses of the trace file, returns the number of accesses read.
+     */
+    public abstract long read(Path path, AccessTrace.Visitor visitor) throws IOException;
+
+    @FunctionalInterface
+    private interface LineParser {
+        long parse(String[] fields) throws IOException;
+    }
+
+    //Blank lines and lines not starting with a digit, e.g. comments, are skipped
+    private static long readLines(Path path, LineParser parser) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            var count = 0L;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || !Character.isDigit(line.charAt(0))) {
+                    continue;
+                }
+                try {
+                    count += parser.parse(line.split("\\s+"));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid trace line: " + line, e);
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.d_sch.webfluxcachesimulator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.d_sch.webfluxcached.common.cache.trace.AccessTraceRecorder;
+
+public class CacheSimulatorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("LIRS trace of a hot set used twice between scans is replayed against each policy")
+    public void simulate_comparesPolicies() throws IOException {
+        // Arrange: hot set of 50 keys used twice per round, scans of 200 keys used once
+        var lines = new ArrayList<String>();
+        var scanKey = 1000;
+        for (int round = 0; round < 20; round++) {
+            for (int access = 0; access < 2; access++) {
+                for (int hot = 0; hot < 50; hot++) {
+                    lines.add(String.valueOf(hot));
+                }
+            }
+            for (int scan = 0; scan < 200; scan++) {
+                lines.add(String.valueOf(scanKey++));
+            }
+        }
+        var trace = Files.write(directory.resolve("hot.lirs"), lines);
+        var configs = List.of(SimulationConfig.Policy.LRU, SimulationConfig.Policy.SLRU, SimulationConfig.Policy.ARC).stream()
+            .map(policy -> SimulationConfig.builder().maximumSize(100).policy(policy).build())
+            .toList();
+
+        // Act
+        var results = CacheSimulator.simulate(TraceFormat.LIRS, trace, configs);
+
+        // Assert
+        assertEquals(6000, results.get(0).accesses());
+        assertEquals(1000, results.get(0).hits());
+        assertEquals(results.get(0).misses(), results.get(0).loaderCalls());
+        assertTrue(results.get(1).hitRatio() > 0.3, results.get(1).toString());
+        assertTrue(results.get(2).hitRatio() > 0.3, results.get(2).toString());
+    }
+
+    @Test
+    @DisplayName("ARC trace requests are expanded to their blocks, misses are loaded in micro batches")
+    public void simulate_estimatesLoaderCallsOfBatches() throws IOException {
+        // Arrange: blocks 0 to 3, then 2 to 5
+        var trace = Files.write(directory.resolve("blocks.arc"), List.of("0 4 0 1", "2 4 0 2"));
+
+        // Act
+        var result = CacheSimulator.simulate(TraceFormat.ARC, trace, SimulationConfig.builder()
+            .maximumSize(100)
+            .maxBatchSize(4)
+            .build());
+
+        // Assert
+        assertEquals(8, result.accesses());
+        assertEquals(2, result.hits());
+        assertEquals(6, result.misses());
+        assertEquals(2, result.loaderCalls());
+        assertEquals(0, result.evictions());
+    }
+
+    @Test
+    @DisplayName("Binary traces of the access recorder are replayed")
+    public void simulate_replaysRecordedTrace() throws IOException {
+        // Arrange
+        var path = directory.resolve("cache.trace");
+        var recorder = AccessTraceRecorder.<String>open(path);
+        for (var key : List.of("K1", "K2", "K1", "K3", "K1")) {
+            recorder.record(key);
+        }
+        recorder.dispose();
+
+        // Act
+        var result = CacheSimulator.simulate(TraceFormat.BINARY, path, SimulationConfig.builder().maximumSize(2).build());
+
+        // Assert
+        assertEquals(5, result.accesses());
+        assertEquals(2, result.hits());
+        assertEquals(1, result.evictions());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+/**
+ * SerializedSink
+ *
+ * Emit into a {@link Sinks.Many} from any number of threads without spinning. Values
+ * are queued, the thread finding the sink idle drains the queue for all emitters,
+ * so the sink is never entered concurrently and an emitter never waits for another.
+ *
+ * Values the sink rejects, e.g. after its subscriber cancelled, are dropped and logged.
+ *
+ */
+@Slf4j
+public final class SerializedSink<T> {
+
+    private final Sinks.Many<T> sink;
+    private final Queue<T> queue = Queues.<T>unboundedMultiproducer().get();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean completed;
+
+    public SerializedSink(@NonNull Sinks.Many<T> sink) {
+        this.sink = sink;
+    }
+
+    public static <T> SerializedSink<T> unicast() {
+        return new SerializedSink<>(Sinks.many().unicast().onBackpressureBuffer());
+    }
+
+    public void emitNext(@NonNull T value) {
+        queue.offer(value);
+        drain();
+    }
+
+    /**
+     * Complete the sink after the values emitted so far.
+     */
+    public void emitComplete() {
+        completed = true;
+        drain();
+    }
+
+    public Flux<T> asFlux() {
+        return sink.asFlux();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        var missed = 1;
+        do {
+            T value;
+            while ((value = queue.poll()) != null) {
+                var result = sink.tryEmitNext(value);
+                if (result.isFailure()) {
+                    log.debug("Drop value: {} Result: {}", value, result);
+                }
+            }
+            if (completed) {
+                sink.tryEmitComplete();
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
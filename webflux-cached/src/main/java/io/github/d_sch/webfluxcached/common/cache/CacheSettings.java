@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+import io.github.d_sch.webfluxcached.common.cache.internal.LRUCacheMap;
+
+/**
+ * CacheSettings
+ *
+ * Expiration and bounds of a cache map, for inspection. Expirations are null if
+ * entries or values never expire, maximums are {@link LRUCacheMap#UNBOUNDED} if
+ * not bounded.
+ *
+ */
+public record CacheSettings(Duration entryExpiration, Duration valueExpiration, long maximumSize, long maximumWeight) {
+
+    public static final CacheSettings UNKNOWN = new CacheSettings(null, null, LRUCacheMap.UNBOUNDED, LRUCacheMap.UNBOUNDED);
+
+    public static CacheSettings of(
+        long entryExpirationDuration,
+        ChronoUnit entryExpirationChronoUnit,
+        long valueExpirationDuration,
+        ChronoUnit valueExpirationChronoUnit,
+        long maximumSize,
+        long maximumWeight
+    ) {
+        return new CacheSettings(
+            expiration(entryExpirationDuration, entryExpirationChronoUnit),
+            expiration(valueExpirationDuration, valueExpirationChronoUnit),
+            maximumSize,
+            maximumWeight
+        );
+    }
+
+    private static Duration expiration(long duration, ChronoUnit chronoUnit) {
+        if (chronoUnit.equals(ChronoUnit.FOREVER)) {
+            return null;
+        }
+        try {
+            return chronoUnit.getDuration().multipliedBy(duration);
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+}
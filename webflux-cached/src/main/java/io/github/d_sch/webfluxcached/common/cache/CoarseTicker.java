@@ -0,0 +1,68 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import lombok.NonNull;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * CoarseTicker
+ *
+ * {@link Ticker} returning a time cached by a periodic task, trading precision for
+ * a plain volatile read per access.
+ *
+ */
+public class CoarseTicker implements Ticker, Disposable {
+
+    private final Ticker source;
+    private final Disposable refresh;
+
+    private volatile long nanos;
+
+    public CoarseTicker(@NonNull Ticker source, @NonNull Duration granularity) {
+        if (granularity.isNegative() || granularity.isZero()) {
+            throw new IllegalArgumentException("Granularity must be positive: " + granularity);
+        }
+        this.source = source;
+        this.nanos = source.read();
+        this.refresh = Schedulers.parallel().schedulePeriodically(
+            () -> nanos = this.source.read(),
+            granularity.toNanos(),
+            granularity.toNanos(),
+            TimeUnit.NANOSECONDS
+        );
+    }
+
+    @Override
+    public long read() {
+        return nanos;
+    }
+
+    @Override
+    public void dispose() {
+        refresh.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return refresh.isDisposed();
+    }
+}
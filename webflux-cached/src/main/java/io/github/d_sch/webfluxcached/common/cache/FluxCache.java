@@ -16,18 +16,111 @@
 
 package io.github.d_sch.webfluxcached.common.cache;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheMap;
 import io.github.d_sch.webfluxcached.common.cache.internal.LRUCacheMap;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-public interface FluxCache<T> {
+/**
+ * FluxCache
+ *
+ * Reactive cache of values by key. Keys are used as they are, any type with
+ * consistent equals and hashCode is supported.
+ *
+ */
+public interface FluxCache<K, T> {
+
+    Flux<CacheEntry<K, T>> get(Flux<K> keys);
+    Flux<CacheEntry<K, T>> put(Flux<Map.Entry<K, T>> entries);
+
+    /**
+     * Get the entries of all keys in the order of the keys, empty entries for keys
+     * not cached.
+     */
+    default Mono<List<CacheEntry<K, T>>> getAll(Collection<K> keys) {
+        return get(Flux.fromIterable(keys)).collectList();
+    }
+
+    /**
+     * Put all entries, returns the cache entries in the order of the entries.
+     */
+    default Mono<List<CacheEntry<K, T>>> putAll(Collection<? extends Map.Entry<K, T>> entries) {
+        return put(Flux.fromIterable(entries)).collectList();
+    }
+
+    /**
+     * Get the entries of the keys chunk by chunk, every chunk is served by one
+     * {@link #getAll}. A chunk is closed when full or after the maximum linger time.
+     */
+    default Flux<CacheEntry<K, T>> get(Flux<K> keys, int maxChunkSize, Duration maxChunkLinger) {
+        return keys
+            .bufferTimeout(maxChunkSize, maxChunkLinger, true)
+            .concatMap(this::getAll)
+            .flatMapIterable(Function.identity());
+    }
+
+    /**
+     * Put the entries chunk by chunk, every chunk is served by one {@link #putAll}.
+     */
+    default Flux<CacheEntry<K, T>> put(Flux<Map.Entry<K, T>> entries, int maxChunkSize, Duration maxChunkLinger) {
+        return entries
+            .bufferTimeout(maxChunkSize, maxChunkLinger, true)
+            .concatMap(this::putAll)
+            .flatMapIterable(Function.identity());
+    }
+
+    /**
+     * Record the keys as known to have no value, see {@link CacheMap#putTombstone}.
+     */
+    default Flux<CacheEntry<K, T>> putTombstones(Flux<K> keys) {
+        return keys.map(CacheEntry::empty);
+    }
 
-    Flux<CacheEntry<String, T>> get(Flux<String> keys);
-    Flux<CacheEntry<String, T>> put(Flux<Map.Entry<String, T>> entries);
+    /**
+     * Remove the entries of the keys, see {@link CacheMap#invalidate}. Returns the
+     * removed entries, empty entries for keys not cached.
+     */
+    default Flux<CacheEntry<K, T>> invalidate(Flux<K> keys) {
+        return Flux.error(new UnsupportedOperationException("Invalidation is not supported by " + getClass().getSimpleName()));
+    }
+
+    default Mono<Void> invalidateAll() {
+        return Mono.error(new UnsupportedOperationException("Invalidation is not supported by " + getClass().getSimpleName()));
+    }
+
+    /**
+     * Up to limit entries from most to least recently used, see {@link CacheMap#entries}.
+     */
+    default Flux<CacheEntry<K, T>> entries(int limit) {
+        return Flux.error(new UnsupportedOperationException("Inspection is not supported by " + getClass().getSimpleName()));
+    }
+
+    /**
+     * Number of entries read without waiting for the cache thread, -1 if unknown.
+     */
+    default long estimatedSize() {
+        return -1;
+    }
+
+    /**
+     * Ticker the deadlines of the cached entries refer to, see {@link CacheMap#getTicker}.
+     */
+    default Ticker getTicker() {
+        return Ticker.system();
+    }
+
+    default CacheSettings getSettings() {
+        return CacheSettings.UNKNOWN;
+    }
 
-    default <K> LRUCacheMap.LRUCacheMapBuilder<K, T> lruCache() {
+    default LRUCacheMap.LRUCacheMapBuilder<K, T> lruCache() {
         return LRUCacheMap.builder();
     }
 
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache;
+
+/**
+ * Hashing
+ *
+ * 64 bit FNV-1a hashes with the finalizer of MurmurHash3 to spread similar keys,
+ * stable across JVMs for keys hashed by their bytes or characters.
+ *
+ */
+public final class Hashing {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Hashing() {
+    }
+
+    public static long hash(byte[] bytes) {
+        var hash = FNV_OFFSET_BASIS;
+        for (var b : bytes) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return spread(hash);
+    }
+
+    public static long hash(CharSequence chars) {
+        var hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < chars.length(); i++) {
+            hash = (hash ^ chars.charAt(i)) * FNV_PRIME;
+        }
+        return spread(hash);
+    }
+
+    /**
+     * Hash of the characters of a string, the spread hash code of other keys.
+     */
+    public static long hash(Object key) {
+        return key instanceof CharSequence chars
+            ? hash(chars)
+            : spread(key.hashCode());
+    }
+
+    /**
+     * Finalizer of MurmurHash3.
+     */
+    public static long spread(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
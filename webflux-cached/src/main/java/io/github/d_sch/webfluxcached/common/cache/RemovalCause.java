@@ -0,0 +1,47 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache;
+
+public enum RemovalCause {
+
+    /**
+     * Entry or value expiration time passed.
+     */
+    EXPIRED,
+
+    /**
+     * Entry evicted to stay within maximum size or maximum weight.
+     */
+    SIZE,
+
+    /**
+     * Entry invalidated by the application.
+     */
+    EXPLICIT,
+
+    /**
+     * Value replaced by a put of the application, by a new value or a tombstone.
+     */
+    REPLACED;
+
+    /**
+     * Whether the entry was removed by the cache, not by the application.
+     */
+    public boolean wasEvicted() {
+        return this == EXPIRED || this == SIZE;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache;
+
+/**
+ * RemovalListener
+ * 
+ * Notified whenever an entry leaves the cache. The listener is called by the thread
+ * maintaining the cache and therefore must not block.
+ * 
+ */
+@FunctionalInterface
+public interface RemovalListener<K, T> {
+
+    /**
+     * Listener ignoring all removals, see {@link #none()}.
+     */
+    RemovalListener<Object, Object> NONE = (key, value, cause) -> {};
+
+    void onRemoval(K key, T value, RemovalCause cause);
+
+    /**
+     * Listener ignoring all removals, always the same instance so cache maps can skip
+     * preparing notifications nobody receives.
+     */
+    @SuppressWarnings("unchecked")
+    static <K, T> RemovalListener<K, T> none() {
+        return (RemovalListener<K, T>) (RemovalListener<?, ?>) NONE;
+    }
+
+    /**
+     * Notify this listener, then the next one.
+     */
+    default RemovalListener<K, T> andThen(RemovalListener<K, T> next) {
+        return (key, value, cause) -> {
+            onRemoval(key, value, cause);
+            next.onRemoval(key, value, cause);
+        };
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache;
+
+/**
+ * StatsCounter
+ * 
+ * Record statistics of a cache. Hits, misses and evictions are recorded on every
+ * access and therefore have to be cheap, e.g. striped counters. Durations are in
+ * nanoseconds.
+ * 
+ */
+public interface StatsCounter {
+
+    void recordHits(int count);
+
+    void recordMisses(int count);
+
+    /**
+     * Hits returning a value older than its value expiration, e.g. to be refreshed.
+     */
+    void recordStaleHits(int count);
+
+    void recordEviction(RemovalCause cause);
+
+    void recordLoadSuccess(long loadTime);
+
+    void recordLoadFailure(long loadTime);
+
+    void recordCleanUp(long duration);
+
+    /**
+     * Time a cache task waited for the cache thread.
+     */
+    void recordQueueingDelay(long delay);
+
+    static StatsCounter disabled() {
+        return DisabledStatsCounter.INSTANCE;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache;
+
+import java.time.Duration;
+
+/**
+ * Ticker
+ *
+ * Time source of a cache in nanoseconds, used to calculate and check expiration.
+ * Only the difference between two readings is meaningful, the same as for
+ * {@link System#nanoTime()}.
+ *
+ */
+@FunctionalInterface
+public interface Ticker {
+
+    long read();
+
+    static Ticker system() {
+        return System::nanoTime;
+    }
+
+    /**
+     * Ticker reading a cached time of the system ticker, refreshed with the granularity.
+     * Dispose the ticker to stop the refresh.
+     */
+    static CoarseTicker coarse(Duration granularity) {
+        return new CoarseTicker(system(), granularity);
+    }
+}
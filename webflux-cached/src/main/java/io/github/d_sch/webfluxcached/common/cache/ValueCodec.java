@@ -0,0 +1,48 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ValueCodec
+ *
+ * Serialize cache keys or values to bytes, used by caches storing values outside of
+ * the heap and by cache snapshots.
+ *
+ */
+public interface ValueCodec<T> {
+
+    byte[] encode(T value);
+
+    T decode(byte[] bytes);
+
+    static ValueCodec<String> string() {
+        return new ValueCodec<>() {
+
+            @Override
+            public byte[] encode(String value) {
+                return value.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String decode(byte[] bytes) {
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+}
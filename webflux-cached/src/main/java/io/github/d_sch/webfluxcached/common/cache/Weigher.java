@@ -0,0 +1,35 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache;
+
+/**
+ * Weigher
+ * 
+ * Calculate the weight of a cache entry, used to bound a cache by total weight
+ * instead of number of entries. The weight of an entry is calculated when it is
+ * added or its value is replaced and must not be negative.
+ * 
+ */
+@FunctionalInterface
+public interface Weigher<K, T> {
+
+    int weigh(K key, T value);
+
+    static <K, T> Weigher<K, T> singleton() {
+        return (key, value) -> 1;
+    }
+}
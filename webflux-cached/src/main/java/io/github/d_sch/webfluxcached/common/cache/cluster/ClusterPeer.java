@@ -0,0 +1,28 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.cluster;
+
+import lombok.NonNull;
+
+/**
+ * ClusterPeer
+ *
+ * Node of a cluster by its id and the base URL its {@link PeerCacheHandler} is
+ * served at, e.g. http://localhost:8081.
+ *
+ */
+public record ClusterPeer(@NonNull String id, @NonNull String baseUrl) {}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import io.github.d_sch.webfluxcached.common.cache.Hashing;
+import lombok.NonNull;
+
+/**
+ * ConsistentHashRing
+ *
+ * Assign keys to nodes by consistent hashing. Every node is placed on the ring at
+ * several virtual positions, a key is owned by the node of the first position at
+ * or after the hash of the key. Adding or removing a node moves only the keys of
+ * its positions.
+ *
+ * Keys are hashed by their serialized bytes, nodes built from the same node ids
+ * agree on the owner of every key.
+ *
+ */
+public class ConsistentHashRing {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public ConsistentHashRing(Collection<String> nodeIds) {
+        this(nodeIds, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ConsistentHashRing(@NonNull Collection<String> nodeIds, int virtualNodes) {
+        if (nodeIds.isEmpty()) {
+            throw new IllegalArgumentException("Ring requires at least one node.");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("Virtual nodes must be positive: " + virtualNodes);
+        }
+        for (var nodeId : nodeIds) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(Hashing.hash((nodeId + "#" + i).getBytes(StandardCharsets.UTF_8)), nodeId);
+            }
+        }
+    }
+
+    public String ownerOf(@NonNull byte[] key) {
+        var position = ring.ceilingEntry(Hashing.hash(key));
+        return position != null
+            ? position.getValue()
+            : ring.firstEntry().getValue();
+    }
+}
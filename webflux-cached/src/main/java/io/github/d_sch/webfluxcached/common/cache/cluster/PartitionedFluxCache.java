@@ -0,0 +1,380 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.cluster;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.github.d_sch.webfluxcached.common.cache.CacheSettings;
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
+import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import io.github.d_sch.webfluxcached.common.cache.ValueCodec;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import io.github.d_sch.webfluxcustomjacksonstream.common.JsonWriter;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * PartitionedFluxCache
+ *
+ * {@link FluxCache} partitioned across the nodes of a cluster. Every key is owned by
+ * one node, chosen by a {@link ConsistentHashRing} of the peer ids. Keys owned by
+ * this node are served by the local cache, keys owned by a peer are forwarded in
+ * batches to the {@link PeerCacheHandler} of the peer.
+ *
+ * Serve the handler with a loader going through the {@link
+ * io.github.d_sch.webfluxcached.common.cached.Cached} of the node, so a key missing
+ * on its owner is loaded once per cluster by the owner.
+ *
+ * All nodes have to be configured with the same peers. A peer failing or not
+ * answering within the request timeout is treated as a miss, values put for it are
+ * returned without being cached and keys invalidated for it are returned as
+ * invalidated.
+ *
+ */
+@Slf4j
+public class PartitionedFluxCache<K, T> implements FluxCache<K, T> {
+
+    public static final String DEFAULT_PATH = "/cluster/cache";
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(1);
+
+    @Getter
+    private final String selfId;
+
+    private final FluxCache<K, T> local;
+    private final Map<String, ClusterPeer> peers;
+    private final ConsistentHashRing ring;
+    private final WebClient webClient;
+    private final String path;
+    private final ValueCodec<K> keyCodec;
+    private final ValueCodec<T> valueCodec;
+    private final int maxBatchSize;
+    private final Duration maxBatchLinger;
+    private final Duration requestTimeout;
+
+    @Builder
+    private PartitionedFluxCache(
+        @NonNull String selfId,
+        @NonNull List<ClusterPeer> peers,
+        @NonNull FluxCache<K, T> local,
+        @NonNull WebClient webClient,
+        String path,
+        @NonNull ValueCodec<K> keyCodec,
+        @NonNull ValueCodec<T> valueCodec,
+        Integer maxBatchSize,
+        Duration maxBatchLinger,
+        Duration requestTimeout
+    ) {
+        this.peers = new LinkedHashMap<>();
+        for (var peer : peers) {
+            if (this.peers.put(peer.id(), peer) != null) {
+                throw new IllegalArgumentException("Duplicate peer id: " + peer.id());
+            }
+        }
+        if (!this.peers.containsKey(selfId)) {
+            throw new IllegalArgumentException("Peers do not contain this node: " + selfId);
+        }
+        this.selfId = selfId;
+        this.local = local;
+        this.ring = new ConsistentHashRing(this.peers.keySet());
+        this.webClient = webClient;
+        this.path = path != null ? path : DEFAULT_PATH;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.maxBatchSize = maxBatchSize != null ? maxBatchSize : 256;
+        this.maxBatchLinger = maxBatchLinger != null ? maxBatchLinger : Duration.ofMillis(1);
+        this.requestTimeout = requestTimeout != null ? requestTimeout : DEFAULT_REQUEST_TIMEOUT;
+        if (this.maxBatchSize < 1) {
+            throw new IllegalArgumentException("Maximum batch size must be positive: " + this.maxBatchSize);
+        }
+    }
+
+    public String ownerOf(K key) {
+        return ring.ownerOf(keyCodec.encode(key));
+    }
+
+    private boolean isLocal(String owner) {
+        return selfId.equals(owner);
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> get(Flux<K> keys) {
+        return keys
+            .groupBy(this::ownerOf)
+            //All owner groups have to be subscribed concurrently
+            .flatMap(group -> isLocal(group.key())
+                ? local.get(group)
+                : group
+                    .bufferTimeout(maxBatchSize, maxBatchLinger, true)
+                    .concatMap(batch -> fetch(group.key(), batch)),
+                peers.size()
+            );
+    }
+
+    /**
+     * Get the keys of every owner with one request per batch, owners are accessed
+     * in parallel. Entries are returned in the order of the keys.
+     */
+    @Override
+    public Mono<List<CacheEntry<K, T>>> getAll(@NonNull Collection<K> keys) {
+        var partitions = partition(keys, Function.identity());
+        return Flux.fromIterable(partitions.entrySet())
+            .flatMap(partition -> isLocal(partition.getKey())
+                ? local.getAll(partition.getValue()).flatMapIterable(Function.identity())
+                : Flux.fromIterable(partition.getValue())
+                    .buffer(maxBatchSize)
+                    .concatMap(batch -> fetch(partition.getKey(), batch)),
+                peers.size()
+            )
+            .collectMap(CacheEntry::getKey, Function.identity())
+            .map(entries -> {
+                var ordered = new ArrayList<CacheEntry<K, T>>(keys.size());
+                for (var key : keys) {
+                    ordered.add(entries.getOrDefault(key, CacheEntry.empty(key)));
+                }
+                return ordered;
+            });
+    }
+
+    private <E> Map<String, List<E>> partition(Collection<? extends E> elements, Function<E, K> keyOf) {
+        var partitions = new LinkedHashMap<String, List<E>>();
+        for (var element : elements) {
+            partitions.computeIfAbsent(ownerOf(keyOf.apply(element)), owner -> new ArrayList<>()).add(element);
+        }
+        return partitions;
+    }
+
+    /**
+     * Entries of the peer for the keys, empty entries for keys the peer did not return.
+     */
+    private Flux<CacheEntry<K, T>> fetch(String owner, List<K> batch) {
+        log.debug("Forward get of {} keys to {}.", batch.size(), owner);
+        return Flux.defer(() -> {
+            var missing = new HashSet<>(batch);
+            return post(owner, "/get", Flux.fromIterable(batch).map(key -> new PeerEntry(keyCodec.encode(key), null)))
+                .bodyToFlux(PeerEntry.class)
+                .transform(this::withDeadline)
+                .<CacheEntry<K, T>>map(entry -> new PeerCacheEntry<>(keyCodec.decode(entry.key()), valueCodec.decode(entry.value())))
+                .doOnNext(entry -> missing.remove(entry.getKey()))
+                .onErrorResume(throwable -> {
+                    log.warn("Forward get of {} keys to {} failed.", batch.size(), owner, throwable);
+                    return Flux.empty();
+                })
+                .concatWith(Flux.defer(() -> Flux.fromIterable(missing).map(CacheEntry::empty)));
+        });
+    }
+
+    private WebClient.ResponseSpec post(String owner, String operation, Flux<PeerEntry> entries) {
+        return webClient.post()
+            .uri(peers.get(owner).baseUrl() + path + operation)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(BodyInserters.fromDataBuffers(JsonWriter.asDataBufferFlux(entries)))
+            .retrieve();
+    }
+
+    /**
+     * One deadline for the whole response, not per entry.
+     */
+    private <E> Flux<E> withDeadline(Flux<E> response) {
+        return Flux.defer(() -> {
+            var deadline = Mono.delay(requestTimeout).cache();
+            return response.timeout(deadline, entry -> deadline);
+        });
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> put(Flux<Map.Entry<K, T>> entries) {
+        return entries
+            .groupBy(entry -> ownerOf(entry.getKey()))
+            .flatMap(group -> isLocal(group.key())
+                ? local.put(group)
+                : group
+                    .bufferTimeout(maxBatchSize, maxBatchLinger, true)
+                    .concatMap(batch -> store(group.key(), batch)),
+                peers.size()
+            );
+    }
+
+    @Override
+    public Mono<List<CacheEntry<K, T>>> putAll(@NonNull Collection<? extends Map.Entry<K, T>> entries) {
+        var partitions = partition(entries, Map.Entry::getKey);
+        return Flux.fromIterable(partitions.entrySet())
+            .flatMap(partition -> isLocal(partition.getKey())
+                ? local.putAll(partition.getValue()).flatMapIterable(Function.identity())
+                : Flux.fromIterable(partition.getValue())
+                    .buffer(maxBatchSize)
+                    .concatMap(batch -> store(partition.getKey(), batch)),
+                peers.size()
+            )
+            .collectMap(CacheEntry::getKey, Function.identity())
+            .map(stored -> {
+                var ordered = new ArrayList<CacheEntry<K, T>>(entries.size());
+                for (var entry : entries) {
+                    ordered.add(stored.get(entry.getKey()));
+                }
+                return ordered;
+            });
+    }
+
+    /**
+     * Put the entries into the cache of the peer, the entries are returned also if
+     * the peer failed to store them.
+     */
+    private Flux<CacheEntry<K, T>> store(String owner, List<? extends Map.Entry<K, T>> batch) {
+        log.debug("Forward put of {} entries to {}.", batch.size(), owner);
+        return post(owner, "/put", Flux.fromIterable(batch).map(entry -> new PeerEntry(keyCodec.encode(entry.getKey()), valueCodec.encode(entry.getValue()))))
+            .toBodilessEntity()
+            .timeout(requestTimeout)
+            .then()
+            .onErrorResume(throwable -> {
+                log.warn("Forward put of {} entries to {} failed.", batch.size(), owner, throwable);
+                return Mono.empty();
+            })
+            .thenMany(Flux.fromIterable(batch).map(entry -> new PeerCacheEntry<>(entry.getKey(), entry.getValue())));
+    }
+
+    /**
+     * Tombstones are kept for owned keys only.
+     */
+    @Override
+    public Flux<CacheEntry<K, T>> putTombstones(Flux<K> keys) {
+        return keys
+            .groupBy(this::ownerOf)
+            .flatMap(group -> isLocal(group.key())
+                ? local.putTombstones(group)
+                : group.map(CacheEntry::<K, T>empty),
+                peers.size()
+            );
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> invalidate(Flux<K> keys) {
+        return keys
+            .groupBy(this::ownerOf)
+            .flatMap(group -> isLocal(group.key())
+                ? local.invalidate(group)
+                : group
+                    .bufferTimeout(maxBatchSize, maxBatchLinger, true)
+                    .concatMap(batch -> forwardInvalidate(group.key(), batch)),
+                peers.size()
+            );
+    }
+
+    /**
+     * Invalidate the keys in the cache of the peer, the keys are returned also if the
+     * peer failed to invalidate them.
+     */
+    private Flux<CacheEntry<K, T>> forwardInvalidate(String owner, List<K> batch) {
+        log.debug("Forward invalidate of {} keys to {}.", batch.size(), owner);
+        return post(owner, "/invalidate", Flux.fromIterable(batch).map(key -> new PeerEntry(keyCodec.encode(key), null)))
+            .toBodilessEntity()
+            .timeout(requestTimeout)
+            .then()
+            .onErrorResume(throwable -> {
+                log.warn("Forward invalidate of {} keys to {} failed.", batch.size(), owner, throwable);
+                return Mono.empty();
+            })
+            .thenMany(Flux.fromIterable(batch).map(CacheEntry::<K, T>empty));
+    }
+
+    /**
+     * Invalidate the entries owned by this node.
+     */
+    @Override
+    public Mono<Void> invalidateAll() {
+        return local.invalidateAll();
+    }
+
+    /**
+     * Entries owned by this node.
+     */
+    @Override
+    public Flux<CacheEntry<K, T>> entries(int limit) {
+        return local.entries(limit);
+    }
+
+    @Override
+    public long estimatedSize() {
+        return local.estimatedSize();
+    }
+
+    @Override
+    public Ticker getTicker() {
+        return local.getTicker();
+    }
+
+    @Override
+    public CacheSettings getSettings() {
+        return local.getSettings();
+    }
+
+    /**
+     * Entry returned by a peer, expiration is up to the owner.
+     */
+    private record PeerCacheEntry<K, T>(K key, T value) implements CacheEntry<K, T> {
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public T getValue() {
+            return value;
+        }
+
+        @Override
+        public T setValue(T value) {
+            throw new UnsupportedOperationException("Cache entry is read only.");
+        }
+
+        @Override
+        public Instant getEntryExpiresAt() {
+            return Instant.MAX;
+        }
+
+        @Override
+        public Instant getValueExpiresAt() {
+            return Instant.MAX;
+        }
+
+        @Override
+        public boolean isEntryExpired() {
+            return false;
+        }
+
+        @Override
+        public boolean isValueExpired() {
+            return false;
+        }
+    }
+}
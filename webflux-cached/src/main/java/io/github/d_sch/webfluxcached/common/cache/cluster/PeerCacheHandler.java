@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.cluster;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import io.github.d_sch.webfluxcached.common.cache.ValueCodec;
+import io.github.d_sch.webfluxcustomjacksonstream.common.JsonWriter;
+import lombok.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * PeerCacheHandler
+ *
+ * Serve the keys owned by this node to the {@link PartitionedFluxCache} of its peers.
+ * Requests and responses are JSON arrays of {@link PeerEntry}, streamed element by
+ * element.
+ *
+ * POST {path}/get returns the entries of the requested keys found by the loader,
+ * e.g. {@code cached::getAll} to load missing keys. POST {path}/put and {path}/invalidate
+ * update the local cache of this node.
+ *
+ */
+public class PeerCacheHandler<K, T> {
+
+    private final FluxCache<K, T> local;
+    private final Function<Flux<K>, Flux<? extends Map.Entry<K, T>>> loader;
+    private final ValueCodec<K> keyCodec;
+    private final ValueCodec<T> valueCodec;
+
+    public PeerCacheHandler(
+        @NonNull FluxCache<K, T> local,
+        @NonNull Function<Flux<K>, Flux<? extends Map.Entry<K, T>>> loader,
+        @NonNull ValueCodec<K> keyCodec,
+        @NonNull ValueCodec<T> valueCodec
+    ) {
+        this.local = local;
+        this.loader = loader;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+    }
+
+    public RouterFunction<ServerResponse> route() {
+        return route(PartitionedFluxCache.DEFAULT_PATH);
+    }
+
+    public RouterFunction<ServerResponse> route(@NonNull String path) {
+        return RouterFunctions.route(RequestPredicates.POST(path + "/get"), this::get)
+            .andRoute(RequestPredicates.POST(path + "/put"), this::put)
+            .andRoute(RequestPredicates.POST(path + "/invalidate"), this::invalidate);
+    }
+
+    private Flux<K> keys(ServerRequest request) {
+        return request.bodyToFlux(PeerEntry.class)
+            .map(entry -> keyCodec.decode(entry.key()));
+    }
+
+    public Mono<ServerResponse> get(ServerRequest request) {
+        var entries = loader.apply(keys(request))
+            .filter(entry -> entry.getValue() != null)
+            .map(entry -> new PeerEntry(keyCodec.encode(entry.getKey()), valueCodec.encode(entry.getValue())));
+        return ServerResponse.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(BodyInserters.fromDataBuffers(JsonWriter.asDataBufferFlux(entries)));
+    }
+
+    public Mono<ServerResponse> put(ServerRequest request) {
+        var entries = request.bodyToFlux(PeerEntry.class)
+            .<Map.Entry<K, T>>map(entry -> KeyValueHolder.of(keyCodec.decode(entry.key()), valueCodec.decode(entry.value())));
+        return local.put(entries)
+            .then(ServerResponse.ok().build());
+    }
+
+    public Mono<ServerResponse> invalidate(ServerRequest request) {
+        return local.invalidate(keys(request))
+            .then(ServerResponse.ok().build());
+    }
+}
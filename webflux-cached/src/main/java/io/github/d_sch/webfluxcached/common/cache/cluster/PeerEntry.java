@@ -0,0 +1,27 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.cluster;
+
+/**
+ * PeerEntry
+ *
+ * Key and value exchanged between peers, serialized by the key and value codecs of
+ * the cache and written as base64 into a JSON array. The value of a requested key
+ * is null.
+ *
+ */
+public record PeerEntry(byte[] key, byte[] value) {}
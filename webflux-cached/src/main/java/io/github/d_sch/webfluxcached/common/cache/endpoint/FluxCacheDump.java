@@ -0,0 +1,85 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.endpoint;
+
+import java.time.Instant;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import io.github.d_sch.webfluxcustomjacksonstream.common.JsonWriter;
+import lombok.NonNull;
+import reactor.core.publisher.Mono;
+
+/**
+ * FluxCacheDump
+ *
+ * Stream the entries of a registered cache as a JSON array, from most to least
+ * recently used. Entries are serialized one by one while written to the response,
+ * a dump of a large cache does not build the response in memory.
+ *
+ * GET {path}/{name}?limit=n, the limit is optional.
+ *
+ * The dump returns cached values, possibly personal or secret data. It is a plain
+ * route, not an actuator operation: an operation collects its result into a list
+ * before writing it. So exposure and security settings of the actuator do not
+ * apply. Map it below a path secured like the management endpoints, e.g. by a
+ * Spring Security rule requiring an admin role, and never expose it publicly.
+ *
+ */
+public class FluxCacheDump {
+
+    private final FluxCacheRegistry registry;
+
+    public FluxCacheDump(@NonNull FluxCacheRegistry registry) {
+        this.registry = registry;
+    }
+
+    public record DumpEntry(Object key, Object value, Instant entryExpiresAt, Instant valueExpiresAt) {
+
+        static DumpEntry of(CacheEntry<?, ?> entry) {
+            return new DumpEntry(entry.getKey(), entry.getValue(), entry.getEntryExpiresAt(), entry.getValueExpiresAt());
+        }
+    }
+
+    public RouterFunction<ServerResponse> route(@NonNull String path) {
+        return RouterFunctions.route(RequestPredicates.GET(path + "/{name}"), this::dump);
+    }
+
+    public Mono<ServerResponse> dump(ServerRequest request) {
+        var limit = request.queryParam("limit")
+            .map(Integer::parseInt)
+            .orElse(Integer.MAX_VALUE);
+        if (limit < 0) {
+            return ServerResponse.badRequest().build();
+        }
+        return Mono.justOrEmpty(registry.find(request.pathVariable("name")))
+            .flatMap(registration -> ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromDataBuffers(
+                    JsonWriter.asDataBufferFlux(registration.entries(limit).map(DumpEntry::of))
+                ))
+            )
+            .switchIfEmpty(ServerResponse.notFound().build());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.endpoint;
+
+import java.util.Collection;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+import io.github.d_sch.webfluxcached.common.cache.CacheSettings;
+import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import io.github.d_sch.webfluxcached.common.cached.Cached;
+import lombok.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * FluxCacheRegistry
+ *
+ * Caches by name, inspected and invalidated by the {@link FluxCachesEndpoint} and
+ * {@link FluxCacheDump}. Keys of requests are strings, they are converted to the
+ * key type of a cache by the key parser given on registration.
+ *
+ */
+public class FluxCacheRegistry {
+
+    private final ConcurrentNavigableMap<String, Registration<?>> caches = new ConcurrentSkipListMap<>();
+
+    public <K> FluxCacheRegistry register(@NonNull String name, @NonNull FluxCache<K, ?> cache, @NonNull Function<String, K> keyParser) {
+        if (caches.putIfAbsent(name, new Registration<>(cache, keyParser)) != null) {
+            throw new IllegalArgumentException("Cache already registered: " + name);
+        }
+        return this;
+    }
+
+    public FluxCacheRegistry register(@NonNull String name, @NonNull FluxCache<String, ?> cache) {
+        return register(name, cache, Function.identity());
+    }
+
+    public <K> FluxCacheRegistry register(@NonNull String name, @NonNull Cached<K, ?> cached, @NonNull Function<String, K> keyParser) {
+        return register(name, cached.getCache(), keyParser);
+    }
+
+    public FluxCacheRegistry register(@NonNull String name, @NonNull Cached<String, ?> cached) {
+        return register(name, cached.getCache(), Function.identity());
+    }
+
+    public void unregister(@NonNull String name) {
+        caches.remove(name);
+    }
+
+    public NavigableSet<String> getNames() {
+        return caches.keySet();
+    }
+
+    Optional<Registration<?>> find(String name) {
+        return Optional.ofNullable(caches.get(name));
+    }
+
+    record Registration<K>(FluxCache<K, ?> cache, Function<String, K> keyParser) {
+
+        /**
+         * Number of entries removed.
+         */
+        Mono<Long> invalidate(Collection<String> keys) {
+            return cache.invalidate(Flux.fromIterable(keys).map(keyParser))
+                .filter(entry -> !entry.isEmpty())
+                .count();
+        }
+
+        Mono<Void> invalidateAll() {
+            return cache.invalidateAll();
+        }
+
+        Flux<? extends CacheEntry<K, ?>> entries(int limit) {
+            return cache.entries(limit);
+        }
+
+        long estimatedSize() {
+            return cache.estimatedSize();
+        }
+
+        CacheSettings settings() {
+            return cache.getSettings();
+        }
+    }
+}
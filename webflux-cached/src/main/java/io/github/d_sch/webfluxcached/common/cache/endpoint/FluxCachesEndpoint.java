@@ -0,0 +1,119 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.endpoint;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+import io.github.d_sch.webfluxcached.common.cache.CacheSettings;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import lombok.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * FluxCachesEndpoint
+ *
+ * Actuator endpoint of the caches of a {@link FluxCacheRegistry}. Lists every cache
+ * with its size, settings and most recently used keys, invalidates a key, a batch
+ * of keys or all entries of a cache. The id differs from the Spring cache manager
+ * endpoint "caches".
+ *
+ * Complete entries of large caches are streamed by {@link FluxCacheDump} instead.
+ *
+ */
+@Endpoint(id = "fluxcaches")
+public class FluxCachesEndpoint {
+
+    public static final int DEFAULT_TOP_KEY_COUNT = 10;
+
+    private final FluxCacheRegistry registry;
+    private final int topKeyCount;
+
+    public FluxCachesEndpoint(FluxCacheRegistry registry) {
+        this(registry, DEFAULT_TOP_KEY_COUNT);
+    }
+
+    public FluxCachesEndpoint(@NonNull FluxCacheRegistry registry, int topKeyCount) {
+        if (topKeyCount < 0) {
+            throw new IllegalArgumentException("Top key count must not be negative: " + topKeyCount);
+        }
+        this.registry = registry;
+        this.topKeyCount = topKeyCount;
+    }
+
+    public record CacheDescriptor(long size, CacheSettings settings, List<Object> topKeys) {}
+
+    @ReadOperation
+    public Mono<Map<String, CacheDescriptor>> caches() {
+        return Flux.fromIterable(registry.getNames())
+            .concatMap(name -> describe(name).map(descriptor -> Map.entry(name, descriptor)))
+            .collect(LinkedHashMap::new, (caches, entry) -> caches.put(entry.getKey(), entry.getValue()));
+    }
+
+    @ReadOperation
+    public Mono<CacheDescriptor> cache(@Selector String name) {
+        return describe(name);
+    }
+
+    private Mono<CacheDescriptor> describe(String name) {
+        return Mono.justOrEmpty(registry.find(name))
+            .flatMap(registration -> registration.entries(topKeyCount)
+                .map(CacheEntry::getKey)
+                .cast(Object.class)
+                .collectList()
+                .map(topKeys -> new CacheDescriptor(registration.estimatedSize(), registration.settings(), topKeys))
+            );
+    }
+
+    /**
+     * Invalidate one key, emits the number of entries removed.
+     */
+    @DeleteOperation
+    public Mono<Long> invalidateKey(@Selector String name, @Selector String key) {
+        return invalidateKeys(name, List.of(key));
+    }
+
+    /**
+     * Invalidate a batch of keys, emits the number of entries removed.
+     */
+    @WriteOperation
+    public Mono<Long> invalidateKeys(@Selector String name, List<String> keys) {
+        return Mono.justOrEmpty(registry.find(name))
+            .flatMap(registration -> registration.invalidate(keys));
+    }
+
+    /**
+     * Invalidate all entries of the cache, emits the number of entries before.
+     */
+    @DeleteOperation
+    public Mono<Long> invalidateAll(@Selector String name) {
+        return Mono.justOrEmpty(registry.find(name))
+            .flatMap(registration -> {
+                var size = registration.estimatedSize();
+                return registration.invalidateAll()
+                    .thenReturn(size);
+            });
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.hotkey;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HeavyHitters
+ *
+ * Space-Saving summary of the most frequent keys in a fixed number of counters. A key
+ * without counter replaces the key with the minimum count and inherits its count, so
+ * counts overestimate by at most the minimum count.
+ *
+ * Not thread safe, access has to be serialized by the caller.
+ *
+ */
+final class HeavyHitters<K> {
+
+    private final int capacity;
+    private final Map<K, long[]> counters;
+
+    HeavyHitters(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    void add(K key) {
+        var counter = counters.get(key);
+        if (counter != null) {
+            counter[0]++;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(key, new long[] {1});
+            return;
+        }
+        //Replace the minimum, a linear scan of few counters
+        K minimumKey = null;
+        long[] minimum = null;
+        for (var entry : counters.entrySet()) {
+            if (minimum == null || entry.getValue()[0] < minimum[0]) {
+                minimumKey = entry.getKey();
+                minimum = entry.getValue();
+            }
+        }
+        counters.remove(minimumKey);
+        minimum[0]++;
+        counters.put(key, minimum);
+    }
+
+    /**
+     * Keys with their estimated counts, most frequent first.
+     */
+    List<Map.Entry<K, Long>> top(int limit) {
+        var top = new ArrayList<Map.Entry<K, Long>>(counters.size());
+        counters.forEach((key, counter) -> top.add(Map.entry(key, counter[0])));
+        top.sort(Map.Entry.<K, Long>comparingByValue(Comparator.reverseOrder()));
+        return top.size() > limit
+            ? top.subList(0, limit)
+            : top;
+    }
+
+    /**
+     * Halve all counts so the summary follows changes of the workload.
+     */
+    void age() {
+        counters.values().removeIf(counter -> (counter[0] >>>= 1) == 0);
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.hotkey;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.github.d_sch.webfluxcached.common.cache.CacheSettings;
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
+import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import lombok.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * HotKeyFluxCache
+ *
+ * Cache serving reads of hot keys from the {@link HotKeyReplicas} of the calling
+ * thread, other keys are read from the cache. The replicas have to be the removal
+ * listener of the cache map of the cache, e.g.
+ *
+ * <pre>
+ * var replicas = new HotKeyReplicas&lt;K, T&gt;();
+ * var cache = new HotKeyFluxCache&lt;&gt;(
+ *     new FluxCacheImpl&lt;&gt;(loopResources, LRUCacheMap.&lt;K, T&gt;builder()
+ *         .map(new HashMap&lt;&gt;())
+ *         .removalListener(replicas)
+ *         .build()),
+ *     replicas
+ * );
+ * </pre>
+ *
+ * Writes through this cache invalidate the replicas before they are passed on, for
+ * cache maps not notifying replaced values.
+ *
+ */
+public class HotKeyFluxCache<K, T> implements FluxCache<K, T> {
+
+    private final FluxCache<K, T> cache;
+    private final HotKeyReplicas<K, T> replicas;
+    private final Ticker ticker;
+
+    public HotKeyFluxCache(@NonNull FluxCache<K, T> cache, @NonNull HotKeyReplicas<K, T> replicas) {
+        this.cache = cache;
+        this.replicas = replicas;
+        this.ticker = cache.getTicker();
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> get(Flux<K> keys) {
+        return Flux.defer(() -> {
+            //Subscribed on the thread of the caller
+            var replica = replicas.localReplica();
+            //Versions of the keys read from the cache, first read of a key wins
+            var readVersions = new ConcurrentHashMap<K, Long>();
+            return keys
+                .map(key -> {
+                    replicas.record(key);
+                    var entry = replicas.get(replica, key, ticker.read());
+                    if (entry != null) {
+                        return entry;
+                    }
+                    if (replica != null) {
+                        readVersions.putIfAbsent(key, replicas.version(key));
+                    }
+                    return CacheEntry.<K, T>empty(key);
+                })
+                .groupBy(CacheEntry::isEmpty)
+                .flatMap(groupedFlux -> groupedFlux.key()
+                    ? groupedFlux.map(CacheEntry::getKey)
+                        .transform(cache::get)
+                        .doOnNext(entry -> {
+                            var readVersion = readVersions.remove(entry.getKey());
+                            if (readVersion != null) {
+                                replicas.offer(replica, entry, readVersion);
+                            }
+                        })
+                    : groupedFlux
+                );
+        });
+    }
+
+    /**
+     * Replicated keys are answered at once, the others with one get of the cache.
+     */
+    @Override
+    public Mono<List<CacheEntry<K, T>>> getAll(@NonNull Collection<K> keys) {
+        return Mono.defer(() -> {
+            var replica = replicas.localReplica();
+            var entries = new ArrayList<CacheEntry<K, T>>(keys.size());
+            var missing = new ArrayList<K>();
+            var readVersions = new long[keys.size()];
+            var now = ticker.read();
+            for (var key : keys) {
+                replicas.record(key);
+                var entry = replicas.get(replica, key, now);
+                if (entry == null) {
+                    readVersions[entries.size()] = replicas.version(key);
+                    missing.add(key);
+                }
+                entries.add(entry);
+            }
+            if (missing.isEmpty()) {
+                return Mono.just(entries);
+            }
+            return cache.getAll(missing)
+                .map(loaded -> {
+                    var iterator = loaded.iterator();
+                    for (int i = 0; i < entries.size(); i++) {
+                        if (entries.get(i) == null) {
+                            var entry = iterator.next();
+                            replicas.offer(replica, entry, readVersions[i]);
+                            entries.set(i, entry);
+                        }
+                    }
+                    return entries;
+                });
+        });
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> put(Flux<Map.Entry<K, T>> entries) {
+        return entries
+            .doOnNext(entry -> replicas.invalidate(entry.getKey()))
+            .transform(cache::put);
+    }
+
+    @Override
+    public Mono<List<CacheEntry<K, T>>> putAll(@NonNull Collection<? extends Map.Entry<K, T>> entries) {
+        return Mono.defer(() -> {
+            entries.forEach(entry -> replicas.invalidate(entry.getKey()));
+            return cache.putAll(entries);
+        });
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> putTombstones(Flux<K> keys) {
+        return keys
+            .doOnNext(replicas::invalidate)
+            .transform(cache::putTombstones);
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> invalidate(Flux<K> keys) {
+        return keys
+            .doOnNext(replicas::invalidate)
+            .transform(cache::invalidate);
+    }
+
+    @Override
+    public Mono<Void> invalidateAll() {
+        return Mono.fromRunnable(replicas::invalidateAll)
+            .then(cache.invalidateAll());
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> entries(int limit) {
+        return cache.entries(limit);
+    }
+
+    @Override
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    @Override
+    public CacheSettings getSettings() {
+        return cache.getSettings();
+    }
+
+    public HotKeyReplicas<K, T> getReplicas() {
+        return replicas;
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.hotkey;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.github.d_sch.webfluxcached.common.cache.RemovalCause;
+import io.github.d_sch.webfluxcached.common.cache.RemovalListener;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import lombok.NonNull;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * HotKeyReplicas
+ *
+ * Detect the most frequently read keys of a cache and keep copies of their entries per
+ * event loop, read without hopping to the cache thread. Only non blocking threads, see
+ * {@link Schedulers#isInNonBlockingThread()}, get a replica, reads on other threads
+ * always go to the cache. Replicas of terminated threads are dropped on refresh. Reads
+ * are sampled into a buffer per thread, a full buffer is drained into a
+ * {@link HeavyHitters} summary, its top keys are the hot keys. Reads never wait for the
+ * summary, a buffer filled while another thread drains is dropped. The hot keys are
+ * refreshed by the thread draining.
+ *
+ * Replicas are invalidated as removal listener of the owning cache map, on update,
+ * eviction, expiration and invalidation. Set it on the builder of the cache map,
+ * combined with other listeners by {@link RemovalListener#andThen}. Every hot key has
+ * a version changed by its invalidation, an entry read from the cache before is not
+ * replicated. Invalidations of other keys do not affect it.
+ *
+ * Reads served by a replica are not seen by the cache map, a hot key evicted or expired
+ * there is read through the cache once before it is replicated again.
+ *
+ */
+public class HotKeyReplicas<K, T> implements RemovalListener<K, T> {
+
+    public static final int DEFAULT_HOT_KEYS = 16;
+    public static final int DEFAULT_SAMPLE_RATE = 8;
+    public static final int DEFAULT_REFRESH_SAMPLES = 1024;
+
+    private static final int SAMPLE_BUFFER_SIZE = 16;
+
+    private final int maximumHotKeys;
+    private final int sampleRate;
+    private final int refreshSamples;
+
+    private final ThreadLocal<SampleBuffer<K>> sampleBuffer;
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    //Guarded by the drain lock
+    private final HeavyHitters<K> heavyHitters;
+    private int samples;
+
+    private volatile Set<K> hotKeys = Set.of();
+    private volatile List<Map.Entry<K, Long>> hotKeyCounts = List.of();
+
+    private final ThreadLocal<Map<K, CacheEntry<K, T>>> localReplica = new ThreadLocal<>();
+    private final Map<Thread, Map<K, CacheEntry<K, T>>> replicas = new ConcurrentHashMap<>();
+    //Versions of the hot keys only, unique over all keys and times a key was hot
+    private final Map<K, Long> versions = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final LongAdder replicaHits = new LongAdder();
+
+    private volatile MultiGauge hotKeyGauge;
+
+    public HotKeyReplicas() {
+        this(DEFAULT_HOT_KEYS, DEFAULT_SAMPLE_RATE, DEFAULT_REFRESH_SAMPLES);
+    }
+
+    /**
+     * Replicate up to the given number of hot keys. One of sample rate reads is counted,
+     * the hot keys are refreshed and the counts halved every refresh samples.
+     */
+    public HotKeyReplicas(int maximumHotKeys, int sampleRate, int refreshSamples) {
+        if (maximumHotKeys <= 0 || sampleRate <= 0 || refreshSamples <= 0) {
+            throw new IllegalArgumentException("Hot keys, sample rate and refresh samples have to be positive.");
+        }
+        this.maximumHotKeys = maximumHotKeys;
+        this.sampleRate = sampleRate;
+        this.refreshSamples = refreshSamples;
+        //Extra counters keep keys competing for the top positions
+        this.heavyHitters = new HeavyHitters<>(maximumHotKeys * 4);
+        var bufferSize = Math.min(SAMPLE_BUFFER_SIZE, refreshSamples);
+        this.sampleBuffer = ThreadLocal.withInitial(() -> new SampleBuffer<>(bufferSize));
+    }
+
+    /**
+     * Replica of the calling thread, null if not a non blocking thread.
+     */
+    Map<K, CacheEntry<K, T>> localReplica() {
+        var replica = localReplica.get();
+        if (replica == null && Schedulers.isInNonBlockingThread()) {
+            replica = new ConcurrentHashMap<>();
+            localReplica.set(replica);
+            replicas.put(Thread.currentThread(), replica);
+        }
+        return replica;
+    }
+
+    /**
+     * Version of the key to pass to {@link #offer} after reading it from the cache,
+     * negative if the key is not hot.
+     */
+    long version(K key) {
+        var version = versions.get(key);
+        return version != null ? version : -1;
+    }
+
+    /**
+     * Count a read of the key, sampled.
+     */
+    void record(K key) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        var buffer = sampleBuffer.get();
+        if (!buffer.add(key)) {
+            return;
+        }
+        if (drainLock.tryLock()) {
+            try {
+                drain(buffer);
+            } finally {
+                drainLock.unlock();
+            }
+        }
+        buffer.clear();
+    }
+
+    private void drain(SampleBuffer<K> buffer) {
+        for (int i = 0; i < buffer.size; i++) {
+            heavyHitters.add(buffer.keys[i]);
+        }
+        samples += buffer.size;
+        if (samples >= refreshSamples) {
+            samples = 0;
+            refresh();
+        }
+    }
+
+    /**
+     * Entry of a hot key not expired at the reading of the ticker of the cache, null
+     * if not replicated.
+     */
+    CacheEntry<K, T> get(Map<K, CacheEntry<K, T>> replica, K key, long now) {
+        if (replica == null) {
+            return null;
+        }
+        var entry = replica.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isEntryExpired(now) || entry.isValueExpired(now)) {
+            replica.remove(key, entry);
+            return null;
+        }
+        replicaHits.increment();
+        return entry;
+    }
+
+    /**
+     * Replicate the entry read from the cache if its key is hot and was not invalidated
+     * since the read started, i.e. still has the version read before.
+     */
+    void offer(Map<K, CacheEntry<K, T>> replica, CacheEntry<K, T> entry, long readVersion) {
+        if (replica == null || readVersion < 0 || entry.isEmpty() || version(entry.getKey()) != readVersion) {
+            return;
+        }
+        replica.put(entry.getKey(), entry);
+        //Invalidated or no longer hot concurrently, the removal may have missed this replica
+        if (version(entry.getKey()) != readVersion) {
+            replica.remove(entry.getKey(), entry);
+        }
+    }
+
+    /**
+     * Remove the key from the replicas of all threads.
+     */
+    public void invalidate(K key) {
+        if (versions.computeIfPresent(key, (k, version) -> sequence.incrementAndGet()) == null) {
+            //Not hot, not replicated
+            return;
+        }
+        for (var replica : replicas.values()) {
+            replica.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        versions.replaceAll((key, version) -> sequence.incrementAndGet());
+        replicas.values().forEach(Map::clear);
+    }
+
+    @Override
+    public void onRemoval(K key, T value, RemovalCause cause) {
+        invalidate(key);
+    }
+
+    private void refresh() {
+        var top = heavyHitters.top(maximumHotKeys);
+        heavyHitters.age();
+        hotKeyCounts = List.copyOf(top);
+        var keys = Set.copyOf(top.stream().map(Map.Entry::getKey).toList());
+        hotKeys = keys;
+        replicas.keySet().removeIf(thread -> !thread.isAlive());
+        //Keys no longer hot leave the replicas before their versions, not invalidated after
+        for (var replica : replicas.values()) {
+            replica.keySet().retainAll(keys);
+        }
+        versions.keySet().retainAll(keys);
+        for (var key : keys) {
+            versions.computeIfAbsent(key, k -> sequence.incrementAndGet());
+        }
+        var gauge = hotKeyGauge;
+        if (gauge != null) {
+            gauge.register(
+                top.stream()
+                    .map(entry -> MultiGauge.Row.of(Tags.of("key", String.valueOf(entry.getKey())), entry.getValue()))
+                    .toList(),
+                true
+            );
+        }
+    }
+
+    public Set<K> getHotKeys() {
+        return hotKeys;
+    }
+
+    /**
+     * Hot keys with their sampled read counts, halved on every refresh, most frequent first.
+     */
+    public List<Map.Entry<K, Long>> getHotKeyCounts() {
+        return hotKeyCounts;
+    }
+
+    public long getReplicaHitCount() {
+        return replicaHits.sum();
+    }
+
+    /**
+     * Publish the number of hot keys, the reads served by replicas and the sampled read
+     * count of every hot key tagged with the key and the cache name.
+     */
+    public HotKeyReplicas<K, T> bindTo(@NonNull MeterRegistry registry, @NonNull String cacheName) {
+        var tags = Tags.of("cache", cacheName);
+        Gauge.builder("cache.hotkeys", this, replicas -> replicas.getHotKeys().size())
+            .tags(tags)
+            .description("Number of keys replicated per thread")
+            .register(registry);
+        FunctionCounter.builder("cache.hotkeys.hits", replicaHits, LongAdder::sum)
+            .tags(tags)
+            .description("Reads served by hot key replicas")
+            .register(registry);
+        hotKeyGauge = MultiGauge.builder("cache.hotkeys.reads")
+            .tags(tags)
+            .description("Sampled reads of a hot key")
+            .register(registry);
+        return this;
+    }
+
+    //Keys sampled by one thread
+    private static final class SampleBuffer<K> {
+
+        private final K[] keys;
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        SampleBuffer(int capacity) {
+            this.keys = (K[]) new Object[capacity];
+        }
+
+        //Whether the buffer is full
+        boolean add(K key) {
+            keys[size++] = key;
+            return size == keys.length;
+        }
+
+        void clear() {
+            Arrays.fill(keys, 0, size, null);
+            size = 0;
+        }
+    }
+}
@@ -16,15 +16,29 @@
 
 package io.github.d_sch.webfluxcached.common.cache.impl;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 import io.github.d_sch.webfluxcommon.common.SchedulerContext;
 import io.github.d_sch.webfluxcommon.common.ThrowingRunnable;
+import io.github.d_sch.webfluxcached.common.cache.CacheSettings;
 import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import io.github.d_sch.webfluxcached.common.cache.StatsCounter;
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
+import io.github.d_sch.webfluxcached.common.cache.ValueCodec;
 import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheMap;
 import io.github.d_sch.webfluxcached.common.cache.internal.LRUCacheMap;
+import io.github.d_sch.webfluxcached.common.cache.trace.AccessTraceRecorder;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.Disposable;
@@ -33,24 +47,38 @@ import reactor.core.publisher.Mono;
 import reactor.netty.resources.LoopResources;
 
 @Slf4j
-public class FluxCacheImpl<T> implements FluxCache<T> {
+public class FluxCacheImpl<K, T> implements FluxCache<K, T> {
+
+    //Entries copied by one task of entries(limit)
+    static final int ENTRIES_CHUNK_SIZE = 1024;
 
     @NonNull
     private LoopResources loopResources;
 
-    private LRUCacheMap<String, T> cacheMap = 
-            LRUCacheMap.<String, T>builder()
-                .map(new HashMap<>())
-                .entryExpirationChronoUnit(ChronoUnit.SECONDS)
-                .entryExpirationDuration(60)
-                .build();  
+    private CacheMap<K, T> cacheMap;
     
     private SchedulerContext schedulerContext;           
+
+    //Clean ups and queueing delays of cache tasks
+    private final StatsCounter statsCounter;
    
-    private Disposable scheduledCleanUp;
+    private final AtomicBoolean cleanUpScheduled = new AtomicBoolean();
+
+    //Records the keys of gets if set
+    private volatile AccessTraceRecorder<? super K> traceRecorder;
 
     public FluxCacheImpl(LoopResources loopResources) {
+        this(loopResources, defaultCacheMap());
+    }
+
+    public FluxCacheImpl(LoopResources loopResources, @NonNull CacheMap<K, T> cacheMap) {
+        this(loopResources, cacheMap, StatsCounter.disabled());
+    }
+
+    public FluxCacheImpl(LoopResources loopResources, @NonNull CacheMap<K, T> cacheMap, @NonNull StatsCounter statsCounter) {
         this.loopResources = loopResources;
+        this.cacheMap = cacheMap;
+        this.statsCounter = statsCounter;
         //Create SchedulerContext
         //ensure one single event loop is used before and after cache action
         //to serialize cache access
@@ -61,51 +89,274 @@ public class FluxCacheImpl<T> implements FluxCache<T> {
         );
     }
 
+    public static <K, T> LRUCacheMap<K, T> defaultCacheMap() {
+        return LRUCacheMap.<K, T>builder()
+            .map(new HashMap<>())
+            .entryExpirationChronoUnit(ChronoUnit.SECONDS)
+            .entryExpirationDuration(60)
+            .build();
+    }
+
+    /**
+     * Cache map for refresh ahead: values older than refresh after are still returned,
+     * entries not accessed for expire after are removed.
+     */
+    public static <K, T> LRUCacheMap<K, T> refreshAheadCacheMap(@NonNull Duration refreshAfter, @NonNull Duration expireAfter) {
+        return LRUCacheMap.<K, T>builder()
+            .map(new HashMap<>())
+            .valueExpirationChronoUnit(ChronoUnit.NANOS)
+            .valueExpirationDuration(refreshAfter.toNanos())
+            .entryExpirationChronoUnit(ChronoUnit.NANOS)
+            .entryExpirationDuration(expireAfter.toNanos())
+            .cleanUpExpiredValue(false)
+            .build();
+    }
+
     protected void scheduleCleanUp() {
-        if (scheduledCleanUp == null) {
+        //Thread safe cache maps are accessed from any thread
+        if (cleanUpScheduled.compareAndSet(false, true)) {
             log.debug("Schedule cache cleanup.");
-            scheduledCleanUp = this.schedulerContext.getScheduler().createWorker().schedule(ThrowingRunnable.wrap(
+            var scheduledAt = Ticker.system().read();
+            this.schedulerContext.getScheduler().schedule(ThrowingRunnable.wrap(
                 () -> {
-                    log.debug("Run cache cleanup.");                    
-                    cacheMap.cleanUp();
-                    scheduledCleanUp.dispose();
-                    scheduledCleanUp = null;
+                    log.debug("Run cache cleanup.");
+                    var start = Ticker.system().read();
+                    statsCounter.recordQueueingDelay(start - scheduledAt);
+                    //Advances the expiration timer wheel, only expired entries are visited
+                    try {
+                        cacheMap.cleanUp();
+                    } finally {
+                        cleanUpScheduled.set(false);
+                        statsCounter.recordCleanUp(Ticker.system().read() - start);
+                    }
                 })
             );            
         }
     }
 
-    protected Mono<CacheEntry<String, T>> get(String key) {
+    private LRUCacheMap<K, T> snapshotCacheMap() {
+        if (cacheMap instanceof LRUCacheMap<K, T> lruCacheMap) {
+            return lruCacheMap;
+        }
+        throw new UnsupportedOperationException("Snapshots are supported for LRUCacheMap only.");
+    }
+
+    /**
+     * Write a snapshot of the cache to the file, e.g. on shutdown. Entries are copied
+     * in chunks on the cache event loop, encoded and written on a blocking scheduler.
+     * Emits the number of entries written.
+     */
+    public Mono<Long> writeSnapshot(@NonNull Path path, @NonNull ValueCodec<K> keyCodec, @NonNull ValueCodec<T> valueCodec) {
+        return Mono.defer(() -> snapshotCacheMap().writeSnapshot(path, keyCodec, valueCodec, schedulerContext.getScheduler()));
+    }
+
+    /**
+     * Load the entries of a snapshot still alive into the cache. Entries are read and
+     * decoded in chunks on a blocking scheduler, restored on the cache event loop.
+     * Emits the number of entries loaded.
+     */
+    public Mono<Long> readSnapshot(@NonNull Path path, @NonNull ValueCodec<K> keyCodec, @NonNull ValueCodec<T> valueCodec) {
+        return Mono.defer(() -> snapshotCacheMap().readSnapshot(path, keyCodec, valueCodec, schedulerContext.getScheduler()));
+    }
+
+    /**
+     * Write a snapshot periodically until disposed. Failures are logged and retried
+     * with the next interval.
+     */
+    public Disposable scheduleSnapshots(@NonNull Path path, @NonNull ValueCodec<K> keyCodec, @NonNull ValueCodec<T> valueCodec, @NonNull Duration interval) {
+        return Flux.interval(interval, schedulerContext.getScheduler())
+            .concatMap(tick -> writeSnapshot(path, keyCodec, valueCodec)
+                .onErrorResume(throwable -> {
+                    log.warn("Write cache snapshot to {} failed.", path, throwable);
+                    return Mono.empty();
+                })
+            )
+            .subscribe();
+    }
+
+    /**
+     * Record the keys of all gets to an access trace, e.g. to replay the traffic against
+     * other cache configurations. Recording is stopped with null.
+     */
+    public void setTraceRecorder(AccessTraceRecorder<? super K> traceRecorder) {
+        this.traceRecorder = traceRecorder;
+    }
+
+    private void recordAccess(K key) {
+        var recorder = traceRecorder;
+        if (recorder != null) {
+            recorder.record(key);
+        }
+    }
+
+    protected Mono<CacheEntry<K, T>> get(K key) {
         log.debug("Get: Key: {}", key);
+        recordAccess(key);
         scheduleCleanUp();
         return Mono.justOrEmpty(cacheMap.get(key));
     }
 
-    protected Mono<CacheEntry<String, T>> put(String key, T value) {
+    protected Mono<CacheEntry<K, T>> put(K key, T value) {
         log.debug("Put: Key: {}, Value: {}", key, value);
         scheduleCleanUp();
         return Mono.justOrEmpty(cacheMap.put(key, value));
     }
 
-    private Flux<CacheEntry<String, T>> getFromFlux(Flux<String> flux) {
+    protected Mono<CacheEntry<K, T>> putTombstone(K key) {
+        log.debug("Put tombstone: Key: {}", key);
+        scheduleCleanUp();
+        return Mono.justOrEmpty(cacheMap.putTombstone(key));
+    }
+
+    protected Mono<CacheEntry<K, T>> invalidate(K key) {
+        log.debug("Invalidate: Key: {}", key);
+        return Mono.justOrEmpty(cacheMap.invalidate(key));
+    }
+
+    /**
+     * Run the task on the cache thread, unless the cache map is thread safe.
+     */
+    protected <R> Mono<R> onCacheThread(Callable<R> task) {
+        if (cacheMap.isThreadSafe()) {
+            return Mono.fromCallable(task);
+        }
+        return Mono.defer(() -> {
+            var scheduledAt = Ticker.system().read();
+            return Mono.fromCallable(() -> {
+                statsCounter.recordQueueingDelay(Ticker.system().read() - scheduledAt);
+                return task.call();
+            }).subscribeOn(schedulerContext.getScheduler());
+        });
+    }
+
+    private Flux<CacheEntry<K, T>> getFromFlux(Flux<K> flux) {
         return flux
             .flatMap(key -> get(key));
     }
 
-    private Flux<CacheEntry<String, T>> putFromFlux(Flux<Map.Entry<String, T>> flux) {
+    private Flux<CacheEntry<K, T>> putFromFlux(Flux<Map.Entry<K, T>> flux) {
         return flux
             .flatMap(entry -> put(entry.getKey(), entry.getValue()));
     }
 
+    private Flux<CacheEntry<K, T>> putTombstonesFromFlux(Flux<K> flux) {
+        return flux
+            .flatMap(key -> putTombstone(key));
+    }
+
+    private Flux<CacheEntry<K, T>> invalidateFromFlux(Flux<K> flux) {
+        return flux
+            .flatMap(key -> invalidate(key));
+    }
+
     @Override
-    public Flux<CacheEntry<String, T>> get(Flux<String> keys) {
+    public Flux<CacheEntry<K, T>> get(Flux<K> keys) {
+        if (cacheMap.isThreadSafe()) {
+            //No need to serialize access on the cache thread
+            return keys
+                .transform(this::getFromFlux);
+        }
         return keys
             .transform(x -> schedulerContext.transform(x, this::getFromFlux));
     }
 
+    /**
+     * Get the entries of all keys with one task on the cache thread.
+     */
+    @Override
+    public Mono<List<CacheEntry<K, T>>> getAll(@NonNull Collection<K> keys) {
+        return onCacheThread(() -> {
+            log.debug("Get all: Keys: {}", keys);
+            scheduleCleanUp();
+            var entries = new ArrayList<CacheEntry<K, T>>(keys.size());
+            for (var key : keys) {
+                recordAccess(key);
+                entries.add(cacheMap.get(key));
+            }
+            return entries;
+        });
+    }
+
+    /**
+     * Put all entries with one task on the cache thread.
+     */
+    @Override
+    public Mono<List<CacheEntry<K, T>>> putAll(@NonNull Collection<? extends Map.Entry<K, T>> entries) {
+        return onCacheThread(() -> {
+            log.debug("Put all: Entries: {}", entries.size());
+            scheduleCleanUp();
+            var cacheEntries = new ArrayList<CacheEntry<K, T>>(entries.size());
+            for (var entry : entries) {
+                cacheEntries.add(cacheMap.put(entry.getKey(), entry.getValue()));
+            }
+            return cacheEntries;
+        });
+    }
+
     @Override
-    public Flux<CacheEntry<String, T>> put(Flux<Map.Entry<String, T>> entries) {
+    public Flux<CacheEntry<K, T>> put(Flux<Map.Entry<K, T>> entries) {
+        if (cacheMap.isThreadSafe()) {
+            return entries
+                .transform(this::putFromFlux);
+        }
         return entries
             .transform(x -> schedulerContext.transform(x, this::putFromFlux));
     }
+
+    @Override
+    public Flux<CacheEntry<K, T>> putTombstones(Flux<K> keys) {
+        if (cacheMap.isThreadSafe()) {
+            return keys
+                .transform(this::putTombstonesFromFlux);
+        }
+        return keys
+            .transform(x -> schedulerContext.transform(x, this::putTombstonesFromFlux));
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> invalidate(Flux<K> keys) {
+        if (cacheMap.isThreadSafe()) {
+            return keys
+                .transform(this::invalidateFromFlux);
+        }
+        return keys
+            .transform(x -> schedulerContext.transform(x, this::invalidateFromFlux));
+    }
+
+    @Override
+    public Mono<Void> invalidateAll() {
+        return onCacheThread(() -> {
+            log.debug("Invalidate all.");
+            cacheMap.invalidateAll();
+            return true;
+        }).then();
+    }
+
+    /**
+     * The keys are collected with one task on the cache thread, their entries are
+     * copied in chunks by one task each, so a large cache does not block the thread for
+     * long. Entries removed in between are skipped.
+     */
+    @Override
+    public Flux<CacheEntry<K, T>> entries(int limit) {
+        return onCacheThread(() -> cacheMap.keys(limit))
+            .flatMapMany(keys -> Flux.fromIterable(keys).buffer(ENTRIES_CHUNK_SIZE))
+            .concatMap(keys -> onCacheThread(() -> cacheMap.entries(keys)), 1)
+            .flatMapIterable(Function.identity());
+    }
+
+    @Override
+    public long estimatedSize() {
+        return cacheMap.size();
+    }
+
+    @Override
+    public Ticker getTicker() {
+        return cacheMap.getTicker();
+    }
+
+    @Override
+    public CacheSettings getSettings() {
+        return cacheMap.getSettings();
+    }
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.impl;
+
+import io.github.d_sch.webfluxcached.common.cache.ValueCodec;
+import lombok.NonNull;
+import tools.jackson.databind.JavaType;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * JacksonValueCodec
+ *
+ * {@link ValueCodec} writing values as JSON with a Jackson {@link ObjectMapper}.
+ *
+ */
+public class JacksonValueCodec<T> implements ValueCodec<T> {
+
+    private final ObjectMapper objectMapper;
+    private final JavaType valueType;
+
+    public JacksonValueCodec(@NonNull ObjectMapper objectMapper, @NonNull JavaType valueType) {
+        this.objectMapper = objectMapper;
+        this.valueType = valueType;
+    }
+
+    public static <T> JacksonValueCodec<T> of(@NonNull Class<T> valueType) {
+        var objectMapper = new ObjectMapper();
+        return new JacksonValueCodec<>(objectMapper, objectMapper.constructType(valueType));
+    }
+
+    @Override
+    public byte[] encode(T value) {
+        return objectMapper.writeValueAsBytes(value);
+    }
+
+    @Override
+    public T decode(byte[] bytes) {
+        return objectMapper.readValue(bytes, valueType);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.impl;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+import io.github.d_sch.webfluxcached.common.cache.RemovalCause;
+import io.github.d_sch.webfluxcached.common.cache.StatsCounter;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheMap;
+import io.github.d_sch.webfluxcached.common.cache.internal.ConcurrentLRUCacheMap;
+import io.github.d_sch.webfluxcached.common.cache.internal.LRUCacheMap;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.NonNull;
+
+/**
+ * MicrometerStatsCounter
+ *
+ * {@link StatsCounter} publishing Micrometer meters tagged with the cache name.
+ *
+ * Gets and evictions are counted by striped counters, read by the registry when
+ * published. Loads, clean ups and queueing delays are recorded by timers with
+ * percentile histograms.
+ *
+ * One counter is shared by the parts of a cache: the {@link LRUCacheMap} records
+ * gets and evictions, {@link FluxCacheImpl} clean ups and queueing delays and
+ * {@link io.github.d_sch.webfluxcached.common.cached.Cached} loads.
+ *
+ */
+public class MicrometerStatsCounter implements StatsCounter {
+
+    private final MeterRegistry registry;
+    private final Tags tags;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder staleHitCount = new LongAdder();
+    private final Map<RemovalCause, LongAdder> evictionCounts = new EnumMap<>(RemovalCause.class);
+
+    private final Timer loadSuccess;
+    private final Timer loadFailure;
+    private final Timer cleanUp;
+    private final Timer queueingDelay;
+
+    public MicrometerStatsCounter(@NonNull MeterRegistry registry, @NonNull String cacheName) {
+        this.registry = registry;
+        this.tags = Tags.of("cache", cacheName);
+        gets("hit", hitCount);
+        gets("miss", missCount);
+        gets("stale", staleHitCount);
+        for (var cause : RemovalCause.values()) {
+            if (!cause.wasEvicted()) {
+                continue;
+            }
+            var count = new LongAdder();
+            evictionCounts.put(cause, count);
+            FunctionCounter.builder("cache.evictions", count, LongAdder::sum)
+                .tags(tags)
+                .tag("cause", cause.name().toLowerCase())
+                .description("Entries removed from the cache")
+                .register(registry);
+        }
+        this.loadSuccess = timer("cache.loads", "Lookups of missing keys").tag("result", "success").register(registry);
+        this.loadFailure = timer("cache.loads", "Lookups of missing keys").tag("result", "failure").register(registry);
+        this.cleanUp = timer("cache.cleanup", "Removal of expired entries").register(registry);
+        this.queueingDelay = timer("cache.queue.delay", "Time cache tasks waited for the cache thread").register(registry);
+    }
+
+    private void gets(String result, LongAdder count) {
+        FunctionCounter.builder("cache.gets", count, LongAdder::sum)
+            .tags(tags)
+            .tag("result", result)
+            .description("Cache lookups by result")
+            .register(registry);
+    }
+
+    private Timer.Builder timer(String name, String description) {
+        return Timer.builder(name)
+            .tags(tags)
+            .description(description)
+            .publishPercentileHistogram();
+    }
+
+    /**
+     * Publish the number of entries of the cache map, and the weighted size of LRU
+     * cache maps.
+     */
+    public MicrometerStatsCounter monitor(@NonNull CacheMap<?, ?> cacheMap) {
+        Gauge.builder("cache.size", cacheMap, CacheMap::size)
+            .tags(tags)
+            .description("Number of entries in the cache")
+            .register(registry);
+        if (cacheMap instanceof LRUCacheMap<?, ?> lruCacheMap) {
+            weight(lruCacheMap, LRUCacheMap::getWeightedSize);
+        } else if (cacheMap instanceof ConcurrentLRUCacheMap<?, ?> concurrentCacheMap) {
+            weight(concurrentCacheMap, ConcurrentLRUCacheMap::getWeightedSize);
+        }
+        return this;
+    }
+
+    private <M> void weight(M cacheMap, ToDoubleFunction<M> weightedSize) {
+        Gauge.builder("cache.weight", cacheMap, weightedSize)
+            .tags(tags)
+            .description("Estimated total weight of the entries in the cache")
+            .register(registry);
+    }
+
+    @Override
+    public void recordHits(int count) {
+        hitCount.add(count);
+    }
+
+    @Override
+    public void recordMisses(int count) {
+        missCount.add(count);
+    }
+
+    @Override
+    public void recordStaleHits(int count) {
+        staleHitCount.add(count);
+    }
+
+    @Override
+    public void recordEviction(RemovalCause cause) {
+        evictionCounts.get(cause).increment();
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTime) {
+        loadSuccess.record(loadTime, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTime) {
+        loadFailure.record(loadTime, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordCleanUp(long duration) {
+        cleanUp.record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordQueueingDelay(long delay) {
+        queueingDelay.record(delay, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.impl;
+
+import io.github.d_sch.webfluxcached.common.cache.internal.OffHeapCacheMap;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * OffHeapFluxCacheImpl
+ *
+ * {@link FluxCacheImpl} keeping its values serialized outside of the Java heap in an
+ * {@link OffHeapCacheMap}. Caches of several GB do not add to the garbage collected
+ * heap. Dispose the cache to release the off-heap memory.
+ *
+ * The memory is released on the cache thread after the operations queued before,
+ * operations started later fail with an {@link IllegalStateException}.
+ *
+ */
+@Slf4j
+public class OffHeapFluxCacheImpl<K, T> extends FluxCacheImpl<K, T> implements Disposable {
+
+    private final OffHeapCacheMap<K, T> cacheMap;
+
+    private volatile boolean disposed;
+
+    public OffHeapFluxCacheImpl(LoopResources loopResources, @NonNull OffHeapCacheMap<K, T> cacheMap) {
+        super(loopResources, cacheMap);
+        this.cacheMap = cacheMap;
+    }
+
+    @Override
+    public void dispose() {
+        if (disposed) {
+            return;
+        }
+        disposed = true;
+        //Gets, puts and clean ups run on the cache thread, the slabs must not be released under them
+        onCacheThread(() -> {
+            cacheMap.close();
+            return null;
+        }).subscribe(null, throwable -> {
+            //No cache thread left to access the map
+            log.warn("Close off-heap cache map on cache thread failed, closing it on the calling thread.", throwable);
+            cacheMap.close();
+        });
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return disposed;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import io.github.d_sch.webfluxcached.common.cache.CacheSettings;
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
+import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheMap;
+import io.github.d_sch.webfluxcached.common.cache.internal.LRUCacheMap;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * ShardedFluxCacheImpl
+ *
+ * Partition the cache by key hash into independent {@link FluxCacheImpl} shards.
+ *
+ * Every shard owns its own {@link LRUCacheMap}, its own event loop taken from the
+ * server loop group and its own clean up. Access to one shard is serialized on its
+ * event loop, different shards are accessed in parallel.
+ *
+ */
+@Slf4j
+public class ShardedFluxCacheImpl<K, T> implements FluxCache<K, T> {
+
+    private final List<FluxCacheImpl<K, T>> shards;
+
+    public ShardedFluxCacheImpl(LoopResources loopResources, int shardCount) {
+        this(loopResources, shardCount, FluxCacheImpl::defaultCacheMap);
+    }
+
+    public ShardedFluxCacheImpl(@NonNull LoopResources loopResources, int shardCount, @NonNull Supplier<? extends CacheMap<K, T>> cacheMapSupplier) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        this.shards = new ArrayList<>(shardCount);
+        //Every FluxCacheImpl takes the next event loop of the server loop group
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new FluxCacheImpl<>(loopResources, cacheMapSupplier.get()));
+        }
+        log.debug("Created {} cache shards.", shardCount);
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    protected int shardIndex(K key) {
+        //Spread higher bits, the same way HashMap does
+        var hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.size());
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> get(Flux<K> keys) {
+        return keys
+            .groupBy(this::shardIndex)
+            //All shard groups have to be subscribed concurrently
+            .flatMap(group -> shards.get(group.key()).get(group), shards.size());
+    }
+
+    /**
+     * Get the keys of every shard with one bulk get of the shard, the shards are
+     * accessed in parallel. Entries are returned in the order of the keys.
+     */
+    @Override
+    public Mono<List<CacheEntry<K, T>>> getAll(@NonNull Collection<K> keys) {
+        return bulk(keys, key -> key, (shard, shardKeys) -> shard.getAll(shardKeys));
+    }
+
+    @Override
+    public Mono<List<CacheEntry<K, T>>> putAll(@NonNull Collection<? extends Map.Entry<K, T>> entries) {
+        return bulk(entries, Map.Entry::getKey, (shard, shardEntries) -> shard.putAll(shardEntries));
+    }
+
+    private <E> Mono<List<CacheEntry<K, T>>> bulk(
+        Collection<? extends E> elements,
+        Function<E, K> keyOf,
+        BiFunction<FluxCacheImpl<K, T>, List<E>, Mono<List<CacheEntry<K, T>>>> operation
+    ) {
+        var shardIndices = new int[elements.size()];
+        var partitions = new ArrayList<List<E>>(shards.size());
+        for (int index = 0; index < shards.size(); index++) {
+            partitions.add(new ArrayList<>());
+        }
+        var position = 0;
+        for (var element : elements) {
+            var index = shardIndex(keyOf.apply(element));
+            shardIndices[position++] = index;
+            partitions.get(index).add(element);
+        }
+        var results = new AtomicReferenceArray<List<CacheEntry<K, T>>>(shards.size());
+        return Flux.range(0, shards.size())
+            .filter(index -> !partitions.get(index).isEmpty())
+            .flatMap(index -> operation.apply(shards.get(index), partitions.get(index))
+                .doOnNext(entries -> results.set(index, entries)), shards.size())
+            .then(Mono.fromSupplier(() -> {
+                //Every shard returns its entries in the order of its elements
+                var positions = new int[shards.size()];
+                var entries = new ArrayList<CacheEntry<K, T>>(shardIndices.length);
+                for (var index : shardIndices) {
+                    entries.add(results.get(index).get(positions[index]++));
+                }
+                return entries;
+            }));
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> put(Flux<Map.Entry<K, T>> entries) {
+        return entries
+            .groupBy(entry -> shardIndex(entry.getKey()))
+            .flatMap(group -> shards.get(group.key()).put(group), shards.size());
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> putTombstones(Flux<K> keys) {
+        return keys
+            .groupBy(this::shardIndex)
+            .flatMap(group -> shards.get(group.key()).putTombstones(group), shards.size());
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> invalidate(Flux<K> keys) {
+        return keys
+            .groupBy(this::shardIndex)
+            .flatMap(group -> shards.get(group.key()).invalidate(group), shards.size());
+    }
+
+    @Override
+    public Mono<Void> invalidateAll() {
+        return Flux.fromIterable(shards)
+            .flatMap(FluxCacheImpl::invalidateAll, shards.size())
+            .then();
+    }
+
+    /**
+     * Entries of the shards in turn, the n-th most recently used entry of every
+     * shard before the n+1-th.
+     */
+    @Override
+    public Flux<CacheEntry<K, T>> entries(int limit) {
+        return Flux.fromIterable(shards)
+            .flatMapSequential(shard -> shard.entries(limit).collectList(), shards.size())
+            .collectList()
+            .flatMapIterable(shardEntries -> {
+                var entries = new ArrayList<CacheEntry<K, T>>();
+                for (int position = 0; entries.size() < limit; position++) {
+                    var added = false;
+                    for (var shardEntry : shardEntries) {
+                        if (position < shardEntry.size() && entries.size() < limit) {
+                            entries.add(shardEntry.get(position));
+                            added = true;
+                        }
+                    }
+                    if (!added) {
+                        break;
+                    }
+                }
+                return entries;
+            });
+    }
+
+    @Override
+    public long estimatedSize() {
+        return shards.stream()
+            .mapToLong(FluxCacheImpl::estimatedSize)
+            .sum();
+    }
+
+    /**
+     * Settings of the first shard, all shards are created by the same supplier.
+     */
+    @Override
+    public Ticker getTicker() {
+        return shards.get(0).getTicker();
+    }
+
+    @Override
+    public CacheSettings getSettings() {
+        return shards.get(0).getSettings();
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.d_sch.webfluxcached.common.cache.CacheSettings;
+import io.github.d_sch.webfluxcached.common.cache.RemovalCause;
+import io.github.d_sch.webfluxcached.common.cache.RemovalListener;
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * AbstractArrayLRUCacheMap
+ *
+ * LRU order, expiration and eviction of the cache maps storing entries in
+ * {@link AbstractArraySlots}. Subclasses find and add keys, everything else works
+ * on slots and does not touch the keys unless an entry is returned or removed.
+ *
+ * As every access renews the entry expiration by the same duration, the least
+ * recently used entry expires first: clean up removes entries from the head of
+ * the LRU order until the first one not expired. Expired values are removed on get.
+ *
+ */
+@Slf4j
+abstract class AbstractArrayLRUCacheMap<K, T, S extends AbstractArraySlots> implements CacheMap<K, T> {
+
+    private S slots;
+    private long evictionCount;
+
+    abstract S newSlots(int capacity);
+
+    abstract K keyOf(S slots, int slot);
+
+    //Slot of the key without accessing it, NIL if not stored
+    abstract int slotOf(S slots, K key);
+
+    abstract RemovalListener<K, T> removalListener();
+
+    abstract boolean cleansUpExpiredValue();
+
+    public abstract ChronoUnit getValueExpirationChronoUnit();
+
+    public abstract long getValueExpirationDuration();
+
+    public abstract ChronoUnit getEntryExpirationChronoUnit();
+
+    public abstract long getEntryExpirationDuration();
+
+    public abstract long getMaximumSize();
+
+    public abstract int getInitialCapacity();
+
+    public abstract Ticker getTicker();
+
+    final S slots() {
+        if (slots == null) {
+            var capacity = getMaximumSize() == LRUCacheMap.UNBOUNDED
+                ? getInitialCapacity()
+                : (int) Math.min(getInitialCapacity(), getMaximumSize() + 1);
+            slots = newSlots(capacity);
+        }
+        return slots;
+    }
+
+    /**
+     * Renew a slot found for a get and move it to the tail of the LRU order, NIL if
+     * it expired and was removed.
+     */
+    final int access(int slot) {
+        var slots = slots();
+        var now = getTicker().read();
+        if (InternalCacheEntry.isPassed(slots.entryExpiresAt[slot], now)) {
+            remove(slot, RemovalCause.EXPIRED);
+            return AbstractArraySlots.NIL;
+        }
+        slots.entryExpiresAt[slot] = entryDeadline(now);
+        slots.moveToTail(slot);
+        if (cleansUpExpiredValue() && InternalCacheEntry.isPassed(slots.valueExpiresAt[slot], now)) {
+            remove(slot, RemovalCause.EXPIRED);
+            return AbstractArraySlots.NIL;
+        }
+        return slot;
+    }
+
+    final long entryDeadline(long now) {
+        return LRUCacheMap.calculateExpirationTime(now, getEntryExpirationDuration(), getEntryExpirationChronoUnit());
+    }
+
+    final long valueDeadline(long now) {
+        return LRUCacheMap.calculateExpirationTime(now, getValueExpirationDuration(), getValueExpirationChronoUnit());
+    }
+
+    /**
+     * Replace the value of a slot found for a put.
+     */
+    final CacheEntry<K, T> replace(int slot, T value, long now) {
+        var slots = slots();
+        slots.values[slot] = value;
+        slots.entryExpiresAt[slot] = entryDeadline(now);
+        slots.valueExpiresAt[slot] = valueDeadline(now);
+        slots.moveToTail(slot);
+        return entryOf(slot);
+    }
+
+    /**
+     * Entry of a slot added by a put, evicting the least recently used entries beyond
+     * the maximum size.
+     */
+    final CacheEntry<K, T> added(int slot) {
+        var entry = entryOf(slot);
+        var slots = slots();
+        while (getMaximumSize() != LRUCacheMap.UNBOUNDED && slots.size > getMaximumSize()) {
+            evictionCount++;
+            remove(slots.head, RemovalCause.SIZE);
+        }
+        return entry;
+    }
+
+    @SuppressWarnings("unchecked")
+    final void remove(int slot, RemovalCause cause) {
+        var slots = slots();
+        var key = keyOf(slots, slot);
+        var value = (T) slots.values[slot];
+        log.debug("Remove: Key: {} Value: {} Cause: {}", key, value, cause);
+        slots.remove(slot);
+        removalListener().onRemoval(key, value, cause);
+    }
+
+    @SuppressWarnings("unchecked")
+    final CacheEntry<K, T> entryOf(int slot) {
+        var slots = slots();
+        return new ArrayCacheEntry<>(
+            keyOf(slots, slot),
+            (T) slots.values[slot],
+            slots.entryExpiresAt[slot],
+            slots.valueExpiresAt[slot]
+        );
+    }
+
+    /**
+     * Remove a slot found for an invalidation, its entry.
+     */
+    final CacheEntry<K, T> invalidate(int slot) {
+        var entry = entryOf(slot);
+        remove(slot, RemovalCause.EXPLICIT);
+        return entry;
+    }
+
+    @Override
+    public void invalidateAll() {
+        log.debug("Invalidate all.");
+        var slots = slots();
+        while (slots.head != AbstractArraySlots.NIL) {
+            remove(slots.head, RemovalCause.EXPLICIT);
+        }
+    }
+
+    @Override
+    public List<K> keys(int limit) {
+        var slots = slots();
+        var keys = new ArrayList<K>(Math.min(limit, slots.size));
+        for (int slot = slots.tail; slot != AbstractArraySlots.NIL && keys.size() < limit; slot = slots.previous[slot]) {
+            keys.add(keyOf(slots, slot));
+        }
+        return keys;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<CacheEntry<K, T>> entries(List<K> keys) {
+        var slots = slots();
+        var entries = new ArrayList<CacheEntry<K, T>>(keys.size());
+        var now = getTicker().read();
+        var at = Instant.now();
+        for (var key : keys) {
+            var slot = slotOf(slots, key);
+            if (slot == AbstractArraySlots.NIL) {
+                continue;
+            }
+            entries.add(DetachedCacheEntry.of(
+                key, (T) slots.values[slot], slots.entryExpiresAt[slot], slots.valueExpiresAt[slot], now, at
+            ));
+        }
+        return entries;
+    }
+
+    @Override
+    public CacheSettings getSettings() {
+        return CacheSettings.of(
+            getEntryExpirationDuration(), getEntryExpirationChronoUnit(),
+            getValueExpirationDuration(), getValueExpirationChronoUnit(),
+            getMaximumSize(), LRUCacheMap.UNBOUNDED
+        );
+    }
+
+    @Override
+    public void cleanUp() {
+        var slots = slots();
+        var now = getTicker().read();
+        while (slots.head != AbstractArraySlots.NIL && InternalCacheEntry.isPassed(slots.entryExpiresAt[slots.head], now)) {
+            remove(slots.head, RemovalCause.EXPIRED);
+        }
+    }
+
+    @Override
+    public long size() {
+        return slots().size;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.util.Arrays;
+
+/**
+ * AbstractArraySlots
+ *
+ * Storage of the array based cache maps as parallel arrays. An entry is an int slot
+ * into the arrays, the LRU order is a doubly linked list of slot indices and keys are
+ * found through an open addressing hash table with linear probing.
+ *
+ * Subclasses store the keys and compare them, see {@link ArraySlots} and
+ * {@link LongArraySlots}. Released slots are kept in a free list threaded through
+ * the next links. Not thread safe.
+ *
+ */
+abstract class AbstractArraySlots {
+
+    static final int NIL = -1;
+
+    //Previous link of a released slot
+    private static final int FREE = -2;
+
+    //Hash table load factor of at most 1/2
+    private static final int MAXIMUM_CAPACITY = 1 << 29;
+
+    Object[] values;
+    long[] entryExpiresAt;
+    long[] valueExpiresAt;
+    int[] previous;
+    int[] next;
+
+    //Optional long per entry, e.g. the address of a value stored elsewhere
+    long[] handles;
+
+    //Slot index + 1 per bucket, 0 marks an empty bucket
+    int[] table;
+
+    int head = NIL;
+    int tail = NIL;
+    int size;
+
+    private int free = NIL;
+    private int used;
+
+    /**
+     * Resize the keys to the capacity, keeping the keys of the slots in use.
+     */
+    abstract void resizeKeys(int capacity);
+
+    /**
+     * Spread hash of the key of a slot in use.
+     */
+    abstract int hashOf(int slot);
+
+    static int initialCapacity(int capacity) {
+        return Math.max(2, Math.min(capacity, MAXIMUM_CAPACITY));
+    }
+
+    AbstractArraySlots(boolean withHandles) {
+        if (withHandles) {
+            handles = new long[0];
+        }
+    }
+
+    final void allocate(int capacity) {
+        resizeKeys(capacity);
+        values = values == null ? new Object[capacity] : Arrays.copyOf(values, capacity);
+        entryExpiresAt = entryExpiresAt == null ? new long[capacity] : Arrays.copyOf(entryExpiresAt, capacity);
+        valueExpiresAt = valueExpiresAt == null ? new long[capacity] : Arrays.copyOf(valueExpiresAt, capacity);
+        previous = previous == null ? new int[capacity] : Arrays.copyOf(previous, capacity);
+        next = next == null ? new int[capacity] : Arrays.copyOf(next, capacity);
+        handles = handles == null ? null : Arrays.copyOf(handles, capacity);
+        table = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        for (int slot = 0; slot < used; slot++) {
+            if (previous[slot] != FREE) {
+                table[emptyBucket(hashOf(slot))] = slot + 1;
+            }
+        }
+    }
+
+    int capacity() {
+        return values.length;
+    }
+
+    private int emptyBucket(int hash) {
+        var mask = table.length - 1;
+        var bucket = hash & mask;
+        while (table[bucket] != 0) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    private int bucketOf(int slot) {
+        var mask = table.length - 1;
+        var bucket = hashOf(slot) & mask;
+        while (table[bucket] != slot + 1) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    /**
+     * Add an entry as most recently used, the caller stores its key into the slot.
+     */
+    final int insert(int hash, Object value, long entryDeadline, long valueDeadline) {
+        if (free == NIL && used == capacity()) {
+            if (capacity() >= MAXIMUM_CAPACITY) {
+                throw new IllegalStateException("Maximum capacity reached: " + MAXIMUM_CAPACITY);
+            }
+            allocate(capacity() * 2);
+        }
+        int slot;
+        if (free != NIL) {
+            slot = free;
+            free = next[slot];
+        } else {
+            slot = used++;
+        }
+        values[slot] = value;
+        entryExpiresAt[slot] = entryDeadline;
+        valueExpiresAt[slot] = valueDeadline;
+        table[emptyBucket(hash)] = slot + 1;
+        linkLast(slot);
+        size++;
+        return slot;
+    }
+
+    void remove(int slot) {
+        delete(bucketOf(slot));
+        unlink(slot);
+        values[slot] = null;
+        previous[slot] = FREE;
+        next[slot] = free;
+        free = slot;
+        size--;
+    }
+
+    void moveToTail(int slot) {
+        if (slot != tail) {
+            unlink(slot);
+            linkLast(slot);
+        }
+    }
+
+    private void linkLast(int slot) {
+        previous[slot] = tail;
+        next[slot] = NIL;
+        if (tail == NIL) {
+            head = slot;
+        } else {
+            next[tail] = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        var before = previous[slot];
+        var after = next[slot];
+        if (before == NIL) {
+            head = after;
+        } else {
+            next[before] = after;
+        }
+        if (after == NIL) {
+            tail = before;
+        } else {
+            previous[after] = before;
+        }
+    }
+
+    private void delete(int bucket) {
+        //Backward shift deletion, keeps probe sequences intact without tombstones
+        var mask = table.length - 1;
+        table[bucket] = 0;
+        var current = bucket;
+        while (true) {
+            current = (current + 1) & mask;
+            var slot = table[current];
+            if (slot == 0) {
+                return;
+            }
+            var home = hashOf(slot - 1) & mask;
+            if (((current - home) & mask) >= ((current - bucket) & mask)) {
+                table[bucket] = slot;
+                table[current] = 0;
+                bucket = current;
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * ArcEvictionPolicy
+ * 
+ * Adaptive replacement cache: a recency queue of entries used once and a frequency
+ * queue of entries used again. Keys evicted from either queue are remembered in a
+ * ghost list of their queue. A new key found in a ghost list grows the target size
+ * of the queue it was evicted from, victims are taken from the recency queue while
+ * it exceeds its target.
+ * 
+ * Ghost lists hold at most as many keys as entries are queued.
+ * 
+ */
+final class ArcEvictionPolicy<K, T> implements EvictionPolicy<K, T> {
+
+    private final SimpleLinkedQueue<K, T> recent = new SimpleLinkedQueue<>();
+    private final SimpleLinkedQueue<K, T> frequent = new SimpleLinkedQueue<>();
+
+    private final LinkedHashSet<K> recentGhosts = new LinkedHashSet<>();
+    private final LinkedHashSet<K> frequentGhosts = new LinkedHashSet<>();
+
+    private long maximum = Long.MAX_VALUE;
+    private boolean weighted;
+
+    private long recentSize;
+    private long frequentSize;
+    private long count;
+
+    //Target size of the recency queue
+    private long recentTarget;
+
+    @Override
+    public void bind(long maximum, boolean weighted) {
+        this.weighted = weighted;
+        if (maximum != LRUCacheMap.UNBOUNDED) {
+            this.maximum = maximum;
+        }
+    }
+
+    @Override
+    public void onInsert(InternalCacheEntry<K, T> entry) {
+        var key = entry.getKey();
+        count++;
+        if (recentGhosts.contains(key)) {
+            //Evicted too early from the recency queue
+            var delta = recentGhosts.size() >= frequentGhosts.size() ? 1 : frequentGhosts.size() / recentGhosts.size();
+            recentTarget = Math.min(maximum, recentTarget + delta * measure(entry));
+            recentGhosts.remove(key);
+            linkFrequent(entry);
+            return;
+        }
+        if (frequentGhosts.contains(key)) {
+            //Evicted too early from the frequency queue
+            var delta = frequentGhosts.size() >= recentGhosts.size() ? 1 : recentGhosts.size() / frequentGhosts.size();
+            recentTarget = Math.max(0, recentTarget - delta * measure(entry));
+            frequentGhosts.remove(key);
+            linkFrequent(entry);
+            return;
+        }
+        entry.setQueueType(InternalCacheEntry.MAIN);
+        recent.appendLast(entry);
+        recentSize += measure(entry);
+    }
+
+    @Override
+    public void onAccess(InternalCacheEntry<K, T> entry) {
+        if (entry.getQueueType() == InternalCacheEntry.PROTECTED) {
+            frequent.appendLast(entry);
+            return;
+        }
+        recent.remove(entry);
+        recentSize -= measure(entry);
+        linkFrequent(entry);
+    }
+
+    @Override
+    public void onRemove(InternalCacheEntry<K, T> entry) {
+        count--;
+        if (entry.getQueueType() == InternalCacheEntry.PROTECTED) {
+            frequent.remove(entry);
+            frequentSize -= measure(entry);
+        } else {
+            recent.remove(entry);
+            recentSize -= measure(entry);
+        }
+    }
+
+    @Override
+    public void onEvict(InternalCacheEntry<K, T> entry) {
+        var ghosts = entry.getQueueType() == InternalCacheEntry.PROTECTED
+            ? frequentGhosts
+            : recentGhosts;
+        ghosts.add(entry.getKey());
+        while (recentGhosts.size() + frequentGhosts.size() > Math.max(1, count - 1)) {
+            (recentGhosts.size() > frequentGhosts.size() ? recentGhosts : frequentGhosts).removeFirst();
+        }
+    }
+
+    @Override
+    public void onReweigh(InternalCacheEntry<K, T> entry, int previousWeight) {
+        if (!weighted) {
+            return;
+        }
+        if (entry.getQueueType() == InternalCacheEntry.PROTECTED) {
+            frequentSize += entry.getWeight() - previousWeight;
+        } else {
+            recentSize += entry.getWeight() - previousWeight;
+        }
+    }
+
+    @Override
+    public InternalCacheEntry<K, T> victim() {
+        var victim = recentSize > recentTarget || frequent.peekFirst() == null
+            ? recent.peekFirst()
+            : frequent.peekFirst();
+        return victim != null
+            ? victim
+            : frequent.peekFirst();
+    }
+
+    @Override
+    public Iterator<InternalCacheEntry<K, T>> iterator() {
+        return SimpleLinkedQueue.concat(recent.iterator(), frequent.iterator());
+    }
+
+    @Override
+    public Iterator<InternalCacheEntry<K, T>> descendingIterator() {
+        return SimpleLinkedQueue.concat(frequent.descendingIterator(), recent.descendingIterator());
+    }
+
+    private void linkFrequent(InternalCacheEntry<K, T> entry) {
+        entry.setQueueType(InternalCacheEntry.PROTECTED);
+        frequent.appendLast(entry);
+        frequentSize += measure(entry);
+    }
+
+    private long measure(InternalCacheEntry<K, T> entry) {
+        return weighted
+            ? entry.getWeight()
+            : 1;
+    }
+}
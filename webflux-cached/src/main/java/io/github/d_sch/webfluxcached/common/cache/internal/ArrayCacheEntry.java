@@ -0,0 +1,80 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.time.Instant;
+
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Immutable copy of an entry of array backed storage, slots are reused after removal.
+ * Deadlines refer to the ticker of the cache map, see {@link CacheEntryImpl}.
+ */
+@RequiredArgsConstructor
+final class ArrayCacheEntry<K, T> implements CacheEntry<K, T> {
+
+    private final K key;
+    private final T value;
+    private final long entryExpiresAtNanos;
+    private final long valueExpiresAtNanos;
+
+    @Override
+    public K getKey() {
+        return key;
+    }
+
+    @Override
+    public T getValue() {
+        return value;
+    }
+
+    @Override
+    public T setValue(T value) {
+        throw new UnsupportedOperationException("Cache entry is read only.");
+    }
+
+    @Override
+    public Instant getEntryExpiresAt() {
+        return CacheEntryImpl.toInstant(entryExpiresAtNanos, Ticker.system().read(), Instant.now());
+    }
+
+    @Override
+    public Instant getValueExpiresAt() {
+        return CacheEntryImpl.toInstant(valueExpiresAtNanos, Ticker.system().read(), Instant.now());
+    }
+
+    @Override
+    public boolean isEntryExpired() {
+        return isEntryExpired(Ticker.system().read());
+    }
+
+    @Override
+    public boolean isValueExpired() {
+        return isValueExpired(Ticker.system().read());
+    }
+
+    @Override
+    public boolean isEntryExpired(long now) {
+        return InternalCacheEntry.isPassed(entryExpiresAtNanos, now);
+    }
+
+    @Override
+    public boolean isValueExpired(long now) {
+        return InternalCacheEntry.isPassed(valueExpiresAtNanos, now);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.time.temporal.ChronoUnit;
+
+import io.github.d_sch.webfluxcached.common.cache.RemovalListener;
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ArrayLRUCacheMap
+ *
+ * {@link CacheMap} with the expiration and maximum size semantics of {@link LRUCacheMap},
+ * storing entries in parallel arrays instead of one linked entry object and one
+ * hash map node per entry. Suited for caches of many small entries, the overhead
+ * per entry is about 40 bytes compared to about 90 bytes of {@link LRUCacheMap}.
+ *
+ * As every access renews the entry expiration by the same duration, the least
+ * recently used entry expires first: clean up removes entries from the head of
+ * the LRU order until the first one not expired. Expired values are removed on get.
+ * Weights and frequency admission are not supported.
+ *
+ */
+@Builder
+@Slf4j
+public class ArrayLRUCacheMap<K, T> extends AbstractArrayLRUCacheMap<K, T, ArraySlots> {
+
+    @Getter
+    @Default
+    private ChronoUnit valueExpirationChronoUnit = ChronoUnit.FOREVER;
+
+    @Getter
+    @Default
+    private long valueExpirationDuration = 0;
+
+    @Getter
+    @Default
+    private ChronoUnit entryExpirationChronoUnit = ChronoUnit.FOREVER;
+
+    @Getter
+    @Default
+    private long entryExpirationDuration = 0;
+
+    @Default
+    private boolean cleanUpExpiredValue = true;
+
+    @Getter
+    @Default
+    private long maximumSize = LRUCacheMap.UNBOUNDED;
+
+    /**
+     * Number of entries allocated up front, the arrays are doubled when full.
+     */
+    @Getter
+    @Default
+    private int initialCapacity = 16;
+
+    @Default
+    private RemovalListener<K, T> removalListener = RemovalListener.none();
+
+    @Getter
+    @Default
+    private Ticker ticker = Ticker.system();
+
+    @Override
+    ArraySlots newSlots(int capacity) {
+        return new ArraySlots(capacity);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    K keyOf(ArraySlots slots, int slot) {
+        return (K) slots.keys[slot];
+    }
+
+    @Override
+    int slotOf(ArraySlots slots, K key) {
+        return slots.find(key);
+    }
+
+    @Override
+    RemovalListener<K, T> removalListener() {
+        return removalListener;
+    }
+
+    @Override
+    boolean cleansUpExpiredValue() {
+        return cleanUpExpiredValue;
+    }
+
+    @Override
+    public CacheEntry<K, T> get(K key) {
+        log.debug("Get: Key: {}", key);
+        var slot = slots().find(key);
+        if (slot == ArraySlots.NIL) {
+            log.debug("Get Key: {}, Not available", key);
+            return CacheEntry.empty(key);
+        }
+        slot = access(slot);
+        if (slot == ArraySlots.NIL) {
+            log.debug("Get: Key: {}, Expired", key);
+            return CacheEntry.empty(key);
+        }
+        return entryOf(slot);
+    }
+
+    @Override
+    public CacheEntry<K, T> put(@NonNull K key, @NonNull T value) {
+        log.debug("Put: Key: {}, Value: {}", key, value);
+        var slots = slots();
+        var now = ticker.read();
+        var slot = slots.find(key);
+        return slot != ArraySlots.NIL
+            ? replace(slot, value, now)
+            : added(slots.add(key, value, entryDeadline(now), valueDeadline(now)));
+    }
+
+    @Override
+    public CacheEntry<K, T> invalidate(K key) {
+        log.debug("Invalidate: Key: {}", key);
+        var slot = slots().find(key);
+        return slot == ArraySlots.NIL
+            ? CacheEntry.empty(key)
+            : invalidate(slot);
+    }
+}
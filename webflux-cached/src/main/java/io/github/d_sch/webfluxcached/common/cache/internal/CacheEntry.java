@@ -29,6 +29,14 @@ public interface CacheEntry<K, T> extends Map.Entry<K, T> {
         return getValue() == null;
     }
 
+    /**
+     * Tombstone of a key known to have no value, see {@link CacheMap#putTombstone}.
+     * A tombstone is empty as well.
+     */
+    default boolean isAbsent() {
+        return false;
+    }
+
     default boolean isEntryExpired() {
         return Instant.now().isAfter(getEntryExpiresAt());
     }
@@ -37,6 +45,18 @@ public interface CacheEntry<K, T> extends Map.Entry<K, T> {
         return Instant.now().isAfter(getValueExpiresAt());
     }
 
+    /**
+     * Expired at the reading of the ticker of the cache map the entry came from,
+     * see {@link CacheMap#getTicker}. Entries without deadlines check the clock.
+     */
+    default boolean isEntryExpired(long now) {
+        return isEntryExpired();
+    }
+
+    default boolean isValueExpired(long now) {
+        return isValueExpired();
+    }
+
     static <K, T> CacheEntry<K, T> empty(K key) {
         return new CacheEntry<>() {
 
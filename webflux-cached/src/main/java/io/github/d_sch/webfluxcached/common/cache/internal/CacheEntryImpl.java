@@ -18,12 +18,17 @@ package io.github.d_sch.webfluxcached.common.cache.internal;
 
 import java.time.Instant;
 
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
 import lombok.Getter;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 
-@RequiredArgsConstructor
+/**
+ * Expiration is stored as primitive deadlines of the {@link Ticker} of the cache map.
+ * Check them with a reading of that ticker, see {@link #isEntryExpired(long)}. The
+ * methods without reading and the {@link Instant} getters assume the system ticker,
+ * {@link CacheMap#entries} converts with the ticker of the map.
+ */
 public class CacheEntryImpl<K, T> implements InternalCacheEntry<K, T> {
     
     @Getter
@@ -33,34 +38,101 @@ public class CacheEntryImpl<K, T> implements InternalCacheEntry<K, T> {
     @Getter
     @Setter
     InternalCacheEntry<K, T> previous;
+
+    @Getter
+    @Setter
+    InternalCacheEntry<K, T> nextInTime;
+
+    @Getter
+    @Setter
+    InternalCacheEntry<K, T> previousInTime;
     
     CacheEntryImpl() {
-        this.entryExpiresAt = Instant.MAX;
-        this.valueExpiresAt = Instant.MAX;
+        this.entryExpiresAtNanos = NEVER;
+        this.valueExpiresAtNanos = NEVER;
+        this.key = null;
+    }
+
+    CacheEntryImpl(long entryExpiresAtNanos, long valueExpiresAtNanos, @NonNull K key, @NonNull T value) {
+        this.entryExpiresAtNanos = entryExpiresAtNanos;
+        this.valueExpiresAtNanos = valueExpiresAtNanos;
+        this.key = key;
+        this.value = value;
+    }
+
+    //Tombstone of a key without value
+    CacheEntryImpl(long entryExpiresAtNanos, @NonNull K key) {
+        this.entryExpiresAtNanos = entryExpiresAtNanos;
+        this.valueExpiresAtNanos = NEVER;
+        this.key = key;
+        setQueueType(TOMBSTONE);
     }
 
     @Getter
     @Setter
-    @NonNull
-    Instant entryExpiresAt;
+    volatile long entryExpiresAtNanos;
 
     @Getter
     @Setter
-    @NonNull
-    Instant valueExpiresAt;
+    volatile long valueExpiresAtNanos;
+
+    //Weight in the lower 30 bits, queue type in the upper 2 bits
+    int weightAndQueueType;
+
+    final K key;
+
+    volatile T value;
 
-    @NonNull
-    K key;
+    @Override
+    public Instant getEntryExpiresAt() {
+        return toInstant(entryExpiresAtNanos, Ticker.system().read(), Instant.now());
+    }
+
+    @Override
+    public Instant getValueExpiresAt() {
+        return toInstant(valueExpiresAtNanos, Ticker.system().read(), Instant.now());
+    }
 
-    @NonNull
-    T value;
+    //Instant of the deadline, now is a reading of the ticker taken at the instant
+    static Instant toInstant(long deadline, long now, Instant at) {
+        return deadline == NEVER
+            ? Instant.MAX
+            : at.plusNanos(deadline - now);
+    }
 
+    @Override
     public boolean isEntryExpired() {
-        return Instant.now().isAfter(entryExpiresAt);
+        return isEntryExpired(Ticker.system().read());
     }
 
+    @Override
     public boolean isValueExpired() {
-        return Instant.now().isAfter(valueExpiresAt);
+        return isValueExpired(Ticker.system().read());
+    }
+
+    @Override
+    public boolean isAbsent() {
+        return getQueueType() == TOMBSTONE;
+    }
+
+    @Override
+    public int getWeight() {
+        return weightAndQueueType & MAXIMUM_WEIGHT;
+    }
+
+    @Override
+    public void setWeight(int weight) {
+        weightAndQueueType = (weightAndQueueType & ~MAXIMUM_WEIGHT) | weight;
+    }
+
+    @Override
+    public int getQueueType() {
+        return weightAndQueueType >>> 30;
+    }
+
+    @Override
+    public void setQueueType(int queueType) {
+        weightAndQueueType = (queueType << 30) | getWeight();
     }
 
     @Override
@@ -16,80 +16,96 @@
 
 package io.github.d_sch.webfluxcached.common.cache.internal;
 
-import java.util.Iterator;
-
-public abstract class CacheMap<K, T> implements Iterable<InternalCacheEntry<K,T>> {
-       
-    private InternalCacheEntry<K,T> first;
-    private InternalCacheEntry<K,T> last;
-
-    public CacheMap() {
-        this.first = new CacheEntryImpl<K,T>();
-        this.last = new CacheEntryImpl<K,T>();
-        this.first.setNext(this.last);
-        this.last.setPrevious(this.first);
+import java.util.List;
+
+import io.github.d_sch.webfluxcached.common.cache.CacheSettings;
+import io.github.d_sch.webfluxcached.common.cache.RemovalCause;
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
+
+/**
+ * CacheMap
+ * 
+ * Storage used by a FluxCache. Entries are looked up and replaced by key, expired
+ * entries are removed by {@link #cleanUp()}.
+ * 
+ * Implementations are not thread safe unless {@link #isThreadSafe()} says otherwise.
+ * Access to a non thread safe CacheMap has to be serialized by the caller.
+ * 
+ */
+public interface CacheMap<K, T> {
+
+    CacheEntry<K, T> get(K key);
+
+    CacheEntry<K, T> put(K key, T value);
+
+    /**
+     * Record that the key has no value, replacing a current entry. Later gets return the
+     * tombstone, see {@link CacheEntry#isAbsent()}, until it expires.
+     *
+     * Cache maps without negative caching store nothing and return an empty entry.
+     */
+    default CacheEntry<K, T> putTombstone(K key) {
+        return CacheEntry.empty(key);
     }
 
-    protected InternalCacheEntry<K,T> insertFirst(InternalCacheEntry<K,T> entry) {
-        return insertBefore(first.getNext(), entry);
+    /**
+     * Remove the entry of the key, notifying the removal listener with
+     * {@link RemovalCause#EXPLICIT}. Returns the removed entry, an empty entry if
+     * the key is not cached.
+     */
+    default CacheEntry<K, T> invalidate(K key) {
+        throw new UnsupportedOperationException("Invalidation is not supported by " + getClass().getSimpleName());
     }
 
-    protected InternalCacheEntry<K,T> insertBefore(InternalCacheEntry<K, T> next, InternalCacheEntry<K, T> entry) {
-        entry.setPrevious(next.getPrevious());
-        next.setPrevious(entry);
-        entry.setNext(next);
-        return entry;
+    /**
+     * Remove all entries, notifying the removal listener with {@link RemovalCause#EXPLICIT}.
+     */
+    default void invalidateAll() {
+        throw new UnsupportedOperationException("Invalidation is not supported by " + getClass().getSimpleName());
     }
 
-    protected InternalCacheEntry<K,T> insertAfter(InternalCacheEntry<K, T> previous, InternalCacheEntry<K, T> entry) {
-        entry.setNext(previous.getNext());
-        previous.setNext(entry);
-        entry.setPrevious(previous);
-        return entry;
+    /**
+     * Up to limit entries with value from most to least recently used, without
+     * accessing them. Tombstones are not included. Entries are copies with the
+     * expiration instants converted with the ticker of the map.
+     */
+    default List<CacheEntry<K, T>> entries(int limit) {
+        return entries(keys(limit));
     }
 
-    protected InternalCacheEntry<K,T> remove(InternalCacheEntry<K, T> entry) {
-        if (entry.getPrevious() == null) {
-            //first entry
-            first = entry.getNext();
-            first.setPrevious(null);
-        } else if (entry.getNext()   == null) {
-            //last entry
-            last = entry.getPrevious();
-            last.setNext(null);
-        } else {
-            //concat entry
-            entry.getNext().setPrevious(entry.getPrevious());
-            entry.getPrevious().setNext(entry.getNext());
-        }
-        entry.setPrevious(null);
-        entry.setNext(null);
-        return entry;
+    /**
+     * Up to limit keys with value from most to least recently used, to copy their
+     * entries in chunks by {@link #entries(List)}.
+     */
+    default List<K> keys(int limit) {
+        throw new UnsupportedOperationException("Inspection is not supported by " + getClass().getSimpleName());
     }
 
-    protected InternalCacheEntry<K,T> appendLast(InternalCacheEntry<K,T> entry) {
-        return insertAfter(last.getPrevious(), entry);
+    /**
+     * Copies of the entries of the keys still cached with value, in the order of the
+     * keys, without accessing them. See {@link #entries(int)}.
+     */
+    default List<CacheEntry<K, T>> entries(List<K> keys) {
+        throw new UnsupportedOperationException("Inspection is not supported by " + getClass().getSimpleName());
     }
 
-    @Override
-    public Iterator<InternalCacheEntry<K, T>>  iterator() {
-        return new Iterator<InternalCacheEntry<K, T>>() {
-            
-            InternalCacheEntry<K,T> current = first.getNext();
-
-            @Override
-            public boolean hasNext() {
-                return current.getNext() != null;
-            }
-
-            @Override
-            public InternalCacheEntry<K, T> next() {
-                var result = current;
-                current = current.getNext();
-                return result;
-            }
-            
-        };
+    /**
+     * Ticker the deadlines of the entries refer to, check expiration of entries
+     * handed out with its reading, see {@link CacheEntry#isValueExpired(long)}.
+     */
+    default Ticker getTicker() {
+        return Ticker.system();
+    }
+
+    default CacheSettings getSettings() {
+        return CacheSettings.UNKNOWN;
     }
-}
 
+    void cleanUp();
+
+    long size();
+
+    default boolean isThreadSafe() {
+        return false;
+    }
+}
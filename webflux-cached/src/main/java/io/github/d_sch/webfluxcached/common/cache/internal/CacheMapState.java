@@ -0,0 +1,42 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+/**
+ * Mutable bookkeeping of a {@link LRUCacheMap}, kept apart from its builder settings.
+ */
+final class CacheMapState<K, T> {
+    long linkedSize;
+    long weightedSize;
+    long evictionCount;
+    long evictionWeight;
+
+    //W-TinyLFU admission
+    final SimpleLinkedQueue<K, T> window = new SimpleLinkedQueue<>();
+    long windowSize;
+    FrequencySketch<K> sketch;
+
+    //Negative caching
+    final SimpleLinkedQueue<K, T> tombstones = new SimpleLinkedQueue<>();
+    long tombstoneCount;
+
+    //Eviction policy bound to the maximum
+    boolean policyBound;
+
+    //Expiration
+    TimerWheel<K, T> timerWheel;
+}
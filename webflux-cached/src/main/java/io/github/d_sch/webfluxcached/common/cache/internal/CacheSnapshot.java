@@ -0,0 +1,385 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.github.d_sch.webfluxcached.common.cache.ValueCodec;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * CacheSnapshot
+ *
+ * Write the entries of a {@link LRUCacheMap} to a file and load them again, e.g. to
+ * warm up a cache after a restart.
+ *
+ * The file starts with a header of magic number, version and wall clock time of the
+ * write. Entries follow from least to most recently used: remaining entry and value
+ * time to live in nanoseconds, encoded key and encoded value, each prefixed by its
+ * length. The snapshot is written to a temporary file first and moved in place
+ * afterwards, the temporary file is deleted if the write fails. It is read through
+ * a memory mapping, the time passed since the write is deducted from the remaining
+ * time to live and expired entries are skipped.
+ *
+ * Entries are copied from and restored into the cache map in chunks, so the thread
+ * owning the map is never blocked by encoding or file I/O for long, see
+ * {@link #write(LRUCacheMap, Path, ValueCodec, ValueCodec, Scheduler)}.
+ *
+ */
+@Slf4j
+final class CacheSnapshot {
+
+    static final int CHUNK_SIZE = 1024;
+
+    private static final int MAGIC = 0x57464353;
+    private static final int VERSION = 1;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    /**
+     * Key, value and remaining times to live of an entry, detached from the cache map.
+     */
+    record Entry<K, T>(K key, T value, long entryRemaining, long valueRemaining) {}
+
+    private CacheSnapshot() {
+    }
+
+    /**
+     * Write without blocking the owner: entries are copied in chunks on the scheduler
+     * serializing access to the cache map, encoded and written on a blocking scheduler.
+     */
+    static <K, T> Mono<Long> write(LRUCacheMap<K, T> cacheMap, Path path, ValueCodec<K> keyCodec, ValueCodec<T> valueCodec, Scheduler owner) {
+        return Mono.using(
+            () -> new Writer(path),
+            writer -> Mono.fromCallable(() -> chunks(order(cacheMap)))
+                .subscribeOn(owner)
+                .flatMapIterable(chunks -> chunks)
+                .concatMap(chunk -> Mono.fromCallable(() -> copy(cacheMap, chunk))
+                    .subscribeOn(owner)
+                    .publishOn(Schedulers.boundedElastic())
+                    .flatMap(entries -> Mono.fromCallable(() -> writer.write(entries, keyCodec, valueCodec))),
+                    1
+                )
+                .then(Mono.fromCallable(writer::commit)),
+            Writer::close
+        ).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Read without blocking the owner: entries are read and decoded in chunks on a
+     * blocking scheduler and restored on the scheduler serializing access to the
+     * cache map.
+     */
+    static <K, T> Mono<Long> read(LRUCacheMap<K, T> cacheMap, Path path, ValueCodec<K> keyCodec, ValueCodec<T> valueCodec, Scheduler owner) {
+        return Mono.using(
+            () -> new Reader(path),
+            reader -> Flux.<List<Entry<K, T>>>generate(sink -> {
+                    try {
+                        var entries = reader.next(CHUNK_SIZE, keyCodec, valueCodec);
+                        if (entries.isEmpty()) {
+                            sink.complete();
+                        } else {
+                            sink.next(entries);
+                        }
+                    } catch (IOException e) {
+                        sink.error(e);
+                    }
+                })
+                //Requests, and so reading the next chunk, on the blocking scheduler
+                .subscribeOn(Schedulers.boundedElastic())
+                .concatMap(entries -> Mono.fromCallable(() -> restore(cacheMap, entries)).subscribeOn(owner), 1)
+                .reduce(0L, Long::sum)
+                .doOnNext(count -> log.debug("Snapshot: {} entries read from {}", count, path)),
+            Reader::close
+        ).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    static <K, T> long write(LRUCacheMap<K, T> cacheMap, Path path, ValueCodec<K> keyCodec, ValueCodec<T> valueCodec) throws IOException {
+        try (var writer = new Writer(path)) {
+            for (var chunk : chunks(order(cacheMap))) {
+                writer.write(copy(cacheMap, chunk), keyCodec, valueCodec);
+            }
+            return writer.commit();
+        }
+    }
+
+    static <K, T> long read(LRUCacheMap<K, T> cacheMap, Path path, ValueCodec<K> keyCodec, ValueCodec<T> valueCodec) throws IOException {
+        try (var reader = new Reader(path)) {
+            var count = 0L;
+            List<Entry<K, T>> entries;
+            while (!(entries = reader.next(CHUNK_SIZE, keyCodec, valueCodec)).isEmpty()) {
+                count += restore(cacheMap, entries);
+            }
+            log.debug("Snapshot: {} entries read from {}", count, path);
+            return count;
+        }
+    }
+
+    /**
+     * Entries from least to most recently used, called by the owner of the cache map.
+     */
+    private static <K, T> List<InternalCacheEntry<K, T>> order(LRUCacheMap<K, T> cacheMap) {
+        var order = new ArrayList<InternalCacheEntry<K, T>>((int) Math.min(Integer.MAX_VALUE, cacheMap.size()));
+        //Window entries are the most recently used
+        cacheMap.policy().forEach(order::add);
+        cacheMap.state.window.forEach(order::add);
+        return order;
+    }
+
+    private static <E> List<List<E>> chunks(List<E> list) {
+        var chunks = new ArrayList<List<E>>(list.size() / CHUNK_SIZE + 1);
+        for (int i = 0; i < list.size(); i += CHUNK_SIZE) {
+            chunks.add(list.subList(i, Math.min(list.size(), i + CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
+    /**
+     * Copy entries still cached and alive, called by the owner of the cache map.
+     */
+    private static <K, T> List<Entry<K, T>> copy(LRUCacheMap<K, T> cacheMap, List<InternalCacheEntry<K, T>> chunk) {
+        var now = cacheMap.now();
+        var entries = new ArrayList<Entry<K, T>>(chunk.size());
+        for (var entry : chunk) {
+            //Removed or replaced since the order was taken
+            if (cacheMap.map.get(entry.getKey()) != entry || InternalCacheEntry.isPassed(cacheMap.deadline(entry), now)) {
+                continue;
+            }
+            entries.add(new Entry<>(
+                entry.getKey(),
+                entry.getValue(),
+                remaining(entry.getEntryExpiresAtNanos(), now),
+                remaining(entry.getValueExpiresAtNanos(), now)
+            ));
+        }
+        return entries;
+    }
+
+    /**
+     * Put entries alive into the cache map, called by its owner.
+     */
+    private static <K, T> long restore(LRUCacheMap<K, T> cacheMap, List<Entry<K, T>> entries) {
+        var now = cacheMap.now();
+        var count = 0L;
+        for (var entry : entries) {
+            var entryExpiresAt = deadline(entry.entryRemaining(), now);
+            var valueExpiresAt = deadline(entry.valueRemaining(), now);
+            if (InternalCacheEntry.isPassed(entryExpiresAt, now)
+                || (cacheMap.cleanUpExpiredValue && InternalCacheEntry.isPassed(valueExpiresAt, now))) {
+                continue;
+            }
+            cacheMap.restore(entry.key(), entry.value(), entryExpiresAt, valueExpiresAt);
+            count++;
+        }
+        return count;
+    }
+
+    private static long remaining(long deadline, long now) {
+        return deadline == InternalCacheEntry.NEVER
+            ? InternalCacheEntry.NEVER
+            : deadline - now;
+    }
+
+    private static long deadline(long remaining, long now) {
+        if (remaining == InternalCacheEntry.NEVER) {
+            return InternalCacheEntry.NEVER;
+        }
+        if (remaining <= 0) {
+            return now - 1;
+        }
+        var deadline = now + remaining;
+        return deadline == InternalCacheEntry.NEVER
+            ? deadline - 1
+            : deadline;
+    }
+
+    /**
+     * Temporary file moved in place by {@link #commit()}, deleted if closed before.
+     */
+    private static final class Writer implements Closeable {
+
+        private final Path path;
+        private final Path temporary;
+        private final DataOutputStream out;
+        private long count;
+        private boolean committed;
+
+        Writer(Path path) throws IOException {
+            this.path = path;
+            this.temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(System.currentTimeMillis());
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        <K, T> long write(List<Entry<K, T>> entries, ValueCodec<K> keyCodec, ValueCodec<T> valueCodec) throws IOException {
+            for (var entry : entries) {
+                out.writeLong(entry.entryRemaining());
+                out.writeLong(entry.valueRemaining());
+                write(keyCodec.encode(entry.key()));
+                write(valueCodec.encode(entry.value()));
+            }
+            count += entries.size();
+            return entries.size();
+        }
+
+        private void write(byte[] bytes) throws IOException {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        long commit() throws IOException {
+            out.close();
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+            log.debug("Snapshot: {} entries written to {}", count, path);
+            return count;
+        }
+
+        @Override
+        public void close() {
+            if (committed) {
+                return;
+            }
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.debug("Close snapshot {} failed.", temporary, e);
+            }
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException e) {
+                log.warn("Delete incomplete snapshot {} failed.", temporary, e);
+            }
+        }
+    }
+
+    /**
+     * Memory mapped snapshot read chunk by chunk, possibly by different threads.
+     */
+    private static final class Reader implements Closeable {
+
+        private final Path path;
+        private final FileChannel channel;
+        private final Arena arena = Arena.ofShared();
+        private final MemorySegment segment;
+        private final long elapsed;
+        private long offset = 16;
+
+        Reader(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                this.segment = channel.map(MapMode.READ_ONLY, 0, channel.size(), arena);
+                if (segment.byteSize() < 16 || segment.get(INT, 0) != MAGIC) {
+                    throw new IOException("Not a cache snapshot: " + path);
+                }
+                if (segment.get(INT, 4) != VERSION) {
+                    throw new IOException("Unsupported cache snapshot version " + segment.get(INT, 4) + ": " + path);
+                }
+                this.elapsed = TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - segment.get(LONG, 8)));
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * Next entries with their times to live reduced by the time passed since the
+         * write, empty at the end of the file.
+         */
+        <K, T> List<Entry<K, T>> next(int max, ValueCodec<K> keyCodec, ValueCodec<T> valueCodec) throws IOException {
+            var entries = new ArrayList<Entry<K, T>>();
+            try {
+                while (offset < segment.byteSize() && entries.size() < max) {
+                    var entryRemaining = segment.get(LONG, offset);
+                    var valueRemaining = segment.get(LONG, offset + 8);
+                    offset += 16;
+                    var keyBytes = bytes(offset);
+                    offset += 4 + keyBytes.length;
+                    var valueBytes = bytes(offset);
+                    offset += 4 + valueBytes.length;
+                    if (expired(entryRemaining)) {
+                        continue;
+                    }
+                    entries.add(new Entry<>(
+                        keyCodec.decode(keyBytes),
+                        valueCodec.decode(valueBytes),
+                        reduce(entryRemaining),
+                        reduce(valueRemaining)
+                    ));
+                }
+            } catch (IndexOutOfBoundsException e) {
+                throw new IOException("Truncated cache snapshot: " + path, e);
+            }
+            return entries;
+        }
+
+        private boolean expired(long remaining) {
+            return remaining != InternalCacheEntry.NEVER && remaining - elapsed <= 0;
+        }
+
+        private long reduce(long remaining) {
+            if (remaining == InternalCacheEntry.NEVER) {
+                return InternalCacheEntry.NEVER;
+            }
+            return Math.max(0, remaining - elapsed);
+        }
+
+        private byte[] bytes(long offset) {
+            var length = segment.get(INT, offset);
+            return segment.asSlice(offset + 4, length).toArray(ValueLayout.JAVA_BYTE);
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Close snapshot {} failed.", path, e);
+            }
+            arena.close();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.github.d_sch.webfluxcached.common.cache.CacheSettings;
+import io.github.d_sch.webfluxcached.common.cache.RemovalCause;
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * ConcurrentLRUCacheMap
+ *
+ * Thread safe {@link CacheMap} which can be accessed from any thread without
+ * serializing access on a single scheduler.
+ *
+ * Entries are held in a {@link ConcurrentHashMap}. Lookups and updates are applied
+ * to the hash table directly, the LRU order of the wrapped {@link LRUCacheMap} is
+ * maintained afterwards: reads are recorded in a lossy striped buffer, writes in a
+ * lock free queue. Both buffers are replayed in batches by the thread winning the
+ * maintenance lock.
+ *
+ * Entry and value expiration as well as size and weight bounds are the same as
+ * for {@link LRUCacheMap}, eviction is applied by the maintenance and expired
+ * entries are removed by advancing the timer wheel of the wrapped map.
+ *
+ */
+@Slf4j
+public class ConcurrentLRUCacheMap<K, T> implements CacheMap<K, T> {
+
+    private final LRUCacheMap<K, T> policy;
+    private final ConcurrentMap<K, InternalCacheEntry<K, T>> map;
+
+    private final StripedReadBuffer<InternalCacheEntry<K, T>> readBuffer = new StripedReadBuffer<>();
+    private final Queue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    @SuppressWarnings("unchecked")
+    protected ConcurrentLRUCacheMap(@NonNull LRUCacheMap<K, T> policy) {
+        if (!(policy.map instanceof ConcurrentMap)) {
+            throw new IllegalArgumentException("LRUCacheMap has to be backed by a ConcurrentMap.");
+        }
+        this.policy = policy;
+        this.map = (ConcurrentMap<K, InternalCacheEntry<K, T>>) policy.map;
+    }
+
+    /**
+     * Build a thread safe cache map using the expiration settings of the builder.
+     * A map set on the builder is replaced by a {@link ConcurrentHashMap}.
+     */
+    public static <K, T> ConcurrentLRUCacheMap<K, T> of(@NonNull LRUCacheMap.LRUCacheMapBuilder<K, T> builder) {
+        return new ConcurrentLRUCacheMap<>(
+            builder
+                .map(new ConcurrentHashMap<>())
+                .build()
+        );
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public CacheEntry<K, T> get(K key) {
+        log.debug("Get: Key: {}", key);
+        var entry = map.get(key);
+        if (entry == null) {
+            log.debug("Get Key: {}, Not available", key);
+            policy.statsCounter.recordMisses(1);
+            return CacheEntry.empty(key);
+        }
+        var now = policy.now();
+        if (entry.isEntryExpired(now)) {
+            log.debug("Get: Key: {}, Entry expired", key);
+            if (map.remove(key, entry)) {
+                afterWrite(() -> policy.remove(entry, RemovalCause.EXPIRED));
+            }
+            policy.statsCounter.recordMisses(1);
+            return CacheEntry.empty(key);
+        }
+        if (entry.isValueExpired(now)) {
+            log.debug("Get: Key: {}, Entry value expired", key);
+            if (policy.cleanUpExpiredValue) {
+                if (map.remove(key, entry)) {
+                    afterWrite(() -> policy.remove(entry, RemovalCause.EXPIRED));
+                }
+                policy.statsCounter.recordMisses(1);
+                return CacheEntry.empty(key);
+            }
+            policy.statsCounter.recordStaleHits(1);
+        } else {
+            policy.statsCounter.recordHits(1);
+        }
+        afterRead(policy.renew(entry));
+        return entry;
+    }
+
+    @Override
+    public CacheEntry<K, T> put(K key, T value) {
+        log.debug("Put: Key: {}, Value: {}", key, value);
+        var added = new boolean[1];
+        var replaced = new AtomicReference<T>();
+        var entry = map.compute(key, (k, current) -> {
+            if (current == null) {
+                added[0] = true;
+                return policy.newEntry(k, value);
+            }
+            replaced.set(current.getValue());
+            return policy.renew(current, value);
+        });
+        if (added[0]) {
+            //Link only if not replaced or removed meanwhile
+            afterWrite(() -> {
+                if (map.get(key) == entry) {
+                    policy.link(entry);
+                    policy.evict();
+                }
+            });
+        } else {
+            afterWrite(() -> {
+                policy.onAccess(policy.reweigh(entry));
+                policy.evict();
+                policy.onReplaced(key, replaced.get());
+            });
+        }
+        return entry;
+    }
+
+    @Override
+    public CacheEntry<K, T> invalidate(K key) {
+        log.debug("Invalidate: Key: {}", key);
+        var entry = map.remove(key);
+        if (entry == null) {
+            return CacheEntry.empty(key);
+        }
+        afterWrite(() -> policy.remove(entry, RemovalCause.EXPLICIT));
+        return entry;
+    }
+
+    @Override
+    public void invalidateAll() {
+        log.debug("Invalidate all.");
+        for (var key : map.keySet()) {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * Keys in the LRU order of the last maintenance, pending reads and writes
+     * are applied first.
+     */
+    @Override
+    public List<K> keys(int limit) {
+        evictionLock.lock();
+        try {
+            maintenance();
+            return policy.keys(limit);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public List<CacheEntry<K, T>> entries(List<K> keys) {
+        evictionLock.lock();
+        try {
+            return policy.entries(keys);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public Ticker getTicker() {
+        return policy.getTicker();
+    }
+
+    @Override
+    public CacheSettings getSettings() {
+        return policy.getSettings();
+    }
+
+    @Override
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+            policy.cleanUp();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public long size() {
+        return map.size();
+    }
+
+    public long getWeightedSize() {
+        return policy.getWeightedSize();
+    }
+
+    public long getEvictionCount() {
+        return policy.getEvictionCount();
+    }
+
+    public long getEvictionWeight() {
+        return policy.getEvictionWeight();
+    }
+
+    private void afterRead(InternalCacheEntry<K, T> entry) {
+        if (readBuffer.offer(entry) == StripedReadBuffer.Result.FULL) {
+            tryMaintenance();
+        }
+    }
+
+    private void afterWrite(Runnable task) {
+        writeBuffer.offer(task);
+        tryMaintenance();
+    }
+
+    private void tryMaintenance() {
+        //Retry while writes are pending, they may have been added by a thread failing to get the lock
+        do {
+            if (!evictionLock.tryLock()) {
+                return;
+            }
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        } while (!writeBuffer.isEmpty());
+    }
+
+    private void maintenance() {
+        readBuffer.drainTo(policy::onAccess);
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.time.Instant;
+
+/**
+ * Immutable copy of an entry handed out for inspection, see {@link CacheMap#entries}.
+ * The cache map converts the deadlines with its ticker, expiration is checked against
+ * the clock.
+ */
+record DetachedCacheEntry<K, T>(K key, T value, Instant entryExpiresAt, Instant valueExpiresAt) implements CacheEntry<K, T> {
+
+    //Deadlines of the ticker of the cache map, now is its reading taken at the instant
+    static <K, T> CacheEntry<K, T> of(K key, T value, long entryExpiresAtNanos, long valueExpiresAtNanos, long now, Instant at) {
+        return new DetachedCacheEntry<>(
+            key,
+            value,
+            CacheEntryImpl.toInstant(entryExpiresAtNanos, now, at),
+            CacheEntryImpl.toInstant(valueExpiresAtNanos, now, at)
+        );
+    }
+
+    @Override
+    public K getKey() {
+        return key;
+    }
+
+    @Override
+    public T getValue() {
+        return value;
+    }
+
+    @Override
+    public T setValue(T value) {
+        throw new UnsupportedOperationException("Cache entry is read only.");
+    }
+
+    @Override
+    public Instant getEntryExpiresAt() {
+        return entryExpiresAt;
+    }
+
+    @Override
+    public Instant getValueExpiresAt() {
+        return valueExpiresAt;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.util.Iterator;
+
+/**
+ * EvictionPolicy
+ * 
+ * Order of the entries of the main queue of a {@link LRUCacheMap}: where new entries
+ * are queued, how an access promotes an entry and which entry is evicted next. The
+ * admission window and the tombstones are kept apart from the policy.
+ * 
+ * Sizes are measured in the unit of the maximum of the cache map, the weight of an
+ * entry if bounded by weight, one per entry otherwise. An instance holds the order of
+ * one cache map and must not be shared. Not thread safe, access is serialized by the
+ * cache map.
+ * 
+ */
+public interface EvictionPolicy<K, T> extends Iterable<InternalCacheEntry<K, T>> {
+
+    /**
+     * Called once before the first entry is queued, maximum may be {@link LRUCacheMap#UNBOUNDED}.
+     */
+    default void bind(long maximum, boolean weighted) {
+    }
+
+    /**
+     * Queue a new entry.
+     */
+    void onInsert(InternalCacheEntry<K, T> entry);
+
+    /**
+     * Promote an entry on read or update.
+     */
+    void onAccess(InternalCacheEntry<K, T> entry);
+
+    /**
+     * Dequeue an entry evicted, expired or invalidated.
+     */
+    void onRemove(InternalCacheEntry<K, T> entry);
+
+    /**
+     * Called before the victim is removed if it is evicted to bound the cache.
+     */
+    default void onEvict(InternalCacheEntry<K, T> entry) {
+    }
+
+    /**
+     * Account the changed weight of a queued entry.
+     */
+    default void onReweigh(InternalCacheEntry<K, T> entry, int previousWeight) {
+    }
+
+    /**
+     * Entry to evict next, null if no entry is queued.
+     */
+    InternalCacheEntry<K, T> victim();
+
+    /**
+     * Iterate from the next victim to the entry evicted last.
+     */
+    @Override
+    Iterator<InternalCacheEntry<K, T>> iterator();
+
+    /**
+     * Iterate from the entry evicted last to the next victim.
+     */
+    Iterator<InternalCacheEntry<K, T>> descendingIterator();
+
+    /**
+     * Least recently used entry is evicted first.
+     */
+    static <K, T> EvictionPolicy<K, T> lru() {
+        return new LruEvictionPolicy<>();
+    }
+
+    /**
+     * Segmented LRU with 80 % of the maximum for the protected segment.
+     */
+    static <K, T> EvictionPolicy<K, T> segmentedLru() {
+        return new SegmentedLruEvictionPolicy<>(0.8);
+    }
+
+    /**
+     * Segmented LRU: new entries are queued in a probation segment, entries accessed
+     * again are promoted to a protected segment taking the given share of the maximum.
+     * Entries overflowing the protected segment are demoted to probation, victims are
+     * taken from probation first.
+     */
+    static <K, T> EvictionPolicy<K, T> segmentedLru(double protectedRatio) {
+        if (protectedRatio < 0 || protectedRatio > 1) {
+            throw new IllegalArgumentException("Invalid protected ratio: " + protectedRatio);
+        }
+        return new SegmentedLruEvictionPolicy<>(protectedRatio);
+    }
+
+    /**
+     * Adaptive replacement cache: entries used once and entries used again are queued
+     * apart, ghost lists of recently evicted keys adapt the target size of both queues
+     * to the workload.
+     */
+    static <K, T> EvictionPolicy<K, T> arc() {
+        return new ArcEvictionPolicy<>();
+    }
+}
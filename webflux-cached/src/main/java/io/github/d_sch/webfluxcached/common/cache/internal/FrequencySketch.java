@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ *
+ * Derived from the FrequencySketch of Caffeine, https://github.com/ben-manes/caffeine,
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ * Licensed under the Apache License, Version 2.0.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+/**
+ * FrequencySketch
+ * 
+ * Count-min sketch estimating how often a key was used, with four 4-bit counters
+ * per key. All counters are halved after a sample period, so the popularity of keys
+ * ages and the estimate follows changes of the workload.
+ * 
+ * Not thread safe, access has to be serialized by the caller.
+ * 
+ */
+final class FrequencySketch<K> {
+
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MAXIMUM_TABLE_SIZE = 1 << 22;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(long maximum) {
+        var tableSize = (int) Math.min(MAXIMUM_TABLE_SIZE, Math.max(16, maximum));
+        this.table = new long[Integer.highestOneBit(tableSize - 1) << 1];
+        this.tableMask = table.length - 1;
+        this.sampleSize = 10 * table.length;
+    }
+
+    int frequency(K key) {
+        var hash = spread(key.hashCode());
+        var start = (hash & 3) << 2;
+        var frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            var index = indexOf(hash, i);
+            var count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(K key) {
+        var hash = spread(key.hashCode());
+        var start = (hash & 3) << 2;
+        var added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        var offset = counter << 2;
+        var mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Halve all counters, the size is corrected for the truncated odd counters.
+     */
+    private void reset() {
+        var odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(int hash, int depth) {
+        var index = (hash + SEEDS[depth]) * SEEDS[depth];
+        index += index >>> 32;
+        return (int) index & tableMask;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
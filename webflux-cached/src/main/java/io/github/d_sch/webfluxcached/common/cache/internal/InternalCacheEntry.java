@@ -16,15 +16,59 @@
 
 package io.github.d_sch.webfluxcached.common.cache.internal;
 
-import java.time.Instant;
+public interface InternalCacheEntry<K, T> extends CacheEntry<K, T> {
 
-interface InternalCacheEntry<K, T> extends CacheEntry<K, T> {
-    void setEntryExpiresAt(Instant entryExpiresAt);
-    void setValueExpiresAt(Instant valueExpiresAt);
+    int MAXIMUM_WEIGHT = (1 << 30) - 1;
+
+    //Queue types, a LRUCacheMap keeps entries in its main queue or its admission window,
+    //tombstones of absent keys in a queue of their own. An eviction policy splitting the
+    //main queue keeps entries used again in its protected segment.
+    int MAIN = 0;
+    int WINDOW = 1;
+    int TOMBSTONE = 2;
+    int PROTECTED = 3;
+
+    //Deadline of an entry not expiring
+    long NEVER = Long.MAX_VALUE;
+
+    //Deadlines in nanoseconds of the Ticker of the cache map
+    long getEntryExpiresAtNanos();
+    void setEntryExpiresAtNanos(long entryExpiresAtNanos);
+
+    long getValueExpiresAtNanos();
+    void setValueExpiresAtNanos(long valueExpiresAtNanos);
+
+    @Override
+    default boolean isEntryExpired(long now) {
+        return isPassed(getEntryExpiresAtNanos(), now);
+    }
+
+    @Override
+    default boolean isValueExpired(long now) {
+        return isPassed(getValueExpiresAtNanos(), now);
+    }
+
+    //Compare the difference, ticker readings may overflow
+    static boolean isPassed(long deadline, long now) {
+        return deadline != NEVER && now - deadline > 0;
+    }
+
+    int getWeight();
+    void setWeight(int weight);
+
+    int getQueueType();
+    void setQueueType(int queueType);
 
     InternalCacheEntry<K, T> getNext();
     void setNext(InternalCacheEntry<K, T> next);
     
     InternalCacheEntry<K, T> getPrevious();
     void setPrevious(InternalCacheEntry<K, T> previous);
+
+    //Links of the timer wheel bucket
+    InternalCacheEntry<K, T> getNextInTime();
+    void setNextInTime(InternalCacheEntry<K, T> nextInTime);
+
+    InternalCacheEntry<K, T> getPreviousInTime();
+    void setPreviousInTime(InternalCacheEntry<K, T> previousInTime);
 }
\ No newline at end of file
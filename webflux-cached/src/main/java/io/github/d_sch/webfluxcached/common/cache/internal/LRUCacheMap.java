@@ -16,9 +16,21 @@
 
 package io.github.d_sch.webfluxcached.common.cache.internal;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+
+import io.github.d_sch.webfluxcached.common.cache.CacheSettings;
+import io.github.d_sch.webfluxcached.common.cache.RemovalCause;
+import io.github.d_sch.webfluxcached.common.cache.RemovalListener;
+import io.github.d_sch.webfluxcached.common.cache.StatsCounter;
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
+import io.github.d_sch.webfluxcached.common.cache.ValueCodec;
+import io.github.d_sch.webfluxcached.common.cache.Weigher;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -26,15 +38,25 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.Builder.Default;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 @RequiredArgsConstructor
 @AllArgsConstructor
 @Builder
 @Slf4j
-public class LRUCacheMap<K, T> {
+public class LRUCacheMap<K, T> implements CacheMap<K, T> {
+
+    public static final long UNBOUNDED = -1;
 
-    @Builder.Default
-    SimpleLinkedQueue<K, T> queue = new SimpleLinkedQueue<>();
+    /**
+     * Order of the main queue, e.g. {@link EvictionPolicy#segmentedLru()} or
+     * {@link EvictionPolicy#arc()} for workloads mixing recency and frequency. An
+     * instance must not be shared by cache maps.
+     */
+    @Getter
+    @Default
+    EvictionPolicy<K, T> evictionPolicy = EvictionPolicy.lru();
 
     @Getter
     @Default
@@ -61,25 +83,109 @@ public class LRUCacheMap<K, T> {
     private long cacheCleanupDuration = 0;
 
     @NonNull
-    private Map<K, InternalCacheEntry<K, T>> map;
+    Map<K, InternalCacheEntry<K, T>> map;
 
     @Default
-    private boolean cleanUpExpiredValue = true;
+    boolean cleanUpExpiredValue = true;
 
-    protected InternalCacheEntry<K, T> putNew(K key, T value) {
-        var entry = queue.appendLast(
-            new CacheEntryImpl<>(
-                    entryExpirationChronoUnit.equals(ChronoUnit.FOREVER) 
-                        ? Instant.MAX 
-                        : Instant.now().plus(entryExpirationDuration, entryExpirationChronoUnit),
-                    valueExpirationChronoUnit.equals(ChronoUnit.FOREVER) 
-                        ? Instant.MAX
-                        : Instant.now().plus(valueExpirationDuration, valueExpirationChronoUnit),
-                    key, 
-                    value
-                )
+    /**
+     * Maximum number of entries, the least recently used entries are evicted on insert.
+     */
+    @Getter
+    @Default
+    private long maximumSize = UNBOUNDED;
+
+    /**
+     * Maximum total weight of all entries as calculated by the {@link #weigher}.
+     */
+    @Getter
+    @Default
+    private long maximumWeight = UNBOUNDED;
+
+    @Default
+    private Weigher<K, T> weigher = Weigher.singleton();
+
+    @Default
+    private RemovalListener<K, T> removalListener = RemovalListener.none();
+
+    /**
+     * W-TinyLFU admission of a bounded cache: new entries enter a small admission
+     * window. Entries leaving the window are admitted to the main queue only if they
+     * are used more frequently than the least recently used entry they replace.
+     */
+    @Getter
+    @Default
+    private boolean frequencyAdmission = false;
+
+    /**
+     * Share of the maximum size or weight used for the admission window.
+     */
+    @Getter
+    @Default
+    private double admissionWindowRatio = 0.01;
+
+    /**
+     * Time source of expiration, a coarse ticker avoids reading the clock on every access.
+     */
+    @Getter
+    @Default
+    private Ticker ticker = Ticker.system();
+
+    /**
+     * Statistics of gets and evictions.
+     */
+    @Getter
+    @Default
+    StatsCounter statsCounter = StatsCounter.disabled();
+
+    /**
+     * Maximum number of tombstones of keys known to have no value, the least recently
+     * used tombstones are removed on insert. Tombstones are bounded on their own and
+     * do not count towards the maximum size or weight. Negative caching is disabled
+     * with the default of zero.
+     */
+    @Getter
+    @Default
+    private long maximumTombstones = 0;
+
+    @Getter
+    @Default
+    private ChronoUnit tombstoneExpirationChronoUnit = ChronoUnit.FOREVER;
+
+    @Getter
+    @Default
+    private long tombstoneExpirationDuration = 0;
+
+    final CacheMapState<K, T> state = new CacheMapState<>();
+
+    protected InternalCacheEntry<K, T> newEntry(K key, T value) {
+        var now = ticker.read();
+        return new CacheEntryImpl<>(
+            calculateExpirationTime(now, entryExpirationDuration, entryExpirationChronoUnit),
+            calculateExpirationTime(now, valueExpirationDuration, valueExpirationChronoUnit),
+            key, 
+            value
         );
+    }
+
+    /**
+     * Add an entry with the given deadlines as most recently used, replacing a current entry.
+     */
+    protected InternalCacheEntry<K, T> restore(K key, T value, long entryExpiresAt, long valueExpiresAt) {
+        var current = map.get(key);
+        if (current != null) {
+            remove(current);
+        }
+        var entry = link(new CacheEntryImpl<>(entryExpiresAt, valueExpiresAt, key, value));
+        map.put(key, entry);
+        evict();
+        return entry;
+    }
+
+    protected InternalCacheEntry<K, T> putNew(K key, T value) {
+        var entry = link(newEntry(key, value));
         map.put(key, entry);
+        evict();
         return entry;
     }
 
@@ -89,53 +195,410 @@ public class LRUCacheMap<K, T> {
             : instant.plus(duration, chronoUnit);
     }
 
+    /**
+     * Deadline in ticker nanoseconds, {@link InternalCacheEntry#NEVER} for durations
+     * beyond the range of the ticker.
+     */
+    public static long calculateExpirationTime(long now, long duration, ChronoUnit chronoUnit) {
+        if (chronoUnit.equals(ChronoUnit.FOREVER)) {
+            return InternalCacheEntry.NEVER;
+        }
+        long nanos;
+        try {
+            nanos = Math.multiplyExact(duration, chronoUnit.getDuration().toNanos());
+        } catch (ArithmeticException e) {
+            return InternalCacheEntry.NEVER;
+        }
+        //Deadlines are compared by difference, half of the range is usable
+        if (nanos >= Long.MAX_VALUE >>> 1) {
+            return InternalCacheEntry.NEVER;
+        }
+        var deadline = now + nanos;
+        return deadline == InternalCacheEntry.NEVER
+            ? deadline - 1
+            : deadline;
+    }
+
+    protected InternalCacheEntry<K, T> renew(InternalCacheEntry<K, T> entry) {
+        entry.setEntryExpiresAtNanos(calculateExpirationTime(ticker.read(), entryExpirationDuration, entryExpirationChronoUnit));
+        return entry;
+    }
+
+    protected InternalCacheEntry<K, T> renew(InternalCacheEntry<K, T> entry, T value) {
+        var now = ticker.read();
+        entry.setValueExpiresAtNanos(calculateExpirationTime(now, valueExpirationDuration, valueExpirationChronoUnit));
+        entry.setValue(value);
+        entry.setEntryExpiresAtNanos(calculateExpirationTime(now, entryExpirationDuration, entryExpirationChronoUnit));
+        return entry;
+    }
+
     protected InternalCacheEntry<K, T> touch(InternalCacheEntry<K, T> entry) {
-        entry.setEntryExpiresAt(calculateExpirationTime(Instant.now(), entryExpirationDuration, entryExpirationChronoUnit));
-        return queue.appendLast(entry);
+        return onAccess(renew(entry));
     }
 
     protected InternalCacheEntry<K, T> update(InternalCacheEntry<K, T> entry, T value) {
-        entry.setValueExpiresAt(calculateExpirationTime(Instant.now(), valueExpirationDuration, valueExpirationChronoUnit));
-        entry.setValue(value);
-        return this.touch(entry);
+        onAccess(reweigh(renew(entry, value)));
+        evict();
+        return entry;
+    }
+
+    /**
+     * Record the access, move the entry to the end of its queue and reschedule its expiration.
+     */
+    protected InternalCacheEntry<K, T> onAccess(InternalCacheEntry<K, T> entry) {
+        if (isAdmissionEnabled() && !entry.isAbsent()) {
+            sketch().increment(entry.getKey());
+        }
+        if (isLinked(entry)) {
+            switch (entry.getQueueType()) {
+                case InternalCacheEntry.WINDOW -> state.window.appendLast(entry);
+                case InternalCacheEntry.TOMBSTONE -> state.tombstones.appendLast(entry);
+                default -> policy().onAccess(entry);
+            }
+            timerWheel().schedule(entry, deadline(entry));
+        }
+        return entry;
     }
 
     protected InternalCacheEntry<K, T> remove(InternalCacheEntry<K, T> entry) {
-        queue.remove(entry);
-        return map.remove(entry.getKey());
+        unlink(entry);
+        map.remove(entry.getKey(), entry);
+        return entry;
+    }
+
+    protected InternalCacheEntry<K, T> remove(InternalCacheEntry<K, T> entry, RemovalCause cause) {
+        remove(entry);
+        if (!entry.isAbsent()) {
+            if (cause.wasEvicted()) {
+                statsCounter.recordEviction(cause);
+            }
+            removalListener.onRemoval(entry.getKey(), entry.getValue(), cause);
+        }
+        return entry;
     }
 
+    protected void onReplaced(K key, T value) {
+        removalListener.onRemoval(key, value, RemovalCause.REPLACED);
+    }
+
+    protected int weigh(InternalCacheEntry<K, T> entry) {
+        var weight = weigher.weigh(entry.getKey(), entry.getValue());
+        if (weight < 0 || weight > InternalCacheEntry.MAXIMUM_WEIGHT) {
+            throw new IllegalArgumentException("Invalid weight " + weight + " for key: " + entry.getKey());
+        }
+        return weight;
+    }
+
+    protected TimerWheel<K, T> timerWheel() {
+        if (state.timerWheel == null) {
+            state.timerWheel = new TimerWheel<>(this, now());
+        }
+        return state.timerWheel;
+    }
+
+    protected long now() {
+        return ticker.read();
+    }
+
+    /**
+     * Time the entry has to be removed at: on entry expiration, or on value expiration
+     * if expired values are cleaned up.
+     */
+    protected long deadline(InternalCacheEntry<K, T> entry) {
+        var deadline = entry.getEntryExpiresAtNanos();
+        if (!cleanUpExpiredValue || entry.getValueExpiresAtNanos() == InternalCacheEntry.NEVER) {
+            return deadline;
+        }
+        return deadline == InternalCacheEntry.NEVER || entry.getValueExpiresAtNanos() - deadline < 0
+            ? entry.getValueExpiresAtNanos()
+            : deadline;
+    }
+
+    /**
+     * Remove the entry if its deadline has passed. Returns false if the entry is still
+     * cached and has to be scheduled again.
+     */
+    protected boolean expire(InternalCacheEntry<K, T> entry, long now) {
+        if (!isLinked(entry)) {
+            return true;
+        }
+        if (!InternalCacheEntry.isPassed(deadline(entry), now)) {
+            return false;
+        }
+        //Entry may have been renewed concurrently
+        var expired = new boolean[1];
+        map.computeIfPresent(entry.getKey(), (key, current) -> {
+            if (current == entry && InternalCacheEntry.isPassed(deadline(current), now)) {
+                expired[0] = true;
+                return null;
+            }
+            return current;
+        });
+        if (!expired[0]) {
+            return false;
+        }
+        log.debug("Expire: Key: {} Value: {}", entry.getKey(), entry.getValue());
+        remove(entry, RemovalCause.EXPIRED);
+        return true;
+    }
+
+    protected boolean isAdmissionEnabled() {
+        return frequencyAdmission && (maximumSize != UNBOUNDED || maximumWeight != UNBOUNDED);
+    }
+
+    protected static boolean isLinked(InternalCacheEntry<?, ?> entry) {
+        return entry.getPrevious() != null;
+    }
+
+    protected EvictionPolicy<K, T> policy() {
+        if (!state.policyBound) {
+            evictionPolicy.bind(maximumWeight != UNBOUNDED ? maximumWeight : maximumSize, maximumWeight != UNBOUNDED);
+            state.policyBound = true;
+        }
+        return evictionPolicy;
+    }
+
+    protected FrequencySketch<K> sketch() {
+        if (state.sketch == null) {
+            state.sketch = new FrequencySketch<>(maximumSize != UNBOUNDED ? maximumSize : maximumWeight);
+        }
+        return state.sketch;
+    }
+
+    /**
+     * Size of an entry in the unit of the maximum used for the admission window.
+     */
+    protected long measure(InternalCacheEntry<K, T> entry) {
+        return maximumWeight != UNBOUNDED
+            ? entry.getWeight()
+            : 1;
+    }
+
+    protected long windowMaximum() {
+        var maximum = maximumWeight != UNBOUNDED
+            ? maximumWeight
+            : maximumSize;
+        return Math.max(1, (long) (maximum * admissionWindowRatio));
+    }
+
+    /**
+     * Queue the entry as most recently used, schedule its expiration and account its weight.
+     */
+    protected InternalCacheEntry<K, T> link(InternalCacheEntry<K, T> entry) {
+        entry.setWeight(weigh(entry));
+        state.weightedSize += entry.getWeight();
+        state.linkedSize++;
+        timerWheel().schedule(entry, deadline(entry));
+        if (isAdmissionEnabled()) {
+            sketch().increment(entry.getKey());
+            entry.setQueueType(InternalCacheEntry.WINDOW);
+            state.windowSize += measure(entry);
+            return state.window.appendLast(entry);
+        }
+        policy().onInsert(entry);
+        return entry;
+    }
+
+    protected InternalCacheEntry<K, T> reweigh(InternalCacheEntry<K, T> entry) {
+        if (isLinked(entry)) {
+            var before = measure(entry);
+            var previousWeight = entry.getWeight();
+            var weight = weigh(entry);
+            state.weightedSize += weight - previousWeight;
+            entry.setWeight(weight);
+            if (entry.getQueueType() == InternalCacheEntry.WINDOW) {
+                state.windowSize += measure(entry) - before;
+            } else {
+                policy().onReweigh(entry, previousWeight);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Queue the tombstone as most recently used and schedule its expiration.
+     */
+    protected InternalCacheEntry<K, T> linkTombstone(InternalCacheEntry<K, T> tombstone) {
+        state.tombstoneCount++;
+        timerWheel().schedule(tombstone, deadline(tombstone));
+        return state.tombstones.appendLast(tombstone);
+    }
+
+    protected InternalCacheEntry<K, T> unlink(InternalCacheEntry<K, T> entry) {
+        if (isLinked(entry)) {
+            switch (entry.getQueueType()) {
+                case InternalCacheEntry.TOMBSTONE -> {
+                    state.tombstoneCount--;
+                    state.tombstones.remove(entry);
+                }
+                case InternalCacheEntry.WINDOW -> {
+                    state.windowSize -= measure(entry);
+                    state.window.remove(entry);
+                }
+                default -> policy().onRemove(entry);
+            }
+            if (!entry.isAbsent()) {
+                state.weightedSize -= entry.getWeight();
+                state.linkedSize--;
+            }
+            timerWheel().deschedule(entry);
+        }
+        return entry;
+    }
+
+    protected boolean isOverCapacity() {
+        return (maximumSize != UNBOUNDED && state.linkedSize > maximumSize)
+            || (maximumWeight != UNBOUNDED && state.weightedSize > maximumWeight);
+    }
+
+    /**
+     * Evict the victims of the eviction policy until the cache is within its bounds.
+     */
+    protected void evict() {
+        if (isAdmissionEnabled()) {
+            evictFromWindow();
+        }
+        while (isOverCapacity()) {
+            var victim = policy().victim();
+            if (victim == null) {
+                victim = state.window.peekFirst();
+            }
+            if (victim == null) {
+                break;
+            }
+            evict(victim);
+        }
+    }
+
+    /**
+     * Move entries overflowing the admission window to the main queue. If the cache is
+     * full a candidate competes with the victim of the eviction policy, the less
+     * frequently used one is evicted.
+     */
+    protected void evictFromWindow() {
+        while (state.windowSize > windowMaximum()) {
+            var candidate = state.window.peekFirst();
+            state.window.remove(candidate);
+            state.windowSize -= measure(candidate);
+            policy().onInsert(candidate);
+            while (isOverCapacity()) {
+                var victim = policy().victim();
+                if (victim == candidate || !admit(candidate.getKey(), victim.getKey())) {
+                    evict(candidate);
+                    break;
+                }
+                evict(victim);
+            }
+        }
+    }
+
+    /**
+     * Remove least recently used tombstones until their number is within its bound.
+     */
+    protected void evictTombstones() {
+        while (maximumTombstones != UNBOUNDED && state.tombstoneCount > maximumTombstones) {
+            var tombstone = state.tombstones.peekFirst();
+            log.debug("Evict tombstone: Key: {}", tombstone.getKey());
+            remove(tombstone);
+        }
+    }
+
+    protected boolean admit(K candidateKey, K victimKey) {
+        return sketch().frequency(candidateKey) > sketch().frequency(victimKey);
+    }
+
+    private void evict(InternalCacheEntry<K, T> victim) {
+        log.debug("Evict: Key: {} Value: {}", victim.getKey(), victim.getValue());
+        state.evictionCount++;
+        state.evictionWeight += victim.getWeight();
+        if (victim.getQueueType() != InternalCacheEntry.WINDOW) {
+            policy().onEvict(victim);
+        }
+        remove(victim, RemovalCause.SIZE);
+    }
+
+    /**
+     * Number of entries with value, tombstones are not included.
+     */
+    @Override
+    public long size() {
+        return map.size() - state.tombstoneCount;
+    }
+
+    public long getTombstoneCount() {
+        return state.tombstoneCount;
+    }
+
+    public long getWeightedSize() {
+        return state.weightedSize;
+    }
+
+    public long getEvictionCount() {
+        return state.evictionCount;
+    }
+
+    public long getEvictionWeight() {
+        return state.evictionWeight;
+    }
+
+    @Override
     public CacheEntry<K, T> get(K key) {
         log.debug("Get: Key: {}", key);
         //Lookup in map
         if (map.containsKey(key)) {
             var entry = map.get(key);
+            var now = ticker.read();
+            //Entry may have expired before the timer wheel has been advanced
+            if (entry.isEntryExpired(now)) {
+                log.debug("Get: Key: {}, Entry expired", entry.getKey());
+                remove(entry, RemovalCause.EXPIRED);
+                statsCounter.recordMisses(1);
+                return CacheEntry.empty(key);
+            }
+            if (entry.isAbsent()) {
+                //Tombstones expire after write, an access does not renew them
+                log.debug("Get: Key: {}, Absent", key);
+                statsCounter.recordHits(1);
+                return onAccess(entry);
+            }
             entry = this.touch(entry);
             //Check value expiration
-            if (!entry.isValueExpired()) {
+            if (!entry.isValueExpired(now)) {
                 log.debug("Get: Key: {}, Return value: {}", entry.getKey(), entry.getValue());
+                statsCounter.recordHits(1);
                 return entry;
             } else {
                 log.debug("Get: Key: {}, Entry value expired", entry.getKey());
                 if (cleanUpExpiredValue) {
-                    remove(entry);
+                    remove(entry, RemovalCause.EXPIRED);
+                    statsCounter.recordMisses(1);
                     return CacheEntry.empty(key);
                 }
+                statsCounter.recordStaleHits(1);
                 return entry;
             }
         }
-        log.debug("Get Key: {}, Not available");
+        log.debug("Get Key: {}, Not available", key);
+        statsCounter.recordMisses(1);
         return CacheEntry.empty(key);
     }
 
+    @Override
     public CacheEntry<K, T> put(K key, T value) {
         log.debug("Put: Key: {}, Value: {}", key, value);
         //Lookup in map
         if (map.containsKey(key)) {
-            var entry = map.get(key);                
+            var entry = map.get(key);
+            if (entry.isAbsent()) {
+                log.debug("Put: Key: {}, Value: {}, Replacing tombstone", key, value);
+                remove(entry);
+                return putNew(key, value);
+            }
             log.debug("Put: Key: {}, Value: {}, Replacing current entry value: {}", key, value, entry.getValue());
+            var replaced = entry.getValue();
             //Update entry
             update(entry, value);
+            onReplaced(key, replaced);
             return entry;
         } else {
             //New entry
@@ -144,18 +607,129 @@ public class LRUCacheMap<K, T> {
         }
     }
 
-    public void cleanUp() {
-        var iterator = queue.iterator();
-        while (iterator.hasNext()) {
-            var entry = iterator.next();
-            if (entry.isEntryExpired()) {
-                log.debug("Clean up: Key: {} Value: {}", entry.getKey(), entry.getValue());
-                remove(entry);
-            } else {
-                break;
+    @Override
+    public CacheEntry<K, T> putTombstone(K key) {
+        log.debug("Put tombstone: Key: {}", key);
+        if (maximumTombstones == 0) {
+            return CacheEntry.empty(key);
+        }
+        var current = map.get(key);
+        if (current != null) {
+            remove(current);
+            if (!current.isAbsent()) {
+                onReplaced(key, current.getValue());
             }
         }
+        var tombstone = linkTombstone(new CacheEntryImpl<>(
+            calculateExpirationTime(ticker.read(), tombstoneExpirationDuration, tombstoneExpirationChronoUnit),
+            key
+        ));
+        map.put(key, tombstone);
+        evictTombstones();
+        return tombstone;
     }
 
-}
+    @Override
+    public CacheEntry<K, T> invalidate(K key) {
+        log.debug("Invalidate: Key: {}", key);
+        var entry = map.get(key);
+        if (entry == null) {
+            return CacheEntry.empty(key);
+        }
+        //Tombstones are removed without notification
+        remove(entry, RemovalCause.EXPLICIT);
+        return entry.isAbsent()
+            ? CacheEntry.empty(key)
+            : entry;
+    }
+
+    @Override
+    public void invalidateAll() {
+        log.debug("Invalidate all.");
+        for (var entry : List.copyOf(map.values())) {
+            remove(entry, RemovalCause.EXPLICIT);
+        }
+    }
+
+    /**
+     * Keys of the admission window come first, they were added most recently.
+     */
+    @Override
+    public List<K> keys(int limit) {
+        var keys = new ArrayList<K>((int) Math.min(limit, state.linkedSize));
+        var iterator = SimpleLinkedQueue.concat(state.window.descendingIterator(), policy().descendingIterator());
+        while (iterator.hasNext() && keys.size() < limit) {
+            keys.add(iterator.next().getKey());
+        }
+        return keys;
+    }
+
+    @Override
+    public List<CacheEntry<K, T>> entries(List<K> keys) {
+        var entries = new ArrayList<CacheEntry<K, T>>(keys.size());
+        var now = ticker.read();
+        var at = Instant.now();
+        for (var key : keys) {
+            var entry = map.get(key);
+            if (entry == null || entry.isAbsent()) {
+                continue;
+            }
+            entries.add(DetachedCacheEntry.of(
+                key, entry.getValue(), entry.getEntryExpiresAtNanos(), entry.getValueExpiresAtNanos(), now, at
+            ));
+        }
+        return entries;
+    }
+
+    @Override
+    public CacheSettings getSettings() {
+        return CacheSettings.of(
+            entryExpirationDuration, entryExpirationChronoUnit,
+            valueExpirationDuration, valueExpirationChronoUnit,
+            maximumSize, maximumWeight
+        );
+    }
 
+    /**
+     * Write all entries not expired with their remaining time to live to the file,
+     * from least to most recently used. Returns the number of entries written.
+     */
+    public long writeSnapshot(Path path, ValueCodec<K> keyCodec, ValueCodec<T> valueCodec) throws IOException {
+        return CacheSnapshot.write(this, path, keyCodec, valueCodec);
+    }
+
+    /**
+     * Load the entries of a snapshot still alive, keeping their order of use.
+     * Returns the number of entries loaded.
+     */
+    public long readSnapshot(Path path, ValueCodec<K> keyCodec, ValueCodec<T> valueCodec) throws IOException {
+        return CacheSnapshot.read(this, path, keyCodec, valueCodec);
+    }
+
+    /**
+     * {@link #writeSnapshot(Path, ValueCodec, ValueCodec)} copying the entries in chunks
+     * on the scheduler serializing access to this map, encoding and writing them on a
+     * blocking scheduler.
+     */
+    public Mono<Long> writeSnapshot(Path path, ValueCodec<K> keyCodec, ValueCodec<T> valueCodec, Scheduler owner) {
+        return CacheSnapshot.write(this, path, keyCodec, valueCodec, owner);
+    }
+
+    /**
+     * {@link #readSnapshot(Path, ValueCodec, ValueCodec)} reading and decoding the entries
+     * in chunks on a blocking scheduler, restoring them on the scheduler serializing
+     * access to this map.
+     */
+    public Mono<Long> readSnapshot(Path path, ValueCodec<K> keyCodec, ValueCodec<T> valueCodec, Scheduler owner) {
+        return CacheSnapshot.read(this, path, keyCodec, valueCodec, owner);
+    }
+
+    /**
+     * Advance the timer wheel, removing all entries expired by now.
+     */
+    @Override
+    public void cleanUp() {
+        timerWheel().advance(now());
+    }
+
+}
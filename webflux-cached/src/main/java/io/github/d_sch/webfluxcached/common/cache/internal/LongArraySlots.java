@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.util.Arrays;
+
+/**
+ * LongArraySlots
+ *
+ * {@link AbstractArraySlots} with primitive long keys: keys are stored in a long
+ * array and compared without boxing. Storage of a {@link LongLRUCacheMap}.
+ *
+ * Not thread safe.
+ *
+ */
+final class LongArraySlots extends AbstractArraySlots {
+
+    long[] keys;
+
+    LongArraySlots(int capacity) {
+        super(false);
+        allocate(initialCapacity(capacity));
+    }
+
+    @Override
+    void resizeKeys(int capacity) {
+        keys = keys == null ? new long[capacity] : Arrays.copyOf(keys, capacity);
+    }
+
+    @Override
+    int hashOf(int slot) {
+        return spread(keys[slot]);
+    }
+
+    private static int spread(long key) {
+        var hash = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    int find(long key) {
+        var mask = table.length - 1;
+        var bucket = spread(key) & mask;
+        int slot;
+        while ((slot = table[bucket]) != 0) {
+            if (keys[slot - 1] == key) {
+                return slot - 1;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+        return NIL;
+    }
+
+    /**
+     * Add a key not contained yet as most recently used.
+     */
+    int add(long key, Object value, long entryDeadline, long valueDeadline) {
+        var slot = insert(spread(key), value, entryDeadline, valueDeadline);
+        keys[slot] = key;
+        return slot;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.time.temporal.ChronoUnit;
+
+import io.github.d_sch.webfluxcached.common.cache.RemovalListener;
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * LongLRUCacheMap
+ *
+ * {@link ArrayLRUCacheMap} specialized for primitive long keys, e.g. database ids.
+ * Keys are stored in an open addressing hash table over a long array: neither keys
+ * nor hash map nodes are boxed. {@link #get(long)}, {@link #getIfPresent(long)} and
+ * {@link #put(long, Object)} take the key as primitive, the {@link CacheMap} methods
+ * unbox it. LRU order, expiration and eviction are shared with {@link ArrayLRUCacheMap}.
+ *
+ */
+@Builder
+@Slf4j
+public class LongLRUCacheMap<T> extends AbstractArrayLRUCacheMap<Long, T, LongArraySlots> {
+
+    @Getter
+    @Default
+    private ChronoUnit valueExpirationChronoUnit = ChronoUnit.FOREVER;
+
+    @Getter
+    @Default
+    private long valueExpirationDuration = 0;
+
+    @Getter
+    @Default
+    private ChronoUnit entryExpirationChronoUnit = ChronoUnit.FOREVER;
+
+    @Getter
+    @Default
+    private long entryExpirationDuration = 0;
+
+    @Default
+    private boolean cleanUpExpiredValue = true;
+
+    @Getter
+    @Default
+    private long maximumSize = LRUCacheMap.UNBOUNDED;
+
+    /**
+     * Number of entries allocated up front, the arrays are doubled when full.
+     */
+    @Getter
+    @Default
+    private int initialCapacity = 16;
+
+    @Default
+    private RemovalListener<Long, T> removalListener = RemovalListener.none();
+
+    @Getter
+    @Default
+    private Ticker ticker = Ticker.system();
+
+    @Override
+    LongArraySlots newSlots(int capacity) {
+        return new LongArraySlots(capacity);
+    }
+
+    @Override
+    Long keyOf(LongArraySlots slots, int slot) {
+        return slots.keys[slot];
+    }
+
+    @Override
+    int slotOf(LongArraySlots slots, Long key) {
+        return slots.find(key.longValue());
+    }
+
+    @Override
+    RemovalListener<Long, T> removalListener() {
+        return removalListener;
+    }
+
+    @Override
+    boolean cleansUpExpiredValue() {
+        return cleanUpExpiredValue;
+    }
+
+    @Override
+    public CacheEntry<Long, T> get(@NonNull Long key) {
+        return get(key.longValue());
+    }
+
+    public CacheEntry<Long, T> get(long key) {
+        var slot = find(key);
+        return slot == LongArraySlots.NIL
+            ? CacheEntry.empty(key)
+            : entryOf(slot);
+    }
+
+    /**
+     * Value of the key, null if not cached. Does not allocate.
+     */
+    @SuppressWarnings("unchecked")
+    public T getIfPresent(long key) {
+        var slot = find(key);
+        return slot == LongArraySlots.NIL
+            ? null
+            : (T) slots().values[slot];
+    }
+
+    /**
+     * Slot of the key not expired, renewed and moved to the tail of the LRU order.
+     */
+    private int find(long key) {
+        //Logging boxes the key
+        if (log.isDebugEnabled()) {
+            log.debug("Get: Key: {}", key);
+        }
+        var slot = slots().find(key);
+        return slot == LongArraySlots.NIL
+            ? LongArraySlots.NIL
+            : access(slot);
+    }
+
+    @Override
+    public CacheEntry<Long, T> put(@NonNull Long key, T value) {
+        return put(key.longValue(), value);
+    }
+
+    public CacheEntry<Long, T> put(long key, @NonNull T value) {
+        if (log.isDebugEnabled()) {
+            log.debug("Put: Key: {}, Value: {}", key, value);
+        }
+        var slots = slots();
+        var now = ticker.read();
+        var slot = slots.find(key);
+        return slot != LongArraySlots.NIL
+            ? replace(slot, value, now)
+            : added(slots.add(key, value, entryDeadline(now), valueDeadline(now)));
+    }
+
+    @Override
+    public CacheEntry<Long, T> invalidate(Long key) {
+        log.debug("Invalidate: Key: {}", key);
+        var slot = slots().find(key);
+        return slot == LongArraySlots.NIL
+            ? CacheEntry.empty(key)
+            : invalidate(slot);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.util.Iterator;
+
+/**
+ * LruEvictionPolicy
+ * 
+ * One queue ordered by recency, the least recently used entry is evicted first.
+ * 
+ */
+final class LruEvictionPolicy<K, T> implements EvictionPolicy<K, T> {
+
+    private final SimpleLinkedQueue<K, T> queue = new SimpleLinkedQueue<>();
+
+    @Override
+    public void onInsert(InternalCacheEntry<K, T> entry) {
+        entry.setQueueType(InternalCacheEntry.MAIN);
+        queue.appendLast(entry);
+    }
+
+    @Override
+    public void onAccess(InternalCacheEntry<K, T> entry) {
+        queue.appendLast(entry);
+    }
+
+    @Override
+    public void onRemove(InternalCacheEntry<K, T> entry) {
+        queue.remove(entry);
+    }
+
+    @Override
+    public InternalCacheEntry<K, T> victim() {
+        return queue.peekFirst();
+    }
+
+    @Override
+    public Iterator<InternalCacheEntry<K, T>> iterator() {
+        return queue.iterator();
+    }
+
+    @Override
+    public Iterator<InternalCacheEntry<K, T>> descendingIterator() {
+        return queue.descendingIterator();
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.d_sch.webfluxcached.common.cache.CacheSettings;
+import io.github.d_sch.webfluxcached.common.cache.RemovalCause;
+import io.github.d_sch.webfluxcached.common.cache.RemovalListener;
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
+import io.github.d_sch.webfluxcached.common.cache.ValueCodec;
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * OffHeapCacheMap
+ *
+ * {@link CacheMap} keeping values serialized outside of the Java heap. Values are
+ * encoded by a {@link ValueCodec} into memory reserved by a {@link SlabAllocator},
+ * the heap only holds the keys, the expiration deadlines and the LRU order in the
+ * parallel arrays of {@link ArrayLRUCacheMap}.
+ *
+ * The off-heap memory is bounded by the maximum capacity, least recently used
+ * entries are evicted until a new value fits. Values are decoded on every get.
+ * The memory is released by {@link #close()}, on the thread accessing the map. Every
+ * operation but clean up fails afterwards.
+ *
+ */
+@Builder
+@Slf4j
+public class OffHeapCacheMap<K, T> implements CacheMap<K, T>, AutoCloseable {
+
+    @NonNull
+    private ValueCodec<T> codec;
+
+    /**
+     * Maximum off-heap memory in bytes.
+     */
+    @Getter
+    @Default
+    private long maximumCapacity = 256L << 20;
+
+    /**
+     * Size of the off-heap memory reserved at once, a power of two. Limits the
+     * maximum size of an encoded value.
+     */
+    @Getter
+    @Default
+    private int slabSize = 16 << 20;
+
+    @Getter
+    @Default
+    private ChronoUnit valueExpirationChronoUnit = ChronoUnit.FOREVER;
+
+    @Getter
+    @Default
+    private long valueExpirationDuration = 0;
+
+    @Getter
+    @Default
+    private ChronoUnit entryExpirationChronoUnit = ChronoUnit.FOREVER;
+
+    @Getter
+    @Default
+    private long entryExpirationDuration = 0;
+
+    @Default
+    private boolean cleanUpExpiredValue = true;
+
+    @Getter
+    @Default
+    private long maximumSize = LRUCacheMap.UNBOUNDED;
+
+    @Getter
+    @Default
+    private int initialCapacity = 16;
+
+    @Default
+    private RemovalListener<K, T> removalListener = RemovalListener.none();
+
+    @Getter
+    @Default
+    private Ticker ticker = Ticker.system();
+
+    private final State state = new State();
+
+    private static final class State {
+        ArraySlots slots;
+        SlabAllocator allocator;
+        long evictionCount;
+        boolean closed;
+    }
+
+    private ArraySlots slots() {
+        if (state.closed) {
+            throw new IllegalStateException("Off-heap cache map closed.");
+        }
+        if (state.slots == null) {
+            var capacity = maximumSize == LRUCacheMap.UNBOUNDED
+                ? initialCapacity
+                : (int) Math.min(initialCapacity, maximumSize + 1);
+            state.slots = new ArraySlots(capacity, true);
+            state.allocator = new SlabAllocator(slabSize, maximumCapacity);
+        }
+        return state.slots;
+    }
+
+    private SlabAllocator allocator() {
+        slots();
+        return state.allocator;
+    }
+
+    @Override
+    public CacheEntry<K, T> get(K key) {
+        log.debug("Get: Key: {}", key);
+        var slots = slots();
+        var slot = slots.find(key);
+        if (slot == ArraySlots.NIL) {
+            log.debug("Get Key: {}, Not available", key);
+            return CacheEntry.empty(key);
+        }
+        var now = ticker.read();
+        if (InternalCacheEntry.isPassed(slots.entryExpiresAt[slot], now)) {
+            log.debug("Get: Key: {}, Entry expired", key);
+            remove(slot, RemovalCause.EXPIRED);
+            return CacheEntry.empty(key);
+        }
+        slots.entryExpiresAt[slot] = LRUCacheMap.calculateExpirationTime(now, entryExpirationDuration, entryExpirationChronoUnit);
+        slots.moveToTail(slot);
+        if (cleanUpExpiredValue && InternalCacheEntry.isPassed(slots.valueExpiresAt[slot], now)) {
+            log.debug("Get: Key: {}, Entry value expired", key);
+            remove(slot, RemovalCause.EXPIRED);
+            return CacheEntry.empty(key);
+        }
+        return entryOf(slot);
+    }
+
+    @Override
+    public CacheEntry<K, T> put(@NonNull K key, @NonNull T value) {
+        log.debug("Put: Key: {}, Value: {}", key, value);
+        var slots = slots();
+        var bytes = codec.encode(value);
+        var now = ticker.read();
+        var entryDeadline = LRUCacheMap.calculateExpirationTime(now, entryExpirationDuration, entryExpirationChronoUnit);
+        var valueDeadline = LRUCacheMap.calculateExpirationTime(now, valueExpirationDuration, valueExpirationChronoUnit);
+        var slot = slots.find(key);
+        if (slot != ArraySlots.NIL) {
+            slots.entryExpiresAt[slot] = entryDeadline;
+            slots.valueExpiresAt[slot] = valueDeadline;
+            slots.moveToTail(slot);
+            allocator().free(slots.handles[slot]);
+            try {
+                slots.handles[slot] = store(bytes, slot);
+            } catch (RuntimeException e) {
+                //Previous value is already released
+                slots.remove(slot);
+                throw e;
+            }
+        } else {
+            var address = store(bytes, ArraySlots.NIL);
+            slot = slots.add(key, null, entryDeadline, valueDeadline);
+            slots.handles[slot] = address;
+            evict();
+        }
+        return new ArrayCacheEntry<>(key, value, entryDeadline, valueDeadline);
+    }
+
+    /**
+     * Store the bytes off-heap, evicting least recently used entries other than the
+     * excluded slot until they fit.
+     */
+    private long store(byte[] bytes, int excluded) {
+        var slots = slots();
+        var allocator = allocator();
+        if (bytes.length > allocator.maximumLength()) {
+            throw new IllegalArgumentException("Encoded value of " + bytes.length + " bytes exceeds the slab size: " + slabSize);
+        }
+        long address;
+        while ((address = allocator.allocate(bytes.length)) == SlabAllocator.NIL) {
+            var victim = slots.head == excluded
+                ? slots.next[slots.head]
+                : slots.head;
+            if (victim == ArraySlots.NIL) {
+                throw new IllegalStateException("Off-heap capacity exhausted: " + maximumCapacity);
+            }
+            evict(victim);
+        }
+        allocator.write(address, bytes);
+        return address;
+    }
+
+    private void evict() {
+        var slots = slots();
+        while (maximumSize != LRUCacheMap.UNBOUNDED && slots.size > maximumSize) {
+            evict(slots.head);
+        }
+    }
+
+    private void evict(int slot) {
+        state.evictionCount++;
+        remove(slot, RemovalCause.SIZE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void remove(int slot, RemovalCause cause) {
+        var slots = slots();
+        var key = (K) slots.keys[slot];
+        //Decoding a value is expensive, only done if someone receives it
+        var notifying = removalListener != RemovalListener.none();
+        var value = notifying || log.isDebugEnabled()
+            ? codec.decode(allocator().read(slots.handles[slot]))
+            : null;
+        log.debug("Remove: Key: {} Value: {} Cause: {}", key, value, cause);
+        allocator().free(slots.handles[slot]);
+        slots.remove(slot);
+        if (notifying) {
+            removalListener.onRemoval(key, value, cause);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CacheEntry<K, T> entryOf(int slot) {
+        var slots = slots();
+        return new ArrayCacheEntry<>(
+            (K) slots.keys[slot],
+            codec.decode(allocator().read(slots.handles[slot])),
+            slots.entryExpiresAt[slot],
+            slots.valueExpiresAt[slot]
+        );
+    }
+
+    @Override
+    public CacheEntry<K, T> invalidate(K key) {
+        log.debug("Invalidate: Key: {}", key);
+        var slot = slots().find(key);
+        if (slot == ArraySlots.NIL) {
+            return CacheEntry.empty(key);
+        }
+        var entry = entryOf(slot);
+        remove(slot, RemovalCause.EXPLICIT);
+        return entry;
+    }
+
+    @Override
+    public void invalidateAll() {
+        log.debug("Invalidate all.");
+        var slots = slots();
+        while (slots.head != ArraySlots.NIL) {
+            remove(slots.head, RemovalCause.EXPLICIT);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<K> keys(int limit) {
+        var slots = slots();
+        var keys = new ArrayList<K>(Math.min(limit, slots.size));
+        for (int slot = slots.tail; slot != ArraySlots.NIL && keys.size() < limit; slot = slots.previous[slot]) {
+            keys.add((K) slots.keys[slot]);
+        }
+        return keys;
+    }
+
+    /**
+     * Values are decoded from off-heap memory.
+     */
+    @Override
+    public List<CacheEntry<K, T>> entries(List<K> keys) {
+        var slots = slots();
+        var entries = new ArrayList<CacheEntry<K, T>>(keys.size());
+        var now = ticker.read();
+        var at = Instant.now();
+        for (var key : keys) {
+            var slot = slots.find(key);
+            if (slot == ArraySlots.NIL) {
+                continue;
+            }
+            entries.add(DetachedCacheEntry.of(
+                key, codec.decode(allocator().read(slots.handles[slot])),
+                slots.entryExpiresAt[slot], slots.valueExpiresAt[slot], now, at
+            ));
+        }
+        return entries;
+    }
+
+    @Override
+    public CacheSettings getSettings() {
+        return CacheSettings.of(
+            entryExpirationDuration, entryExpirationChronoUnit,
+            valueExpirationDuration, valueExpirationChronoUnit,
+            maximumSize, LRUCacheMap.UNBOUNDED
+        );
+    }
+
+    @Override
+    public void cleanUp() {
+        //Scheduled before close
+        if (state.closed) {
+            return;
+        }
+        var slots = slots();
+        var now = ticker.read();
+        while (slots.head != ArraySlots.NIL && InternalCacheEntry.isPassed(slots.entryExpiresAt[slots.head], now)) {
+            remove(slots.head, RemovalCause.EXPIRED);
+        }
+    }
+
+    @Override
+    public long size() {
+        return state.closed ? 0 : slots().size;
+    }
+
+    public long getEvictionCount() {
+        return state.evictionCount;
+    }
+
+    /**
+     * Off-heap memory in use by values, including block rounding.
+     */
+    public long getAllocatedBytes() {
+        return state.closed ? 0 : allocator().allocatedBytes();
+    }
+
+    @Override
+    public void close() {
+        if (state.closed) {
+            return;
+        }
+        state.closed = true;
+        if (state.allocator != null) {
+            state.allocator.close();
+        }
+    }
+}
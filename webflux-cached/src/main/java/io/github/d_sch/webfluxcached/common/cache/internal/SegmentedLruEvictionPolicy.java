@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.util.Iterator;
+
+/**
+ * SegmentedLruEvictionPolicy
+ * 
+ * Probation segment for entries used once, protected segment for entries used again.
+ * A scan of keys used once only displaces entries of the probation segment.
+ * 
+ */
+final class SegmentedLruEvictionPolicy<K, T> implements EvictionPolicy<K, T> {
+
+    private final double protectedRatio;
+
+    private final SimpleLinkedQueue<K, T> probation = new SimpleLinkedQueue<>();
+    private final SimpleLinkedQueue<K, T> protectedQueue = new SimpleLinkedQueue<>();
+
+    private long protectedMaximum = Long.MAX_VALUE;
+    private long protectedSize;
+    private boolean weighted;
+
+    SegmentedLruEvictionPolicy(double protectedRatio) {
+        this.protectedRatio = protectedRatio;
+    }
+
+    @Override
+    public void bind(long maximum, boolean weighted) {
+        this.weighted = weighted;
+        if (maximum != LRUCacheMap.UNBOUNDED) {
+            protectedMaximum = (long) (maximum * protectedRatio);
+        }
+    }
+
+    @Override
+    public void onInsert(InternalCacheEntry<K, T> entry) {
+        entry.setQueueType(InternalCacheEntry.MAIN);
+        probation.appendLast(entry);
+    }
+
+    @Override
+    public void onAccess(InternalCacheEntry<K, T> entry) {
+        if (entry.getQueueType() == InternalCacheEntry.PROTECTED) {
+            protectedQueue.appendLast(entry);
+            return;
+        }
+        //Promote, demote the least recently used protected entries overflowing
+        probation.remove(entry);
+        entry.setQueueType(InternalCacheEntry.PROTECTED);
+        protectedQueue.appendLast(entry);
+        protectedSize += measure(entry);
+        while (protectedSize > protectedMaximum) {
+            var demoted = protectedQueue.peekFirst();
+            protectedQueue.remove(demoted);
+            protectedSize -= measure(demoted);
+            demoted.setQueueType(InternalCacheEntry.MAIN);
+            probation.appendLast(demoted);
+        }
+    }
+
+    @Override
+    public void onRemove(InternalCacheEntry<K, T> entry) {
+        if (entry.getQueueType() == InternalCacheEntry.PROTECTED) {
+            protectedQueue.remove(entry);
+            protectedSize -= measure(entry);
+        } else {
+            probation.remove(entry);
+        }
+    }
+
+    @Override
+    public void onReweigh(InternalCacheEntry<K, T> entry, int previousWeight) {
+        if (weighted && entry.getQueueType() == InternalCacheEntry.PROTECTED) {
+            protectedSize += entry.getWeight() - previousWeight;
+        }
+    }
+
+    @Override
+    public InternalCacheEntry<K, T> victim() {
+        var victim = probation.peekFirst();
+        return victim != null
+            ? victim
+            : protectedQueue.peekFirst();
+    }
+
+    @Override
+    public Iterator<InternalCacheEntry<K, T>> iterator() {
+        return SimpleLinkedQueue.concat(probation.iterator(), protectedQueue.iterator());
+    }
+
+    @Override
+    public Iterator<InternalCacheEntry<K, T>> descendingIterator() {
+        return SimpleLinkedQueue.concat(protectedQueue.descendingIterator(), probation.descendingIterator());
+    }
+
+    private long measure(InternalCacheEntry<K, T> entry) {
+        return weighted
+            ? entry.getWeight()
+            : 1;
+    }
+}
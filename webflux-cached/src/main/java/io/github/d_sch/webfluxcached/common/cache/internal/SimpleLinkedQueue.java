@@ -30,45 +30,51 @@ public class SimpleLinkedQueue<K, T> implements Iterable<InternalCacheEntry<K,T>
         this.last.setPrevious(this.first);
     }
 
+    public boolean isLinked(InternalCacheEntry<K, T> entry) {
+        return entry.getPrevious() != null;
+    }
+
+    public InternalCacheEntry<K,T> peekFirst() {
+        var entry = first.getNext();
+        return entry == last
+            ? null
+            : entry;
+    }
+
     protected InternalCacheEntry<K,T> insertFirst(InternalCacheEntry<K,T> entry) {
         return insertBefore(first.getNext(), entry);
     }
 
     protected InternalCacheEntry<K,T> insertBefore(InternalCacheEntry<K, T> next, InternalCacheEntry<K, T> entry) {
-        entry.setPrevious(next.getPrevious());
-        next.setPrevious(entry);
+        var previous = next.getPrevious();
+        entry.setPrevious(previous);
         entry.setNext(next);
+        previous.setNext(entry);
+        next.setPrevious(entry);
         return entry;
     }
 
     protected InternalCacheEntry<K,T> insertAfter(InternalCacheEntry<K, T> previous, InternalCacheEntry<K, T> entry) {
-        entry.setNext(previous.getNext());
-        previous.setNext(entry);
-        entry.setPrevious(previous);
-        return entry;
+        return insertBefore(previous.getNext(), entry);
     }
 
-    protected InternalCacheEntry<K,T> remove(InternalCacheEntry<K, T> entry) {
-        if (entry.getPrevious() == null) {
-            //first entry
-            first = entry.getNext();
-            first.setPrevious(null);
-        } else if (entry.getNext() == null) {
-            //last entry
-            last = entry.getPrevious();
-            last.setNext(null);
-        } else {
-            //concat entry
-            entry.getNext().setPrevious(entry.getPrevious());
-            entry.getPrevious().setNext(entry.getNext());
+    public InternalCacheEntry<K,T> remove(InternalCacheEntry<K, T> entry) {
+        if (!isLinked(entry)) {
+            //not queued
+            return entry;
         }
+        //concat entry, first and last are sentinels
+        entry.getNext().setPrevious(entry.getPrevious());
+        entry.getPrevious().setNext(entry.getNext());
         entry.setPrevious(null);
         entry.setNext(null);
         return entry;
     }
 
-    protected InternalCacheEntry<K,T> appendLast(InternalCacheEntry<K,T> entry) {
-        return insertAfter(last.getPrevious(), entry);
+    public InternalCacheEntry<K,T> appendLast(InternalCacheEntry<K,T> entry) {
+        //move to the end if already queued
+        remove(entry);
+        return insertBefore(last, entry);
     }
 
     @Override
@@ -79,7 +85,7 @@ public class SimpleLinkedQueue<K, T> implements Iterable<InternalCacheEntry<K,T>
 
             @Override
             public boolean hasNext() {
-                return current.getNext() != null && current.getNext() != last;
+                return current != last;
             }
 
             @Override
@@ -91,5 +97,48 @@ public class SimpleLinkedQueue<K, T> implements Iterable<InternalCacheEntry<K,T>
             
         };
     }
-}
 
+    /**
+     * Iterate from the most to the least recently used entry.
+     */
+    public Iterator<InternalCacheEntry<K, T>> descendingIterator() {
+        return new Iterator<InternalCacheEntry<K, T>>() {
+
+            InternalCacheEntry<K,T> current = last.getPrevious();
+
+            @Override
+            public boolean hasNext() {
+                return current != first;
+            }
+
+            @Override
+            public InternalCacheEntry<K, T> next() {
+                var result = current;
+                current = current.getPrevious();
+                return result;
+            }
+
+        };
+    }
+
+    /**
+     * Iterate the entries of the first iterator, then the entries of the second.
+     */
+    public static <K, T> Iterator<InternalCacheEntry<K, T>> concat(Iterator<InternalCacheEntry<K, T>> first, Iterator<InternalCacheEntry<K, T>> second) {
+        return new Iterator<InternalCacheEntry<K, T>>() {
+
+            @Override
+            public boolean hasNext() {
+                return first.hasNext() || second.hasNext();
+            }
+
+            @Override
+            public InternalCacheEntry<K, T> next() {
+                return first.hasNext()
+                    ? first.next()
+                    : second.next();
+            }
+
+        };
+    }
+}
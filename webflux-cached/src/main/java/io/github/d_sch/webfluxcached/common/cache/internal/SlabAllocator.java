@@ -0,0 +1,207 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SlabAllocator
+ *
+ * Buddy allocator of off-heap memory. Memory is reserved in slabs of a power of two
+ * size from a shared {@link Arena}, up to a maximum capacity. A slab is split into
+ * blocks of power of two sizes, freed blocks are merged with their free buddy, so
+ * memory released by one block size can be reused by any other.
+ *
+ * Every block starts with a header: the length of the stored bytes, the block order
+ * and a free flag. Free blocks are kept in one doubly linked free list per order,
+ * linked through the block memory itself.
+ *
+ * An address is the slab index in the upper and the block offset in the lower 32 bits.
+ * Not thread safe, access has to be serialized by the caller.
+ *
+ */
+final class SlabAllocator implements AutoCloseable {
+
+    static final long NIL = -1;
+
+    private static final int HEADER = 8;
+    private static final long LENGTH_OFFSET = 0;
+    private static final long ORDER_OFFSET = 4;
+    private static final long FREE_OFFSET = 5;
+    private static final long PREVIOUS_OFFSET = 8;
+    private static final long NEXT_OFFSET = 16;
+
+    //Header and free list links have to fit into the smallest block
+    private static final int MINIMUM_ORDER = 5;
+
+    private final Arena arena = Arena.ofShared();
+    private final List<MemorySegment> slabs = new ArrayList<>();
+    private final int slabOrder;
+    private final long maximumCapacity;
+    private final long[] freeLists;
+
+    private long allocatedBytes;
+
+    SlabAllocator(int slabSize, long maximumCapacity) {
+        if (Integer.bitCount(slabSize) != 1 || slabSize < (1 << MINIMUM_ORDER)) {
+            throw new IllegalArgumentException("Slab size must be a power of two of at least 32 bytes: " + slabSize);
+        }
+        if (maximumCapacity < slabSize) {
+            throw new IllegalArgumentException("Maximum capacity must hold at least one slab: " + maximumCapacity);
+        }
+        this.slabOrder = Integer.numberOfTrailingZeros(slabSize);
+        this.maximumCapacity = maximumCapacity;
+        this.freeLists = new long[slabOrder + 1];
+        Arrays.fill(freeLists, NIL);
+    }
+
+    int maximumLength() {
+        return (1 << slabOrder) - HEADER;
+    }
+
+    long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    long reservedBytes() {
+        return (long) slabs.size() << slabOrder;
+    }
+
+    private static int orderOf(int length) {
+        var size = Math.max(HEADER + length, 1 << MINIMUM_ORDER);
+        return 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+
+    /**
+     * Allocate a block for the number of bytes, {@link #NIL} if the capacity is exhausted.
+     * The bytes are stored by {@link #write(long, byte[])}.
+     */
+    long allocate(int length) {
+        if (length < 0 || length > maximumLength()) {
+            throw new IllegalArgumentException("Length exceeds the slab size: " + length);
+        }
+        var order = orderOf(length);
+        var available = order;
+        while (available <= slabOrder && freeLists[available] == NIL) {
+            available++;
+        }
+        if (available > slabOrder) {
+            if (reservedBytes() + (1L << slabOrder) > maximumCapacity) {
+                return NIL;
+            }
+            slabs.add(arena.allocate(1L << slabOrder, Long.BYTES));
+            available = slabOrder;
+            push(((long) (slabs.size() - 1)) << 32, slabOrder);
+        }
+        var address = pop(available);
+        //Split, returning the upper halves to the free lists
+        while (available > order) {
+            available--;
+            push(address + (1L << available), available);
+        }
+        var slab = slabOf(address);
+        slab.set(ValueLayout.JAVA_BYTE, offsetOf(address) + ORDER_OFFSET, (byte) order);
+        slab.set(ValueLayout.JAVA_BYTE, offsetOf(address) + FREE_OFFSET, (byte) 0);
+        allocatedBytes += 1L << order;
+        return address;
+    }
+
+    void free(long address) {
+        var order = (int) slabOf(address).get(ValueLayout.JAVA_BYTE, offsetOf(address) + ORDER_OFFSET);
+        allocatedBytes -= 1L << order;
+        //Merge with the free buddy of the same order
+        while (order < slabOrder) {
+            var buddy = address ^ (1L << order);
+            var slab = slabOf(buddy);
+            if (slab.get(ValueLayout.JAVA_BYTE, offsetOf(buddy) + FREE_OFFSET) == 0
+                || slab.get(ValueLayout.JAVA_BYTE, offsetOf(buddy) + ORDER_OFFSET) != order) {
+                break;
+            }
+            unlink(buddy, order);
+            address = Math.min(address, buddy);
+            order++;
+        }
+        push(address, order);
+    }
+
+    void write(long address, byte[] bytes) {
+        var slab = slabOf(address);
+        slab.set(ValueLayout.JAVA_INT_UNALIGNED, offsetOf(address) + LENGTH_OFFSET, bytes.length);
+        MemorySegment.copy(bytes, 0, slab, ValueLayout.JAVA_BYTE, offsetOf(address) + HEADER, bytes.length);
+    }
+
+    byte[] read(long address) {
+        var slab = slabOf(address);
+        var bytes = new byte[slab.get(ValueLayout.JAVA_INT_UNALIGNED, offsetOf(address) + LENGTH_OFFSET)];
+        MemorySegment.copy(slab, ValueLayout.JAVA_BYTE, offsetOf(address) + HEADER, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private MemorySegment slabOf(long address) {
+        return slabs.get((int) (address >>> 32));
+    }
+
+    private static long offsetOf(long address) {
+        return address & 0xFFFFFFFFL;
+    }
+
+    private void push(long address, int order) {
+        var slab = slabOf(address);
+        var offset = offsetOf(address);
+        var head = freeLists[order];
+        slab.set(ValueLayout.JAVA_BYTE, offset + ORDER_OFFSET, (byte) order);
+        slab.set(ValueLayout.JAVA_BYTE, offset + FREE_OFFSET, (byte) 1);
+        slab.set(ValueLayout.JAVA_LONG_UNALIGNED, offset + PREVIOUS_OFFSET, NIL);
+        slab.set(ValueLayout.JAVA_LONG_UNALIGNED, offset + NEXT_OFFSET, head);
+        if (head != NIL) {
+            slabOf(head).set(ValueLayout.JAVA_LONG_UNALIGNED, offsetOf(head) + PREVIOUS_OFFSET, address);
+        }
+        freeLists[order] = address;
+    }
+
+    private long pop(int order) {
+        var address = freeLists[order];
+        unlink(address, order);
+        return address;
+    }
+
+    private void unlink(long address, int order) {
+        var slab = slabOf(address);
+        var offset = offsetOf(address);
+        var previous = slab.get(ValueLayout.JAVA_LONG_UNALIGNED, offset + PREVIOUS_OFFSET);
+        var next = slab.get(ValueLayout.JAVA_LONG_UNALIGNED, offset + NEXT_OFFSET);
+        if (previous == NIL) {
+            freeLists[order] = next;
+        } else {
+            slabOf(previous).set(ValueLayout.JAVA_LONG_UNALIGNED, offsetOf(previous) + NEXT_OFFSET, next);
+        }
+        if (next != NIL) {
+            slabOf(next).set(ValueLayout.JAVA_LONG_UNALIGNED, offsetOf(next) + PREVIOUS_OFFSET, previous);
+        }
+        slab.set(ValueLayout.JAVA_BYTE, offset + FREE_OFFSET, (byte) 0);
+    }
+
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ *
+ * Derived from the BoundedBuffer and StripedBuffer of Caffeine, https://github.com/ben-manes/caffeine,
+ * Copyright 2015 Ben Manes. All Rights Reserved.
+ * Licensed under the Apache License, Version 2.0.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * StripedReadBuffer
+ *
+ * Lossy multiple producer / single consumer buffer recording reads.
+ *
+ * Producers are spread over stripes by thread to avoid contention. A record is
+ * dropped if its stripe is full or contended, losing a reorder is acceptable.
+ * Draining has to be serialized by the caller.
+ *
+ */
+final class StripedReadBuffer<E> {
+
+    static final int STRIPE_SIZE = 16;
+    static final int STRIPE_MASK = STRIPE_SIZE - 1;
+
+    enum Result {
+        SUCCESS,
+        FULL,
+        FAILED
+    }
+
+    private static final class Stripe<E> {
+        final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(STRIPE_SIZE);
+        final AtomicLong writeCounter = new AtomicLong();
+        volatile long readCounter;
+    }
+
+    private final Stripe<E>[] stripes;
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    StripedReadBuffer() {
+        var count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.stripes = new Stripe[count];
+        this.mask = count - 1;
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>();
+        }
+    }
+
+    private Stripe<E> stripe() {
+        //Mix thread id bits to spread consecutive ids
+        var id = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (id >>> 32) & mask];
+    }
+
+    Result offer(E element) {
+        var stripe = stripe();
+        var head = stripe.readCounter;
+        var tail = stripe.writeCounter.get();
+        if (tail - head >= STRIPE_SIZE) {
+            return Result.FULL;
+        }
+        if (!stripe.writeCounter.compareAndSet(tail, tail + 1)) {
+            return Result.FAILED;
+        }
+        stripe.buffer.lazySet((int) tail & STRIPE_MASK, element);
+        return tail + 1 - head >= STRIPE_SIZE
+            ? Result.FULL
+            : Result.SUCCESS;
+    }
+
+    void drainTo(Consumer<E> consumer) {
+        for (var stripe : stripes) {
+            var head = stripe.readCounter;
+            var tail = stripe.writeCounter.get();
+            for (; head < tail; head++) {
+                var index = (int) head & STRIPE_MASK;
+                var element = stripe.buffer.get(index);
+                if (element == null) {
+                    //Slot claimed but not yet published
+                    break;
+                }
+                stripe.buffer.lazySet(index, null);
+                consumer.accept(element);
+            }
+            stripe.readCounter = head;
+        }
+    }
+}
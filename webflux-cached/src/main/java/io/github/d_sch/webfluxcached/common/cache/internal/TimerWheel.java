@@ -0,0 +1,158 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ *
+ * Derived from the TimerWheel of Caffeine, https://github.com/ben-manes/caffeine,
+ * Copyright 2017 Ben Manes. All Rights Reserved.
+ * Licensed under the Apache License, Version 2.0.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.internal;
+
+/**
+ * TimerWheel
+ *
+ * Hierarchical timing wheel indexing the entries of a {@link LRUCacheMap} by their
+ * expiration time. Scheduling and descheduling are O(1), advancing the wheel only
+ * visits the buckets of the elapsed time spans instead of scanning all entries.
+ *
+ * The wheels have buckets spanning about 1 second, 1 minute, 1 hour and 1 day, plus
+ * one overflow bucket. When the time of a coarse bucket has passed its entries are
+ * expired or moved down to a finer wheel.
+ *
+ * Times are nanoseconds of the ticker of the cache map. Not thread safe, access has to be serialized by the caller.
+ *
+ */
+final class TimerWheel<K, T> {
+
+    private static final int[] BUCKETS = { 64, 64, 32, 4, 1 };
+    private static final long[] SPANS = {
+        Long.highestOneBit(1_000_000_000L) << 1,           // 1.07 s
+        Long.highestOneBit(60_000_000_000L) << 1,          // 1.14 m
+        Long.highestOneBit(3_600_000_000_000L) << 1,       // 1.22 h
+        Long.highestOneBit(86_400_000_000_000L) << 1,      // 1.63 d
+        BUCKETS[3] * (Long.highestOneBit(86_400_000_000_000L) << 1),   // 6.5 d
+    };
+    private static final int[] SHIFT = {
+        Long.numberOfTrailingZeros(SPANS[0]),
+        Long.numberOfTrailingZeros(SPANS[1]),
+        Long.numberOfTrailingZeros(SPANS[2]),
+        Long.numberOfTrailingZeros(SPANS[3]),
+        Long.numberOfTrailingZeros(SPANS[4]),
+    };
+
+    private final LRUCacheMap<K, T> cacheMap;
+    private final InternalCacheEntry<K, T>[][] wheel;
+
+    //Times are kept relative to the origin to stay positive
+    private final long origin;
+    private long nanos;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(LRUCacheMap<K, T> cacheMap, long now) {
+        this.cacheMap = cacheMap;
+        this.origin = now;
+        this.wheel = new InternalCacheEntry[BUCKETS.length][];
+        for (int i = 0; i < BUCKETS.length; i++) {
+            wheel[i] = new InternalCacheEntry[BUCKETS[i]];
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                var sentinel = new CacheEntryImpl<K, T>();
+                sentinel.setPreviousInTime(sentinel);
+                sentinel.setNextInTime(sentinel);
+                wheel[i][j] = sentinel;
+            }
+        }
+    }
+
+    /**
+     * (Re-)schedule the entry to expire at the deadline.
+     */
+    void schedule(InternalCacheEntry<K, T> entry, long deadline) {
+        deschedule(entry);
+        if (deadline == InternalCacheEntry.NEVER) {
+            return;
+        }
+        var sentinel = findBucket(deadline);
+        entry.setNextInTime(sentinel);
+        entry.setPreviousInTime(sentinel.getPreviousInTime());
+        sentinel.getPreviousInTime().setNextInTime(entry);
+        sentinel.setPreviousInTime(entry);
+    }
+
+    void deschedule(InternalCacheEntry<K, T> entry) {
+        if (entry.getNextInTime() == null) {
+            return;
+        }
+        entry.getNextInTime().setPreviousInTime(entry.getPreviousInTime());
+        entry.getPreviousInTime().setNextInTime(entry.getNextInTime());
+        entry.setNextInTime(null);
+        entry.setPreviousInTime(null);
+    }
+
+    /**
+     * Advance the wheel to the current time, expiring all entries due.
+     */
+    void advance(long now) {
+        var previous = nanos;
+        nanos = Math.max(previous, now - origin);
+        for (int i = 0; i < SHIFT.length; i++) {
+            var previousTicks = previous >>> SHIFT[i];
+            var delta = (nanos >>> SHIFT[i]) - previousTicks;
+            //The current bucket of the finest wheel is always visited to expire exactly
+            if (delta <= 0 && i > 0) {
+                break;
+            }
+            expire(i, previousTicks, delta);
+            if (delta <= 0) {
+                break;
+            }
+        }
+    }
+
+    private void expire(int index, long previousTicks, long delta) {
+        var buckets = wheel[index];
+        var mask = buckets.length - 1;
+        var steps = (int) Math.min(1 + delta, buckets.length);
+        var start = (int) (previousTicks & mask);
+        for (int i = start; i < start + steps; i++) {
+            var sentinel = buckets[i & mask];
+            var entry = sentinel.getNextInTime();
+            //Detach the bucket, entries not due yet are scheduled again
+            sentinel.setPreviousInTime(sentinel);
+            sentinel.setNextInTime(sentinel);
+            while (entry != sentinel) {
+                var next = entry.getNextInTime();
+                entry.setPreviousInTime(null);
+                entry.setNextInTime(null);
+                if (!cacheMap.expire(entry, origin + nanos)) {
+                    schedule(entry, cacheMap.deadline(entry));
+                }
+                entry = next;
+            }
+        }
+    }
+
+    private InternalCacheEntry<K, T> findBucket(long deadline) {
+        //Entries already due are put into the current bucket
+        var duration = Math.max(0, deadline - origin - nanos);
+        var time = nanos + duration;
+        for (int i = 0; i < wheel.length - 1; i++) {
+            if (duration < SPANS[i + 1]) {
+                var ticks = time >>> SHIFT[i];
+                return wheel[i][(int) ticks & (wheel[i].length - 1)];
+            }
+        }
+        return wheel[wheel.length - 1][0];
+    }
+}
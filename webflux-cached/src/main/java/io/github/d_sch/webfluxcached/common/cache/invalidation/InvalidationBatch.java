@@ -0,0 +1,34 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.invalidation;
+
+import java.util.Set;
+
+import lombok.NonNull;
+
+/**
+ * InvalidationBatch
+ *
+ * Distinct keys invalidated by one node within one window.
+ *
+ */
+public record InvalidationBatch<K>(@NonNull String origin, @NonNull Set<K> keys) {
+
+    public InvalidationBatch {
+        keys = Set.copyOf(keys);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.invalidation;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.d_sch.webfluxcached.common.SerializedSink;
+import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * InvalidationBus
+ *
+ * Keep the caches of several nodes consistent: keys invalidated on one node are
+ * removed from the local cache at once and published to all other nodes, which
+ * remove them from their caches as well. Long expiration times can be used as
+ * changed values do not stay on other nodes until they expire.
+ *
+ * Keys are collected into windows bounded by a maximum size and a maximum linger
+ * time, every window is published as one batch of distinct keys. Batches published
+ * by the node itself are ignored. Failures to publish or to apply a batch are
+ * logged, the bus keeps running. A failing transport, e.g. a lost broker connection,
+ * is subscribed again with exponential backoff. Batches published while disconnected
+ * are missed, entries of such keys stay until they expire.
+ *
+ */
+@Slf4j
+public class InvalidationBus<K> implements Disposable {
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+    public static final Duration DEFAULT_MAX_LINGER = Duration.ofMillis(10);
+    public static final Duration MIN_RECONNECT_BACKOFF = Duration.ofMillis(100);
+    public static final Duration MAX_RECONNECT_BACKOFF = Duration.ofMinutes(1);
+
+    @Getter
+    private final String nodeId;
+
+    private final FluxCache<K, ?> cache;
+    private final InvalidationTransport<K> transport;
+
+    private final SerializedSink<K> keys = SerializedSink.unicast();
+    private final Disposable publishing;
+    private final Disposable receiving;
+
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder receivedCount = new LongAdder();
+
+    public InvalidationBus(FluxCache<K, ?> cache, InvalidationTransport<K> transport) {
+        this(UUID.randomUUID().toString(), cache, transport, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_LINGER);
+    }
+
+    public InvalidationBus(@NonNull String nodeId, @NonNull FluxCache<K, ?> cache, @NonNull InvalidationTransport<K> transport, int maxBatchSize, @NonNull Duration maxLinger) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Maximum batch size must be positive: " + maxBatchSize);
+        }
+        this.nodeId = nodeId;
+        this.cache = cache;
+        this.transport = transport;
+        this.receiving = transport.batches()
+            .filter(batch -> !nodeId.equals(batch.origin()))
+            .concatMap(this::apply)
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, MIN_RECONNECT_BACKOFF)
+                .maxBackoff(MAX_RECONNECT_BACKOFF)
+                //Backoff restarts after a batch was received
+                .transientErrors(true)
+                .doBeforeRetry(signal -> log.warn("Receive invalidations failed, subscribe again, retry {}.", signal.totalRetriesInARow() + 1, signal.failure()))
+            )
+            .subscribe();
+        this.publishing = keys.asFlux()
+            .bufferTimeout(maxBatchSize, maxLinger, true)
+            .concatMap(this::publish)
+            .subscribe();
+    }
+
+    /**
+     * Number of distinct keys published to other nodes.
+     */
+    public long getPublishedCount() {
+        return publishedCount.sum();
+    }
+
+    /**
+     * Number of keys received from other nodes.
+     */
+    public long getReceivedCount() {
+        return receivedCount.sum();
+    }
+
+    /**
+     * Remove the keys from the local cache and publish them to the other nodes
+     * with the next batch. Completes when removed locally.
+     */
+    public Mono<Void> invalidate(@NonNull Collection<K> invalidated) {
+        return cache.invalidate(Flux.fromIterable(invalidated))
+            .then(Mono.fromRunnable(() -> invalidated.forEach(keys::emitNext)));
+    }
+
+    public Mono<Void> invalidate(@NonNull K key) {
+        return invalidate(List.of(key));
+    }
+
+    private Mono<Void> publish(List<K> window) {
+        //Coalesce keys invalidated several times within the window
+        var distinct = new LinkedHashSet<>(window);
+        log.debug("Publish invalidation of {} keys, {} requested.", distinct.size(), window.size());
+        return transport.publish(new InvalidationBatch<>(nodeId, distinct))
+            .doOnSuccess(ignored -> publishedCount.add(distinct.size()))
+            .onErrorResume(throwable -> {
+                log.warn("Publish invalidation of {} keys failed.", distinct.size(), throwable);
+                return Mono.empty();
+            });
+    }
+
+    private Mono<Void> apply(InvalidationBatch<K> batch) {
+        log.debug("Apply invalidation of {} keys from {}.", batch.keys().size(), batch.origin());
+        receivedCount.add(batch.keys().size());
+        return cache.invalidate(Flux.fromIterable(batch.keys()))
+            .then()
+            .onErrorResume(throwable -> {
+                log.warn("Apply invalidation of {} keys from {} failed.", batch.keys().size(), batch.origin(), throwable);
+                return Mono.empty();
+            });
+    }
+
+    @Override
+    public void dispose() {
+        receiving.dispose();
+        publishing.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return receiving.isDisposed() && publishing.isDisposed();
+    }
+}
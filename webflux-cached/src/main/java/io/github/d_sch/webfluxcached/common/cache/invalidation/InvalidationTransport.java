@@ -0,0 +1,39 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.invalidation;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * InvalidationTransport
+ *
+ * Exchange of invalidated keys between the nodes sharing a cache, e.g. by a message
+ * broker. Every node publishes the keys it invalidated and receives the batches of
+ * all nodes, its own included. Delivery is best effort, entries missed stay until
+ * they expire.
+ *
+ */
+public interface InvalidationTransport<K> {
+
+    Mono<Void> publish(InvalidationBatch<K> batch);
+
+    /**
+     * Batches published by any node from the time of subscription.
+     */
+    Flux<InvalidationBatch<K>> batches();
+}
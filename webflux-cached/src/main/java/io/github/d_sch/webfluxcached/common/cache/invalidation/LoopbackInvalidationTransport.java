@@ -0,0 +1,46 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.invalidation;
+
+import io.github.d_sch.webfluxcached.common.SerializedSink;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+/**
+ * LoopbackInvalidationTransport
+ *
+ * In-process {@link InvalidationTransport}, every batch published is received by
+ * all subscribers of the same instance. Connects the nodes of a test or several
+ * caches of one process.
+ *
+ */
+public class LoopbackInvalidationTransport<K> implements InvalidationTransport<K> {
+
+    private final SerializedSink<InvalidationBatch<K>> batches = new SerializedSink<>(Sinks.many().multicast().onBackpressureBuffer(Queues.SMALL_BUFFER_SIZE, false));
+
+    @Override
+    public Mono<Void> publish(InvalidationBatch<K> batch) {
+        return Mono.fromRunnable(() -> batches.emitNext(batch));
+    }
+
+    @Override
+    public Flux<InvalidationBatch<K>> batches() {
+        return batches.asFlux();
+    }
+}
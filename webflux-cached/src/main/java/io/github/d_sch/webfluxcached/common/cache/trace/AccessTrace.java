@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.trace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * AccessTrace
+ *
+ * Binary trace of cache accesses written by {@link AccessTraceRecorder}: a header of
+ * magic number, version and start time in epoch milliseconds, followed by one record
+ * per access. A record is the 64 bit hash of the key and the time since the previous
+ * record in nanoseconds, zigzag and variable length encoded.
+ *
+ */
+public final class AccessTrace {
+
+    static final int MAGIC = 0x46435452;
+    static final int VERSION = 1;
+
+    /**
+     * Receives the accesses of a trace in order.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+
+        /**
+         * Time is in nanoseconds since the first access.
+         */
+        void access(long keyHash, long timeNanos);
+    }
+
+    private AccessTrace() {
+    }
+
+    /**
+     * Read all accesses of the trace file, returns the number of accesses read.
+     * A truncated last record, e.g. of a recorder still running, is ignored.
+     */
+    public static long read(Path path, Visitor visitor) throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an access trace: " + path);
+            }
+            var version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported access trace version " + version + ": " + path);
+            }
+            in.readLong();
+            var count = 0L;
+            var time = 0L;
+            var first = true;
+            while (true) {
+                long keyHash;
+                long delta;
+                try {
+                    keyHash = in.readLong();
+                    delta = readVarLong(in);
+                } catch (EOFException e) {
+                    return count;
+                }
+                //The first delta is relative to the recorder start
+                time = first ? 0 : time + delta;
+                first = false;
+                visitor.access(keyHash, time);
+                count++;
+            }
+        }
+    }
+
+    static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(System.currentTimeMillis());
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        var zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7fL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7f) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        var zigzag = 0L;
+        for (int shift = 0; shift < 64; shift += 7) {
+            var b = in.readUnsignedByte();
+            zigzag |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Malformed variable length value.");
+    }
+}
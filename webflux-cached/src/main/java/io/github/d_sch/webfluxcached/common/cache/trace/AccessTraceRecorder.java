@@ -0,0 +1,210 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cache.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToLongFunction;
+
+import io.github.d_sch.webfluxcached.common.cache.Hashing;
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * AccessTraceRecorder
+ *
+ * Record the keys accessed in a cache to an {@link AccessTrace} file, e.g. to replay
+ * the traffic against other cache configurations. Recording stores the key hash and
+ * the time into a ring buffer without locking, the buffer is written to the file
+ * periodically on a blocking scheduler. Accesses overwritten before they were written
+ * are dropped and counted.
+ *
+ * Keys are hashed to 64 bits: strings by their characters, other keys by their hash
+ * code, unless a key hasher is given.
+ *
+ */
+@Slf4j
+public final class AccessTraceRecorder<K> implements Disposable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+
+    private final ToLongFunction<? super K> keyHasher;
+    private final Ticker ticker = Ticker.system();
+    private final long start;
+
+    //Ring buffer, a slot is published by storing its sequence number plus one. Like a
+    //seqlock the sequence is cleared before the slot is written, a reader accepts the
+    //slot only if the sequence is the same before and after reading it
+    private final int mask;
+    private final AtomicLongArray hashes;
+    private final AtomicLongArray times;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+
+    //Guarded by this
+    private final DataOutputStream out;
+    private long head;
+    private long lastTime;
+    private long written;
+    private long dropped;
+    private boolean closed;
+
+    private final Disposable flushing;
+
+    private AccessTraceRecorder(DataOutputStream out, int bufferSize, Duration flushInterval, ToLongFunction<? super K> keyHasher) {
+        var capacity = Integer.highestOneBit(Math.max(2, bufferSize) - 1) << 1;
+        this.mask = capacity - 1;
+        this.hashes = new AtomicLongArray(capacity);
+        this.times = new AtomicLongArray(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        this.out = out;
+        this.keyHasher = keyHasher;
+        this.start = ticker.read();
+        this.lastTime = start;
+        this.flushing = Flux.interval(flushInterval, Schedulers.boundedElastic())
+            .subscribe(tick -> flushQuietly());
+    }
+
+    public static <K> AccessTraceRecorder<K> open(@NonNull Path path) throws IOException {
+        return open(path, DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL, AccessTraceRecorder::hash);
+    }
+
+    /**
+     * Create or replace the trace file and start recording.
+     */
+    public static <K> AccessTraceRecorder<K> open(@NonNull Path path, int bufferSize, @NonNull Duration flushInterval, @NonNull ToLongFunction<? super K> keyHasher) throws IOException {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+        }
+        var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+        AccessTrace.writeHeader(out);
+        return new AccessTraceRecorder<>(out, bufferSize, flushInterval, keyHasher);
+    }
+
+    /**
+     * Record an access of the key, called from any thread.
+     */
+    public void record(K key) {
+        var sequence = tail.getAndIncrement();
+        var index = (int) sequence & mask;
+        var keyHash = keyHasher.applyAsLong(key);
+        sequences.set(index, 0);
+        hashes.set(index, keyHash);
+        times.set(index, ticker.read());
+        sequences.lazySet(index, sequence + 1);
+    }
+
+    /**
+     * Write the recorded accesses to the file.
+     */
+    public synchronized void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        var end = tail.get();
+        var capacity = mask + 1;
+        if (end - head > capacity) {
+            dropped += end - capacity - head;
+            head = end - capacity;
+        }
+        while (head < end) {
+            var index = (int) head & mask;
+            var sequence = sequences.get(index);
+            if (sequence < head + 1) {
+                //Claimed or being overwritten, not published yet, written or dropped with the next flush
+                break;
+            }
+            var keyHash = hashes.get(index);
+            var time = times.get(index);
+            if (sequence > head + 1 || sequences.get(index) != sequence) {
+                //Overwritten by a later access, possibly while reading
+                dropped++;
+                head++;
+                continue;
+            }
+            out.writeLong(keyHash);
+            AccessTrace.writeVarLong(out, time - lastTime);
+            lastTime = time;
+            written++;
+            head++;
+        }
+        out.flush();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            log.warn("Write access trace failed.", e);
+        }
+    }
+
+    public long getRecordedCount() {
+        return tail.get();
+    }
+
+    public synchronized long getWrittenCount() {
+        return written;
+    }
+
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Stop recording, write the remaining accesses and close the file.
+     */
+    @Override
+    public void dispose() {
+        flushing.dispose();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            flushQuietly();
+            closed = true;
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.warn("Close access trace failed.", e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized boolean isDisposed() {
+        return closed;
+    }
+
+    /**
+     * 64 bit hash of a key, see {@link Hashing#hash(Object)}.
+     */
+    public static long hash(Object key) {
+        return Hashing.hash(key);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cached;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import io.github.d_sch.webfluxcached.common.SerializedSink;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * BatchLoader
+ *
+ * Collect keys requested by concurrent callers into windows bounded by a maximum
+ * size and a maximum linger time. Every window calls the loader once with its
+ * distinct keys, each result is routed back to the callers waiting for its key.
+ * Callers waiting for a key without result complete empty, a failing load fails
+ * all callers of the window. Callers still waiting when the loader is disposed fail.
+ *
+ */
+@Slf4j
+class BatchLoader<K, R> implements Disposable {
+
+    private record Request<K, R>(K key, Sinks.One<R> result) {}
+
+    private final Function<Flux<K>, Flux<R>> loader;
+    private final Function<R, K> keyOf;
+
+    private final SerializedSink<Request<K, R>> requests = SerializedSink.unicast();
+    private final Disposable batches;
+
+    //Requests buffered or in a running batch, failed on dispose
+    private final Set<Request<K, R>> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean disposed;
+
+    BatchLoader(@NonNull Function<Flux<K>, Flux<R>> loader, @NonNull Function<R, K> keyOf, int maxBatchSize, @NonNull Duration maxLinger) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Maximum batch size must be positive: " + maxBatchSize);
+        }
+        this.loader = loader;
+        this.keyOf = keyOf;
+        this.batches = requests.asFlux()
+            .bufferTimeout(maxBatchSize, maxLinger, true)
+            .flatMap(this::load)
+            .subscribe();
+    }
+
+    Mono<R> load(K key) {
+        return Mono.defer(() -> {
+            if (disposed) {
+                return Mono.error(disposedException(key));
+            }
+            var request = new Request<>(key, Sinks.<R>one());
+            pending.add(request);
+            requests.emitNext(request);
+            //Disposed concurrently, the request may have been missed by dispose
+            if (disposed) {
+                complete(request, result -> result.tryEmitError(disposedException(key)));
+            }
+            return request.result().asMono();
+        });
+    }
+
+    private Mono<Void> load(List<Request<K, R>> batch) {
+        var waiters = new LinkedHashMap<K, List<Request<K, R>>>();
+        for (var request : batch) {
+            waiters.computeIfAbsent(request.key(), key -> new ArrayList<>(1)).add(request);
+        }
+        log.debug("Load batch of {} keys for {} callers.", waiters.size(), batch.size());
+        var keys = new ArrayList<>(waiters.keySet());
+        //Defer, a failing loader must not terminate the batches
+        return Flux.defer(() -> loader.apply(Flux.fromIterable(keys)))
+            .doOnNext(result -> {
+                var resultWaiters = waiters.remove(keyOf.apply(result));
+                if (resultWaiters != null) {
+                    resultWaiters.forEach(waiter -> complete(waiter, sink -> sink.tryEmitValue(result)));
+                }
+            })
+            .doOnComplete(() -> waiters.values().forEach(
+                resultWaiters -> resultWaiters.forEach(waiter -> complete(waiter, Sinks.One::tryEmitEmpty))
+            ))
+            .doOnError(throwable -> waiters.values().forEach(
+                resultWaiters -> resultWaiters.forEach(waiter -> complete(waiter, sink -> sink.tryEmitError(throwable)))
+            ))
+            .onErrorResume(throwable -> Mono.empty())
+            .then();
+    }
+
+    private void complete(Request<K, R> request, Consumer<Sinks.One<R>> signal) {
+        pending.remove(request);
+        signal.accept(request.result());
+    }
+
+    private static IllegalStateException disposedException(Object key) {
+        return new IllegalStateException("Batch loader disposed, key: " + key);
+    }
+
+    /**
+     * Stop collecting windows, requests buffered or loading fail.
+     */
+    @Override
+    public void dispose() {
+        disposed = true;
+        batches.dispose();
+        for (var request : pending) {
+            complete(request, result -> result.tryEmitError(disposedException(request.key())));
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return disposed;
+    }
+}
@@ -16,95 +16,449 @@
 
 package io.github.d_sch.webfluxcached.common.cached;
 
+import java.net.ConnectException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 
 import org.springframework.http.client.ReactorResourceFactory;
 
 import io.github.d_sch.webfluxcached.common.KeyValueHolder;
 import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
 import io.github.d_sch.webfluxcached.common.cache.impl.FluxCacheImpl;
 import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
 import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.concurrent.Queues;
+import reactor.util.retry.Retry;
 
-public class Cached<K, T> {
+/**
+ * Cached
+ *
+ * Look up values through the cache, missing keys are loaded by the lookup function
+ * and put into the cache.
+ *
+ * Refresh ahead: a cache map not removing expired values, e.g.
+ * {@link FluxCacheImpl#refreshAheadCacheMap}, returns values older
+ * than their value expiration. Such a stale value is returned immediately and
+ * reloaded in the background, one reload per key at a time.
+ *
+ * Micro batching: with a maximum batch size configured, missing keys of all
+ * concurrent callers are collected into windows, see {@link CachedConfig}. Every
+ * window calls lookup once with its distinct keys.
+ *
+ * Single flight: concurrent misses of one key share one pending load, see
+ * {@link DeduplicateFlux}.
+ *
+ * Negative caching: with {@link CachedConfig#isNegativeCaching()} keys the lookup did
+ * not return are stored as tombstones. Requests of such keys complete without value
+ * and without lookup until the tombstone expires.
+ *
+ * Failures: {@link CachedConfig#getLookupTimeout()} bounds every lookup call. With
+ * {@link CachedConfig#isIsolatingFailures()} a failed lookup call is retried key by
+ * key for the keys it did not return, keys still failing complete without value.
+ * A call failing by timeout or connection failure is not retried key by key, its keys
+ * fail at once.
+ * With {@link CachedConfig#isStaleIfError()} stale values are returned at once and
+ * kept while their background reloads fail.
+ *
+ * Ordering and concurrency: entries are emitted as they become available by default.
+ * With {@link CachedConfig#isOrderedResults()} they are emitted in the order of the
+ * requested keys, {@link CachedConfig#getMaxConcurrency()} bounds the chunks of keys
+ * resolved at once, so memory stays flat on long key streams.
+ *
+ * With micro batching the windows of keys are collected by a permanent subscription,
+ * {@link #dispose()} a cached lookup no longer used.
+ *
+ */
+@Slf4j
+public class Cached<K, T> implements Disposable {
     @NonNull
     ReactorResourceFactory reactorResourceFactory;
 
-    final FluxCache<T> cache;
+    final FluxCache<K, T> cache;
 
     final Function<Flux<K>, Flux<Map.Entry<K,T>>> lookup;
 
-    private Function<K, String> toCacheKey;
-    private Function<String, K> fromCacheKey;
+    final CachedConfig config;
 
-    private K fromCacheEntry(CacheEntry<String, T> entry) {
-        return fromCacheKey.apply(entry.getKey());
-    }
+    //Shared by all callers if micro batching is enabled
+    private final BatchLoader<K, CacheEntry<K, T>> batchLoader;
+
+    private final DeduplicateFlux<K, CacheEntry<K, T>> singleFlight;
+
+    //Keys with a background reload in progress
+    private final Set<K> refreshing = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean disposed;
 
     private Cached(
         ReactorResourceFactory reactorResourceFactory, 
-        Function<K, String> toCacheKey, 
-        Function<String, K> fromCacheKey, 
         Function<Flux<K>, Flux<Map.Entry<K,T>>> lookup,
-        FluxCache<T> cache   
+        FluxCache<K, T> cache,
+        CachedConfig config
     ) {
         this.reactorResourceFactory = reactorResourceFactory;
-        this.toCacheKey = toCacheKey;
-        this.fromCacheKey = fromCacheKey;
         this.lookup = lookup;
         this.cache = cache;
+        this.config = config;
+        this.batchLoader = config.isBatching()
+            ? new BatchLoader<>(this::lookupAndPut, CacheEntry::getKey, config.getMaxBatchSize(), config.getMaxBatchLinger())
+            : null;
+        this.singleFlight = new DeduplicateFlux<>(this::loadUnshared, CacheEntry::getKey);
     }
 
-    private Cached(ReactorResourceFactory reactorResourceFactory, Function<K, String> toCacheKey, Function<String, K> fromCacheKey, Function<Flux<K>, Flux<Map.Entry<K,T>>> lookup) {
-        this(
-            reactorResourceFactory, 
-            toCacheKey, 
-            fromCacheKey, 
+    /**
+     * Cache keys converted to strings.
+     *
+     * @deprecated keys are cached as they are, use {@link #build(ReactorResourceFactory, Function)}
+     */
+    @Deprecated
+    public static <K, T> Cached<K, T> build(ReactorResourceFactory reactorResourceFactory, Function<K, String> toCacheKey, Function<String, K> fromCacheKey, Function<Flux<K>, Flux<Map.Entry<K,T>>> lookup) {
+        return new Cached<>(
+            reactorResourceFactory,
             lookup,
-            new FluxCacheImpl<>(reactorResourceFactory.getLoopResources())
+            new KeyMappingFluxCache<>(new FluxCacheImpl<>(reactorResourceFactory.getLoopResources()), toCacheKey, fromCacheKey),
+            CachedConfig.DEFAULT
         );
     }
 
-    public static <K, T> Cached<K, T> build(ReactorResourceFactory reactorResourceFactory, Function<K, String> toCacheKey, Function<String, K> fromCacheKey, Function<Flux<K>, Flux<Map.Entry<K,T>>> lookup) {
-        return new Cached<>(reactorResourceFactory, toCacheKey, fromCacheKey, lookup);
+    public static <K, T> Cached<K, T> build(ReactorResourceFactory reactorResourceFactory, Function<Flux<K>, Flux<Map.Entry<K,T>>> lookup) {
+        return new Cached<>(reactorResourceFactory, lookup, new FluxCacheImpl<>(reactorResourceFactory.getLoopResources()), CachedConfig.DEFAULT);
+    }
+
+    public static <K, T> Cached<K, T> build(ReactorResourceFactory reactorResourceFactory, Function<Flux<K>, Flux<Map.Entry<K,T>>> lookup, @NonNull FluxCache<K, T> cache) {
+        return new Cached<>(reactorResourceFactory, lookup, cache, CachedConfig.DEFAULT);
+    }
+
+    public static <K, T> Cached<K, T> build(ReactorResourceFactory reactorResourceFactory, Function<Flux<K>, Flux<Map.Entry<K,T>>> lookup, @NonNull FluxCache<K, T> cache, @NonNull CachedConfig config) {
+        return new Cached<>(reactorResourceFactory, lookup, cache, config);
     }
 
     public Flux<Map.Entry<K, T>> getAll(Flux<K> keyFlux) {
+        if (config.isOrderedResults() || config.isBoundedConcurrency()) {
+            return getAllChunked(keyFlux);
+        }
         return keyFlux
-            .map(toCacheKey::apply)
             .transform(this::getFromCache)
-            .groupBy(
-                cacheEntry -> cacheEntry.isEmpty() || cacheEntry.isEntryExpired()
-            ).flatMap(
-                groupedFlux -> {
-                    if (groupedFlux.key()) {
-                        //Lookup values for keys
-                        return  
-                            groupedFlux.map(this::fromCacheEntry)
-                                .distinct()
-                                .transform(lookup)                              
-                                .transform(
-                                    this::put
-                                );
-                    } else {
-                        //Values
-                        return groupedFlux;                                
+            //Known to have no value
+            .filter(cacheEntry -> !cacheEntry.isAbsent())
+            .groupBy(this::lookupOf)
+            .flatMap(
+                groupedFlux -> switch (groupedFlux.key()) {
+                    //Lookup values for keys
+                    case MISSING -> groupedFlux.map(CacheEntry::getKey)
+                        .distinct()
+                        .transform(this::load)
+                        .filter(cacheEntry -> !cacheEntry.isEmpty());
+                    //Values, stale values are reloaded in the background
+                    case CACHED -> groupedFlux
+                        .doOnNext(cacheEntry -> {
+                            if (cacheEntry.isValueExpired(cache.getTicker().read())) {
+                                refresh(cacheEntry.getKey());
+                            }
+                        });
+                }
+            ).map(cacheEntry -> KeyValueHolder.of(cacheEntry.getKey(), cacheEntry.getValue()));
+    }
+
+    private Flux<Map.Entry<K, T>> getAllChunked(Flux<K> keyFlux) {
+        var concurrency = config.isBoundedConcurrency() ? config.getMaxConcurrency() : Queues.SMALL_BUFFER_SIZE;
+        //Fair backpressure: keys are read only as chunks complete
+        var chunkFlux = keyFlux.bufferTimeout(config.getMaxChunkSize(), config.getMaxChunkLinger(), true);
+        var entryFlux = config.isOrderedResults()
+            ? chunkFlux.flatMapSequential(this::getChunk, concurrency, config.getPrefetch())
+            : chunkFlux.flatMap(this::getChunk, concurrency, config.getPrefetch());
+        return entryFlux.map(cacheEntry -> KeyValueHolder.of(cacheEntry.getKey(), cacheEntry.getValue()));
+    }
+
+    private Flux<CacheEntry<K, T>> getChunk(List<K> keys) {
+        return cache.getAll(keys).flatMapMany(cacheEntries -> {
+            Set<K> loading = new LinkedHashSet<>();
+            var now = cache.getTicker().read();
+            for (var cacheEntry : cacheEntries) {
+                if (cacheEntry.isAbsent()) {
+                    continue;
+                }
+                switch (lookupOf(cacheEntry)) {
+                    case MISSING -> loading.add(cacheEntry.getKey());
+                    case CACHED -> {
+                        if (cacheEntry.isValueExpired(now)) {
+                            refresh(cacheEntry.getKey());
+                        }
                     }
                 }
-            ).map(cacheEntry -> KeyValueHolder.of(fromCacheEntry(cacheEntry), cacheEntry.getValue()));
+            }
+            if (loading.isEmpty()) {
+                return Flux.fromIterable(cacheEntries)
+                    .filter(cacheEntry -> !cacheEntry.isEmpty());
+            }
+            return Flux.fromIterable(loading)
+                .transform(this::load)
+                .collectMap(CacheEntry::getKey)
+                //Entries in the order of the keys
+                .flatMapMany(loaded -> Flux.fromIterable(cacheEntries)
+                    .mapNotNull(cacheEntry -> loading.contains(cacheEntry.getKey())
+                        ? loaded.get(cacheEntry.getKey())
+                        : cacheEntry
+                    )
+                    .filter(cacheEntry -> !cacheEntry.isEmpty())
+                );
+        });
+    }
+
+    private Lookup lookupOf(CacheEntry<K, T> cacheEntry) {
+        //Cache maps return expired entries as empty, stale values are reloaded in the background
+        return cacheEntry.isEmpty() ? Lookup.MISSING : Lookup.CACHED;
+    }
+
+    /**
+     * Stop collecting windows of keys for micro batching, loads pending or started
+     * later fail.
+     */
+    @Override
+    public void dispose() {
+        disposed = true;
+        if (batchLoader != null) {
+            batchLoader.dispose();
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    protected void refresh(K key) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        log.debug("Refresh: Key: {}", key);
+        Flux.just(key)
+            .transform(this::load)
+            .doFinally(signal -> refreshing.remove(key))
+            .subscribe(
+                null,
+                throwable -> log.warn("Refresh of key {} failed, keeping stale value.", key, throwable)
+            );
+    }
+
+    /**
+     * Load the keys, joining loads of the same keys in flight.
+     */
+    protected Flux<CacheEntry<K, T>> load(Flux<K> keyFlux) {
+        return singleFlight.deduplicate(keyFlux);
+    }
+
+    /**
+     * Cache of the loaded values, e.g. to inspect or invalidate entries.
+     */
+    public FluxCache<K, T> getCache() {
+        return cache;
+    }
+
+    /**
+     * Number of keys loaded by lookup.
+     */
+    public long getLoadCount() {
+        return singleFlight.getLoadCount();
+    }
+
+    /**
+     * Number of missing keys served by a load already in flight.
+     */
+    public long getCoalescedCount() {
+        return singleFlight.getCoalescedCount();
+    }
+
+    /**
+     * Load the keys, through the shared batches if micro batching is enabled.
+     */
+    private Flux<CacheEntry<K, T>> loadUnshared(Flux<K> keyFlux) {
+        if (batchLoader == null) {
+            return keyFlux.transform(this::lookupAndPut);
+        }
+        return keyFlux.flatMap(batchLoader::load);
+    }
+
+    private Flux<CacheEntry<K, T>> lookupAndPut(Flux<K> keyFlux) {
+        if (config.isIsolatingFailures()) {
+            //A failing chunk must not cancel the keys still to come
+            return keyFlux
+                .bufferTimeout(config.getMaxChunkSize(), config.getMaxChunkLinger(), true)
+                .concatMap(this::lookupAndPutIsolated);
+        }
+        if (!config.isNegativeCaching()) {
+            return keyFlux
+                .transform(this::chunkedLookup)
+                .transform(this::put);
+        }
+        return Flux.defer(() -> {
+            //Keys requested and not returned by lookup so far
+            Set<K> missing = ConcurrentHashMap.newKeySet();
+            return keyFlux
+                .doOnNext(missing::add)
+                .transform(this::chunkedLookup)
+                .doOnNext(entry -> missing.remove(entry.getKey()))
+                .transform(this::put)
+                .concatWith(Flux.defer(() -> putTombstones(missing)).ignoreElements());
+        });
+    }
+
+    private Flux<CacheEntry<K, T>> lookupAndPutIsolated(List<K> keys) {
+        return Flux.defer(() -> {
+            //Keys requested and not returned by lookup so far
+            Set<K> missing = ConcurrentHashMap.newKeySet();
+            missing.addAll(keys);
+            List<CacheEntry<K, T>> failed = new CopyOnWriteArrayList<>();
+            Flux<Map.Entry<K, T>> lookupFlux = keys.size() == 1
+                ? lookupSingle(keys.get(0), failed).flux()
+                : Flux.fromIterable(keys)
+                    .transform(this::timedLookup)
+                    .onErrorResume(throwable -> {
+                        var keysLeft = List.copyOf(missing);
+                        if (isUnavailable(throwable)) {
+                            //Calls of single keys would fail the same way
+                            log.warn("Lookup of {} keys failed, failing {} keys.", keys.size(), keysLeft.size(), throwable);
+                            keysLeft.forEach(key -> fail(key, throwable, failed));
+                            return Flux.empty();
+                        }
+                        log.warn("Lookup of {} keys failed, retrying {} keys one by one.", keys.size(), keysLeft.size(), throwable);
+                        return Flux.fromIterable(keysLeft)
+                            .flatMap(key -> lookupSingle(key, failed), Math.max(1, config.getRetryConcurrency()));
+                    });
+            //Values returned before a failure are put as well
+            return lookupFlux
+                .doOnNext(entry -> missing.remove(entry.getKey()))
+                .transform(this::put)
+                .concatWith(Flux.defer(() -> {
+                    //Failed keys are neither returned nor known to be absent
+                    failed.forEach(entry -> missing.remove(entry.getKey()));
+                    return config.isNegativeCaching() ? putTombstones(missing).ignoreElements() : Flux.empty();
+                }))
+                .concatWith(Flux.defer(() -> Flux.fromIterable(failed)));
+        });
+    }
+
+    private Mono<Map.Entry<K, T>> lookupSingle(K key, List<CacheEntry<K, T>> failed) {
+        return Flux.just(key)
+            .transform(this::timedLookup)
+            .retryWhen(Retry.backoff(config.getMaxRetries(), config.getRetryBackoff())
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+            .next()
+            .onErrorResume(throwable -> {
+                log.warn("Lookup of key {} failed.", key, throwable);
+                fail(key, throwable, failed);
+                return Mono.empty();
+            });
+    }
+
+    private void fail(K key, Throwable throwable, List<CacheEntry<K, T>> failed) {
+        config.getLoadFailureListener().accept(key, throwable);
+        failed.add(new FailedEntry<>(key, throwable));
+    }
+
+    /**
+     * Failure of the backend rather than of single keys: a timeout or a failed connection.
+     */
+    private static boolean isUnavailable(Throwable throwable) {
+        for (var cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof ConnectException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
     }
 
-    private Flux<CacheEntry<String, T>> getFromCache(Flux<String> keyFlux) {
+    private Flux<Map.Entry<K, T>> chunkedLookup(Flux<K> keyFlux) {
+        if (config.getLookupTimeout() == null) {
+            return timedLookup(keyFlux);
+        }
+        //The deadline bounds one backend call, not the key stream of the caller
         return keyFlux
-                .transform(cache::get);
+            .bufferTimeout(config.getMaxChunkSize(), config.getMaxChunkLinger(), true)
+            .concatMap(keys -> Flux.fromIterable(keys).transform(this::timedLookup));
     }
 
-    protected Flux<CacheEntry<String, T>> put(Flux<Map.Entry<K, T>> entryFlux) {
-        return entryFlux
-                .map(entry -> KeyValueHolder.of(toCacheKey.apply(entry.getKey()), entry.getValue()))
-                .transform(cache::put);
+    private Flux<Map.Entry<K, T>> timedLookup(Flux<K> keyFlux) {
+        var statsCounter = config.getStatsCounter();
+        var timeout = config.getLookupTimeout();
+        return Flux.defer(() -> {
+            var start = Ticker.system().read();
+            var lookupFlux = keyFlux.transform(lookup);
+            if (timeout != null) {
+                //One deadline for the whole call, not per value
+                var deadline = Mono.delay(timeout).cache();
+                lookupFlux = lookupFlux.timeout(deadline, entry -> deadline);
+            }
+            return lookupFlux
+                .doOnComplete(() -> statsCounter.recordLoadSuccess(Ticker.system().read() - start))
+                .doOnError(throwable -> statsCounter.recordLoadFailure(Ticker.system().read() - start));
+        });
+    }
+
+    protected Flux<CacheEntry<K, T>> putTombstones(Collection<K> keys) {
+        log.debug("Put tombstones: Keys: {}", keys);
+        return Flux.fromIterable(keys)
+            .transform(cache::putTombstones);
+    }
+
+    private Flux<CacheEntry<K, T>> getFromCache(Flux<K> keyFlux) {
+        //One cache task per chunk of keys
+        return cache.get(keyFlux, config.getMaxChunkSize(), config.getMaxChunkLinger());
+    }
+
+    protected Flux<CacheEntry<K, T>> put(Flux<Map.Entry<K, T>> entryFlux) {
+        return cache.put(entryFlux, config.getMaxChunkSize(), config.getMaxChunkLinger());
+    }
+
+    private enum Lookup {
+        MISSING, CACHED
+    }
+
+    /**
+     * Result of a key failing its lookup, empty and never put into the cache.
+     */
+    private record FailedEntry<K, T>(K key, Throwable failure) implements CacheEntry<K, T> {
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public T getValue() {
+            return null;
+        }
+
+        @Override
+        public T setValue(T value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant getEntryExpiresAt() {
+            return null;
+        }
+
+        @Override
+        public Instant getValueExpiresAt() {
+            return null;
+        }
     }
 }
 
@@ -16,6 +16,157 @@
 
  package io.github.d_sch.webfluxcached.common.cached;
 
+import java.time.Duration;
+import java.util.function.BiConsumer;
+
+import io.github.d_sch.webfluxcached.common.cache.StatsCounter;
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Getter;
+
+/**
+ * CachedConfig
+ *
+ * Options of {@link Cached}, the defaults keep every option disabled.
+ *
+ */
+@Builder
+@Getter
 public class CachedConfig { 
-    
+
+    public static final CachedConfig DEFAULT = CachedConfig.builder().build();
+
+    /**
+     * Maximum number of missing keys of all concurrent callers loaded by one lookup,
+     * micro batching is disabled if not positive.
+     */
+    @Default
+    private int maxBatchSize = 0;
+
+    /**
+     * Maximum time a missing key waits for the batch to fill up.
+     */
+    @Default
+    private Duration maxBatchLinger = Duration.ofMillis(5);
+
+    /**
+     * Maximum number of keys read from or written to the cache by one bulk operation.
+     */
+    @Default
+    private int maxChunkSize = 256;
+
+    /**
+     * Maximum time a key waits for its chunk to fill up, chunks of keys available
+     * at once are not delayed.
+     */
+    @Default
+    private Duration maxChunkLinger = Duration.ofMillis(1);
+
+    /**
+     * Store a tombstone for every key the lookup did not return, later requests of the
+     * key are answered without lookup until the tombstone expires. Requires a cache map
+     * with negative caching, e.g. a {@link io.github.d_sch.webfluxcached.common.cache.internal.LRUCacheMap}
+     * with maximum tombstones.
+     */
+    @Default
+    private boolean negativeCaching = false;
+
+    /**
+     * Statistics of loads, e.g. a {@link io.github.d_sch.webfluxcached.common.cache.impl.MicrometerStatsCounter}.
+     */
+    @Default
+    private StatsCounter statsCounter = StatsCounter.disabled();
+
+    /**
+     * Maximum duration of one lookup call, unlimited if null. A lookup exceeding it
+     * fails with a {@link java.util.concurrent.TimeoutException}. With a timeout missing
+     * keys are looked up in chunks of {@link #maxChunkSize}, so a slow key stream does
+     * not count against the deadline.
+     */
+    @Default
+    private Duration lookupTimeout = null;
+
+    /**
+     * Isolate failures of single keys: keys of a failed lookup call not returned so far
+     * are looked up again one by one, keys already returned are kept. Keys still failing
+     * are reported to the {@link #loadFailureListener} and complete without value
+     * instead of failing the callers of other keys. Keys of a call failing by timeout
+     * or connection failure are reported at once without being looked up again.
+     */
+    @Default
+    private boolean isolatingFailures = false;
+
+    /**
+     * Maximum number of keys of a failed lookup call looked up again at once.
+     */
+    @Default
+    private int retryConcurrency = 1;
+
+    /**
+     * Number of retries of a key looked up on its own, with exponential backoff.
+     */
+    @Default
+    private int maxRetries = 0;
+
+    /**
+     * Minimum backoff before the first retry of a key.
+     */
+    @Default
+    private Duration retryBackoff = Duration.ofMillis(100);
+
+    /**
+     * Return the last known value of a key while its lookup fails. Values older than
+     * their value expiration are returned at once and reloaded in the background, like
+     * refresh ahead, callers never wait for a reload. A failed reload keeps the stale
+     * value until the entry expires. Requires a cache map keeping expired values, e.g.
+     * {@link io.github.d_sch.webfluxcached.common.cache.impl.FluxCacheImpl#refreshAheadCacheMap},
+     * and isolates failures of single keys, so failures of other keys of a reload do not
+     * fail it.
+     */
+    @Default
+    private boolean staleIfError = false;
+
+    /**
+     * Notified of every key failing its lookup, with failures isolated.
+     */
+    @Default
+    private BiConsumer<Object, Throwable> loadFailureListener = (key, throwable) -> {};
+
+    /**
+     * Emit the entries of {@link Cached#getAll} in the order of the requested keys,
+     * one entry per requested key with value. Chunks of keys are resolved concurrently,
+     * entries of chunks completed early wait in a reorder buffer of at most
+     * {@link #maxConcurrency} chunks.
+     */
+    @Default
+    private boolean orderedResults = false;
+
+    /**
+     * Maximum number of chunks of keys resolved concurrently by one {@link Cached#getAll}
+     * call, unbounded if not positive. Chunks are read from the key stream only as
+     * concurrency becomes available.
+     *
+     * Bounds chunks, not lookups: loads are shared with other callers of the same keys
+     * and run detached, a lookup keeps running after its chunk completed or was cancelled.
+     */
+    @Default
+    private int maxConcurrency = 0;
+
+    /**
+     * Number of entries requested ahead from every chunk in flight.
+     */
+    @Default
+    private int prefetch = 32;
+
+    public boolean isBatching() {
+        return maxBatchSize > 0;
+    }
+
+    public boolean isBoundedConcurrency() {
+        return maxConcurrency > 0;
+    }
+
+    public boolean isIsolatingFailures() {
+        return isolatingFailures || staleIfError;
+    }
 }
@@ -16,92 +16,145 @@
 
 package io.github.d_sch.webfluxcached.common.cached;
 
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
-import io.github.d_sch.webfluxcached.common.SchedulerContext;
+import io.github.d_sch.webfluxcached.common.SerializedSink;
 import lombok.NonNull;
-import reactor.core.Disposable;
+import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
-import reactor.netty.resources.LoopResources;
-import reactor.util.function.Tuples;
-
-//Ensure single        
-public class DeduplicateFlux<K, T> implements Disposable {
-        
-    @NonNull
-    LoopResources loopResources = LoopResources.create("prefix");
-
-    Map<K, Sinks.One<Map.Entry<K, T>>> resultSinkMap;            
-    Sinks.Many<Map.Entry<K, Sinks.One<T>>> distinctSink;
-
-    Disposable distinctResultFlux;
-
-    SchedulerContext schedulerContext = SchedulerContext.EXECUTOR_BUILDER.apply(
-        loopResources.onServer(true).next(),
-        loopResources.onServer(true)
-    );
-
-    public DeduplicateFlux(LoopResources loopResources, Function<Flux<K>, Flux<Map.Entry<K, T>>> target) {
-        this.loopResources = loopResources;
-        distinctSink = Sinks.many().unicast().onBackpressureBuffer();                
-        distinctResultFlux = 
-            distinctSink
-                .asFlux()
-                .map(
-                    tuple -> {
-                        tuple.getValue()
-                            .asMono()
-                            .subscribe(
-                                ignore -> {}, 
-                                ignore -> {}, 
-                                () -> resultSinkMap.remove(tuple.getKey())
-                            );
-                        return tuple.getKey();
-                    }
-                ).transform(target)
-                .subscribe(
-                    tuple -> {
-                        resultSinkMap.get(tuple.getKey()).emitValue(tuple, Sinks.EmitFailureHandler.FAIL_FAST);
-                    }
-                );                
+
+/**
+ * DeduplicateFlux
+ *
+ * Single flight loading: concurrent requests of one key share one pending load.
+ *
+ * A key not in flight is claimed by the requesting subscription and loaded with the
+ * other keys it claims by one call of the target. A key already in flight waits for
+ * the pending result instead. Results, empty completions and errors fan out to every
+ * waiter of a key.
+ *
+ * The load runs independently of the claiming subscription: cancelling it completes
+ * the keys handed to the target but does not cancel the load, so other waiters are
+ * still served. Keys are released as soon as their result is published.
+ *
+ */
+@Slf4j
+public class DeduplicateFlux<K, R> {
+
+    private final Function<Flux<K>, Flux<R>> target;
+    private final Function<R, K> keyOf;
+
+    private final ConcurrentMap<K, Sinks.One<R>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder coalescedCount = new LongAdder();
+
+    public DeduplicateFlux(@NonNull Function<Flux<K>, Flux<R>> target, @NonNull Function<R, K> keyOf) {
+        this.target = target;
+        this.keyOf = keyOf;
     }
 
-    protected Flux<Map.Entry<K, T>> deduplicate(Flux<K> flux) {
-        return flux.transform(
-            fluxBefore -> this.schedulerContext.transform(fluxBefore, inFlux -> dedup(resultSinkMap, fluxBefore, distinctSink))
-        );
+    /**
+     * Number of keys loaded by the target.
+     */
+    public long getLoadCount() {
+        return loadCount.sum();
     }
 
-    protected static <K, T> Flux<Map.Entry<K, T>> dedup(Map<K, Sinks.One<Map.Entry<K, T>>> resultSinkMap, Flux<K> inFlux, Sinks.Many<Map.Entry<K, Sinks.One<T>>> outSink) {
-        return inFlux.map(key -> 
-            Tuples.of(key, resultSinkMap.containsKey(key))
-        ).groupBy(
-            x -> x.getT2(),
-            x -> x.getT1()
-        ).flatMap(x -> {                
-            if (x.key()) {                        
-                return x.flatMap(key -> resultSinkMap.get(key).asMono());
-            } else {
-                return x.flatMap(key -> {
-                    Sinks.One<Map.Entry<K, T>> sink = Sinks.one();                            
-                    sink = resultSinkMap.putIfAbsent(key, sink);
-                    sink
-                        .asMono()
-                        .subscribe(
-                            ignore -> {}, 
-                            ignore -> {}, 
-                            () -> resultSinkMap.remove(key)
-                        );
-                    return sink.asMono();                            
-                });
-            }
-        });
+    /**
+     * Number of key requests served by a load already in flight.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    public Flux<R> deduplicate(Flux<K> keyFlux) {
+        return Flux.defer(() -> new Claims().results(keyFlux));
     }
 
-    @Override
-    public void dispose() {
-        distinctResultFlux.dispose();
+    /**
+     * Keys claimed by one subscription and their load.
+     */
+    private class Claims {
+
+        private final SerializedSink<K> keys = SerializedSink.unicast();
+        private final ConcurrentMap<K, Sinks.One<R>> claimed = new ConcurrentHashMap<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private volatile boolean terminated;
+        private boolean loading;
+
+        Flux<R> results(Flux<K> keyFlux) {
+            return keyFlux
+                //Complete the keys of the load, also if cancelled
+                .doFinally(signal -> keys.emitComplete())
+                .flatMap(this::request);
+        }
+
+        private Mono<R> request(K key) {
+            var pending = Sinks.<R>one();
+            var current = inFlight.putIfAbsent(key, pending);
+            if (current != null) {
+                coalescedCount.increment();
+                log.debug("Join load in flight: Key: {}", key);
+                return current.asMono();
+            }
+            loadCount.increment();
+            claimed.put(key, pending);
+            if (!loading) {
+                loading = true;
+                load();
+            }
+            keys.emitNext(key);
+            //Load already terminated, keys claimed after it settled its keys fail here
+            if (terminated) {
+                release(key, pending);
+                var throwable = failure.get();
+                pending.tryEmitError(throwable != null
+                    ? throwable
+                    : new IllegalStateException("Load terminated before key was requested: " + key)
+                );
+            }
+            return pending.asMono();
+        }
+
+        private void load() {
+            Flux.defer(() -> target.apply(keys.asFlux()))
+                .subscribe(
+                    result -> {
+                        var key = keyOf.apply(result);
+                        var pending = claimed.get(key);
+                        if (pending != null) {
+                            release(key, pending);
+                            pending.tryEmitValue(result);
+                        }
+                    },
+                    throwable -> {
+                        failure.set(throwable);
+                        terminated = true;
+                        claimed.forEach((key, pending) -> {
+                            release(key, pending);
+                            pending.tryEmitError(throwable);
+                        });
+                    },
+                    () -> {
+                        terminated = true;
+                        claimed.forEach((key, pending) -> {
+                            release(key, pending);
+                            pending.tryEmitEmpty();
+                        });
+                    }
+                );
+        }
+
+        private void release(K key, Sinks.One<R> pending) {
+            claimed.remove(key, pending);
+            inFlight.remove(key, pending);
+        }
     }
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2021 - 2023 d-sch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and,
+ * limitations under the License.
+ */
+
+package io.github.d_sch.webfluxcached.common.cached;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxcached.common.cache.CacheSettings;
+import io.github.d_sch.webfluxcached.common.cache.Ticker;
+import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import lombok.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * KeyMappingFluxCache
+ *
+ * View of a cache with string keys using the key type of the caller, keys are
+ * converted on every access. Keeps {@link Cached} instances built with key
+ * conversion functions working.
+ *
+ */
+class KeyMappingFluxCache<K, T> implements FluxCache<K, T> {
+
+    private final FluxCache<String, T> cache;
+    private final Function<K, String> toCacheKey;
+    private final Function<String, K> fromCacheKey;
+
+    KeyMappingFluxCache(FluxCache<String, T> cache, Function<K, String> toCacheKey, Function<String, K> fromCacheKey) {
+        this.cache = cache;
+        this.toCacheKey = toCacheKey;
+        this.fromCacheKey = fromCacheKey;
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> get(Flux<K> keys) {
+        return keys
+            .map(toCacheKey::apply)
+            .transform(cache::get)
+            .map(this::fromCacheEntry);
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> put(Flux<Map.Entry<K, T>> entries) {
+        return entries
+            .<Map.Entry<String, T>>map(entry -> KeyValueHolder.of(toCacheKey.apply(entry.getKey()), entry.getValue()))
+            .transform(cache::put)
+            .map(this::fromCacheEntry);
+    }
+
+    @Override
+    public Mono<List<CacheEntry<K, T>>> getAll(@NonNull Collection<K> keys) {
+        var cacheKeys = new ArrayList<String>(keys.size());
+        for (var key : keys) {
+            cacheKeys.add(toCacheKey.apply(key));
+        }
+        return cache.getAll(cacheKeys).map(this::fromCacheEntries);
+    }
+
+    @Override
+    public Mono<List<CacheEntry<K, T>>> putAll(@NonNull Collection<? extends Map.Entry<K, T>> entries) {
+        var cacheEntries = new ArrayList<Map.Entry<String, T>>(entries.size());
+        for (var entry : entries) {
+            cacheEntries.add(KeyValueHolder.of(toCacheKey.apply(entry.getKey()), entry.getValue()));
+        }
+        return cache.putAll(cacheEntries).map(this::fromCacheEntries);
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> get(Flux<K> keys, int maxChunkSize, Duration maxChunkLinger) {
+        return keys
+            .map(toCacheKey::apply)
+            .transform(cacheKeys -> cache.get(cacheKeys, maxChunkSize, maxChunkLinger))
+            .map(this::fromCacheEntry);
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> put(Flux<Map.Entry<K, T>> entries, int maxChunkSize, Duration maxChunkLinger) {
+        return entries
+            .<Map.Entry<String, T>>map(entry -> KeyValueHolder.of(toCacheKey.apply(entry.getKey()), entry.getValue()))
+            .transform(cacheEntries -> cache.put(cacheEntries, maxChunkSize, maxChunkLinger))
+            .map(this::fromCacheEntry);
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> putTombstones(Flux<K> keys) {
+        return keys
+            .map(toCacheKey::apply)
+            .transform(cache::putTombstones)
+            .map(this::fromCacheEntry);
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> invalidate(Flux<K> keys) {
+        return keys
+            .map(toCacheKey::apply)
+            .transform(cache::invalidate)
+            .map(this::fromCacheEntry);
+    }
+
+    @Override
+    public Mono<Void> invalidateAll() {
+        return cache.invalidateAll();
+    }
+
+    @Override
+    public Flux<CacheEntry<K, T>> entries(int limit) {
+        return cache.entries(limit)
+            .map(this::fromCacheEntry);
+    }
+
+    @Override
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public Ticker getTicker() {
+        return cache.getTicker();
+    }
+
+    @Override
+    public CacheSettings getSettings() {
+        return cache.getSettings();
+    }
+
+    private List<CacheEntry<K, T>> fromCacheEntries(List<CacheEntry<String, T>> entries) {
+        var result = new ArrayList<CacheEntry<K, T>>(entries.size());
+        for (var entry : entries) {
+            result.add(fromCacheEntry(entry));
+        }
+        return result;
+    }
+
+    private CacheEntry<K, T> fromCacheEntry(CacheEntry<String, T> entry) {
+        return new MappedCacheEntry<>(fromCacheKey.apply(entry.getKey()), entry);
+    }
+
+    private record MappedCacheEntry<K, T>(K key, CacheEntry<String, T> entry) implements CacheEntry<K, T> {
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public T getValue() {
+            return entry.getValue();
+        }
+
+        @Override
+        public T setValue(T value) {
+            return entry.setValue(value);
+        }
+
+        @Override
+        public Instant getEntryExpiresAt() {
+            return entry.getEntryExpiresAt();
+        }
+
+        @Override
+        public Instant getValueExpiresAt() {
+            return entry.getValueExpiresAt();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return entry.isEmpty();
+        }
+
+        @Override
+        public boolean isAbsent() {
+            return entry.isAbsent();
+        }
+
+        @Override
+        public boolean isEntryExpired() {
+            return entry.isEntryExpired();
+        }
+
+        @Override
+        public boolean isValueExpired() {
+            return entry.isValueExpired();
+        }
+
+        @Override
+        public boolean isEntryExpired(long now) {
+            return entry.isEntryExpired(now);
+        }
+
+        @Override
+        public boolean isValueExpired(long now) {
+            return entry.isValueExpired(now);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.d_sch.webfluxcached;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.d_sch.webfluxcached.common.cache.impl.FluxCacheImpl;
+import io.github.d_sch.webfluxcached.common.cache.trace.AccessTrace;
+import io.github.d_sch.webfluxcached.common.cache.trace.AccessTraceRecorder;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+public class AccessTraceRecorderTest {
+
+    private final LoopResources loopResources = LoopResources.create("prefix");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Gets of the cache are written to the trace in order with their key hashes")
+    public void record_writesGetsToTrace() throws IOException {
+        // Arrange
+        var path = directory.resolve("cache.trace");
+        var cache = new FluxCacheImpl<String, Integer>(loopResources);
+        var recorder = AccessTraceRecorder.<String>open(path);
+        cache.setTraceRecorder(recorder);
+
+        // Act
+        StepVerifier.create(cache.get(Flux.just("K1", "K2", "K1")))
+            .expectNextCount(3)
+            .verifyComplete();
+        StepVerifier.create(cache.getAll(List.of("K3")))
+            .expectNextCount(1)
+            .verifyComplete();
+        recorder.dispose();
+
+        // Assert
+        var hashes = new ArrayList<Long>();
+        var times = new ArrayList<Long>();
+        assertEquals(4, AccessTrace.read(path, (keyHash, time) -> {
+            hashes.add(keyHash);
+            times.add(time);
+        }));
+        assertEquals(List.of(AccessTraceRecorder.hash("K1"), AccessTraceRecorder.hash("K2"), AccessTraceRecorder.hash("K1"), AccessTraceRecorder.hash("K3")), hashes);
+        assertEquals(0L, times.get(0));
+        assertTrue(times.get(3) >= times.get(0));
+        assertEquals(4, recorder.getWrittenCount());
+    }
+
+    @Test
+    @DisplayName("Accesses overwritten in the ring buffer before a flush are dropped and counted")
+    public void record_dropsOverwrittenAccesses() throws IOException {
+        // Arrange: a buffer of 8 accesses flushed manually
+        var path = directory.resolve("small.trace");
+        var recorder = AccessTraceRecorder.<Integer>open(path, 8, Duration.ofHours(1), key -> key);
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            recorder.record(i);
+        }
+        recorder.flush();
+        recorder.record(20);
+        recorder.dispose();
+
+        // Assert: the latest accesses are kept
+        var hashes = new ArrayList<Long>();
+        AccessTrace.read(path, (keyHash, time) -> hashes.add(keyHash));
+        assertEquals(List.of(12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L, 20L), hashes);
+        assertEquals(12, recorder.getDroppedCount());
+        assertEquals(21, recorder.getRecordedCount());
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.d_sch.webfluxcached;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import io.github.d_sch.webfluxcached.common.cache.RemovalCause;
+import io.github.d_sch.webfluxcached.common.cache.impl.FluxCacheImpl;
+import io.github.d_sch.webfluxcached.common.cache.internal.ArrayLRUCacheMap;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+public class ArrayLRUCacheMapTest {
+
+    @Test
+    @DisplayName("Random gets and puts match an access ordered LinkedHashMap of the same maximum size")
+    public void randomAccess_matchesLinkedHashMap() {
+        // Arrange: the arrays grow from 16 entries up to the maximum size
+        var maximumSize = 500;
+        var cacheMap = ArrayLRUCacheMap.<Integer, Integer>builder()
+            .maximumSize(maximumSize)
+            .build();
+        var reference = new LinkedHashMap<Integer, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > maximumSize;
+            }
+        };
+        var random = new Random(42);
+
+        // Act & Assert
+        for (int i = 0; i < 100_000; i++) {
+            var key = random.nextInt(2_000);
+            if (random.nextBoolean()) {
+                cacheMap.put(key, i);
+                reference.put(key, i);
+            } else {
+                assertEquals(reference.get(key), cacheMap.get(key).getValue());
+            }
+        }
+        assertEquals(reference.size(), cacheMap.size());
+        for (var entry : reference.entrySet()) {
+            assertEquals(entry.getValue(), cacheMap.get(entry.getKey()).getValue());
+        }
+    }
+
+    @Test
+    @DisplayName("Clean up removes the expired least recently used entries")
+    public void cleanUp_removesExpiredEntries() {
+        // Arrange
+        var time = new AtomicLong();
+        var removed = new ArrayList<String>();
+        var cacheMap = ArrayLRUCacheMap.<String, Integer>builder()
+            .ticker(time::get)
+            .entryExpirationChronoUnit(ChronoUnit.SECONDS)
+            .entryExpirationDuration(10)
+            .removalListener((key, value, cause) -> removed.add(key + ":" + cause))
+            .build();
+
+        cacheMap.put("K1", 1);
+        cacheMap.put("K2", 2);
+        cacheMap.put("K3", 3);
+        time.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        cacheMap.get("K1");
+        time.addAndGet(TimeUnit.SECONDS.toNanos(6));
+
+        // Act
+        cacheMap.cleanUp();
+
+        // Assert
+        assertEquals(List.of("K2:" + RemovalCause.EXPIRED, "K3:" + RemovalCause.EXPIRED), removed);
+        assertEquals(1, cacheMap.size());
+        assertFalse(cacheMap.get("K1").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Expired values are removed on get")
+    public void getExpiredValue_returnsEmptyEntry() {
+        var time = new AtomicLong();
+        var cacheMap = ArrayLRUCacheMap.<String, Integer>builder()
+            .ticker(time::get)
+            .valueExpirationChronoUnit(ChronoUnit.SECONDS)
+            .valueExpirationDuration(1)
+            .build();
+        cacheMap.put("Key", 1);
+        time.addAndGet(TimeUnit.SECONDS.toNanos(2));
+
+        assertTrue(cacheMap.get("Key").isEmpty());
+        assertEquals(0, cacheMap.size());
+        assertThrows(NullPointerException.class, () -> cacheMap.put("Key", null));
+    }
+
+    @Test
+    @DisplayName("FluxCacheImpl stores and returns entries of an ArrayLRUCacheMap")
+    public void fluxCacheImpl_withArrayCacheMap_storesEntries() {
+        var loopResources = LoopResources.create("prefix");
+        FluxCache<String, Integer> cache = new FluxCacheImpl<>(loopResources, ArrayLRUCacheMap.<String, Integer>builder().build());
+
+        StepVerifier.create(cache.put(Flux.just(KeyValueHolder.of("K1", 1), KeyValueHolder.of("K2", 2))))
+            .expectNextCount(2).verifyComplete();
+
+        StepVerifier.create(cache.get(Flux.just("K1", "K2")).map(CacheEntry::getValue))
+            .expectNext(1, 2)
+            .verifyComplete();
+    }
+}
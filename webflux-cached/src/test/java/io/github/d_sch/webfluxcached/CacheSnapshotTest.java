@@ -0,0 +1,157 @@
+package io.github.d_sch.webfluxcached;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxcached.common.cache.ValueCodec;
+import io.github.d_sch.webfluxcached.common.cache.impl.FluxCacheImpl;
+import io.github.d_sch.webfluxcached.common.cache.impl.JacksonValueCodec;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import io.github.d_sch.webfluxcached.common.cache.internal.LRUCacheMap;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+public class CacheSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private static LRUCacheMap<String, String> newCacheMap(AtomicLong time, List<String> removed) {
+        return LRUCacheMap.<String, String>builder()
+            .map(new HashMap<>())
+            .ticker(time::get)
+            .entryExpirationChronoUnit(ChronoUnit.MINUTES)
+            .entryExpirationDuration(10)
+            .maximumSize(3)
+            .removalListener((key, value, cause) -> removed.add(key))
+            .build();
+    }
+
+    @Test
+    @DisplayName("Snapshot restores entries not expired with their remaining time to live and order of use")
+    public void writeAndReadSnapshot_restoresEntries() throws IOException {
+        // Arrange: K1 expires before the snapshot, K2 is used after K3
+        var time = new AtomicLong();
+        var removed = new ArrayList<String>();
+        var cacheMap = newCacheMap(time, removed);
+        cacheMap.put("K1", "V1");
+        time.addAndGet(TimeUnit.MINUTES.toNanos(6));
+        cacheMap.put("K2", "V2");
+        cacheMap.put("K3", "V3");
+        cacheMap.get("K2");
+        time.addAndGet(TimeUnit.MINUTES.toNanos(5));
+        var path = directory.resolve("cache.snapshot");
+
+        // Act
+        var written = cacheMap.writeSnapshot(path, ValueCodec.string(), ValueCodec.string());
+        var restoredTime = new AtomicLong(-TimeUnit.DAYS.toNanos(3));
+        var restored = newCacheMap(restoredTime, removed);
+        var read = restored.readSnapshot(path, ValueCodec.string(), ValueCodec.string());
+
+        // Assert
+        assertEquals(2, written);
+        assertEquals(2, read);
+        assertTrue(restored.get("K1").isEmpty());
+        // K3 is least recently used and evicted first
+        restored.put("K4", "V4");
+        restored.put("K5", "V5");
+        assertEquals(List.of("K3"), removed);
+        // K2 keeps its remaining 5 minutes
+        restoredTime.addAndGet(TimeUnit.MINUTES.toNanos(5) + 1);
+        restored.cleanUp();
+        assertEquals(List.of("K3", "K2"), removed);
+    }
+
+    @Test
+    @DisplayName("Reading a file not written as snapshot fails")
+    public void readSnapshot_invalidFile_throws() throws IOException {
+        var path = Files.writeString(directory.resolve("invalid.snapshot"), "This is not a snapshot");
+        var cacheMap = newCacheMap(new AtomicLong(), new ArrayList<>());
+
+        assertThrows(IOException.class, () -> cacheMap.readSnapshot(path, ValueCodec.string(), ValueCodec.string()));
+    }
+
+    @Test
+    @DisplayName("FluxCacheImpl writes a snapshot read by a new cache")
+    public void fluxCacheImpl_snapshot_warmsUpNewCache() {
+        var loopResources = LoopResources.create("prefix");
+        var path = directory.resolve("flux.snapshot");
+        var codec = JacksonValueCodec.of(Integer.class);
+        var cache = new FluxCacheImpl<String, Integer>(loopResources);
+        StepVerifier.create(cache.put(Flux.just(KeyValueHolder.of("K1", 1), KeyValueHolder.of("K2", 2))))
+            .expectNextCount(2).verifyComplete();
+
+        StepVerifier.create(cache.writeSnapshot(path, ValueCodec.string(), codec))
+            .expectNext(2L)
+            .verifyComplete();
+
+        var restarted = new FluxCacheImpl<String, Integer>(loopResources);
+        StepVerifier.create(restarted.readSnapshot(path, ValueCodec.string(), codec))
+            .expectNext(2L)
+            .verifyComplete();
+        StepVerifier.create(restarted.get(Flux.just("K1", "K2")).map(CacheEntry::getValue))
+            .expectNext(1, 2)
+            .verifyComplete();
+        assertFalse(Files.exists(directory.resolve("flux.snapshot.tmp")));
+    }
+
+    @Test
+    @DisplayName("FluxCacheImpl snapshots span several chunks, a failed write deletes the temporary file")
+    public void fluxCacheImpl_snapshot_writesChunks() {
+        var loopResources = LoopResources.create("prefix");
+        var path = directory.resolve("chunks.snapshot");
+        var codec = JacksonValueCodec.of(Integer.class);
+        var cache = new FluxCacheImpl<String, Integer>(loopResources);
+        StepVerifier.create(cache.put(Flux.range(0, 2500).map(i -> KeyValueHolder.of("K" + i, i))))
+            .expectNextCount(2500).verifyComplete();
+
+        StepVerifier.create(cache.writeSnapshot(path, ValueCodec.string(), codec))
+            .expectNext(2500L)
+            .verifyComplete();
+        var restarted = new FluxCacheImpl<String, Integer>(loopResources);
+        StepVerifier.create(restarted.readSnapshot(path, ValueCodec.string(), codec))
+            .expectNext(2500L)
+            .verifyComplete();
+        StepVerifier.create(restarted.get(Flux.just("K0", "K2499")).map(CacheEntry::getValue))
+            .expectNext(0, 2499)
+            .verifyComplete();
+
+        var failing = new ValueCodec<Integer>() {
+            @Override
+            public byte[] encode(Integer value) {
+                if (value == 2000) {
+                    throw new IllegalStateException("Encode failed");
+                }
+                return codec.encode(value);
+            }
+
+            @Override
+            public Integer decode(byte[] bytes) {
+                return codec.decode(bytes);
+            }
+        };
+        var failed = directory.resolve("failed.snapshot");
+        StepVerifier.create(cache.writeSnapshot(failed, ValueCodec.string(), failing))
+            .verifyError(IllegalStateException.class);
+        assertFalse(Files.exists(failed));
+        assertFalse(Files.exists(directory.resolve("failed.snapshot.tmp")));
+    }
+}
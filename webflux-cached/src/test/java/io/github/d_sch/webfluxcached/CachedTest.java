@@ -6,7 +6,17 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.DisplayName;
 
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 import org.junit.jupiter.api.Test;
@@ -28,9 +38,15 @@ import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 
 import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxcached.common.cache.impl.FluxCacheImpl;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import io.github.d_sch.webfluxcached.common.cache.internal.LRUCacheMap;
+import io.github.d_sch.webfluxcached.common.cache.internal.LongLRUCacheMap;
 import io.github.d_sch.webfluxcached.common.cached.Cached;
+import io.github.d_sch.webfluxcached.common.cached.CachedConfig;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
 
 @ExtendWith(SpringExtension.class)
@@ -143,4 +159,429 @@ public class CachedTest {
             .expectError(NullPointerException.class).verify();
     }
 
+    @Test
+    @DisplayName("getAll with refresh ahead returns the stale value and reloads it once in the background")
+    public void getAll_withStaleValue_returnsStaleValueAndRefreshes() throws InterruptedException {
+        // Arrange: values are stale after 100 ms of the fake ticker, reloads wait for the release
+        var time = new AtomicLong();
+        var loads = new AtomicInteger();
+        var release = Sinks.empty();
+        var puts = new CountDownLatch(2);
+        Cached<String, Integer> cached = Cached.build(reactorResourceFactory,
+            keyFlux -> keyFlux.concatMap(k -> {
+                var version = loads.incrementAndGet();
+                return version == 1
+                    ? Mono.just(KeyValueHolder.of(k, version))
+                    : release.asMono().thenReturn(KeyValueHolder.of(k, version));
+            }),
+            refreshAheadCache(time, puts)
+        );
+        StepVerifier.create(cached.getAll(Flux.just("K")))
+            .expectNextMatches(e -> e.getValue() == 1)
+            .verifyComplete();
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(150));
+
+        // Act: stale reads while the reload is in progress
+        for (int i = 0; i < 5; i++) {
+            StepVerifier.create(cached.getAll(Flux.just("K")))
+                .expectNextMatches(e -> e.getValue() == 1)
+                .verifyComplete();
+        }
+        assertEquals(2, cached.getLoadCount());
+        release.tryEmitEmpty();
+        assertTrue(puts.await(5, TimeUnit.SECONDS));
+
+        // Assert: one reload, its value is returned afterwards
+        assertEquals(2, loads.get());
+        StepVerifier.create(cached.getAll(Flux.just("K")))
+            .expectNextMatches(e -> e.getValue() == 2)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("getAll with refresh ahead tells stale values by the ticker of the cache map")
+    public void getAll_withStaleValue_usesTickerOfCacheMap() throws InterruptedException {
+        // Arrange: values are stale after 100 ms of the fake ticker
+        var time = new AtomicLong();
+        var loads = new AtomicInteger();
+        var puts = new CountDownLatch(2);
+        Cached<String, Integer> cached = Cached.build(reactorResourceFactory,
+            keyFlux -> keyFlux.map(k -> KeyValueHolder.of(k, loads.incrementAndGet())),
+            refreshAheadCache(time, puts)
+        );
+        StepVerifier.create(cached.getAll(Flux.just("K")))
+            .expectNextMatches(e -> e.getValue() == 1)
+            .verifyComplete();
+
+        // Act & Assert: fresh until the ticker passes the value expiration, a reload is
+        // started by the read finding the stale value
+        StepVerifier.create(cached.getAll(Flux.just("K")))
+            .expectNextMatches(e -> e.getValue() == 1)
+            .verifyComplete();
+        assertEquals(1, cached.getLoadCount());
+
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(150));
+        StepVerifier.create(cached.getAll(Flux.just("K")))
+            .expectNextMatches(e -> e.getValue() == 1)
+            .verifyComplete();
+        assertEquals(2, cached.getLoadCount());
+        assertTrue(puts.await(5, TimeUnit.SECONDS));
+        assertEquals(2, loads.get());
+        StepVerifier.create(cached.getAll(Flux.just("K")))
+            .expectNextMatches(e -> e.getValue() == 2)
+            .verifyComplete();
+    }
+
+    //Values are stale after 100 ms of the ticker of the test, every put counts down the latch
+    private FluxCacheImpl<String, Integer> refreshAheadCache(AtomicLong time, CountDownLatch puts) {
+        return new FluxCacheImpl<>(
+            reactorResourceFactory.getLoopResources(),
+            LRUCacheMap.<String, Integer>builder()
+                .map(new HashMap<>())
+                .valueExpirationChronoUnit(ChronoUnit.MILLIS)
+                .valueExpirationDuration(100)
+                .entryExpirationChronoUnit(ChronoUnit.MINUTES)
+                .entryExpirationDuration(1)
+                .cleanUpExpiredValue(false)
+                .ticker(time::get)
+                .build()
+        ) {
+            @Override
+            public Mono<List<CacheEntry<String, Integer>>> putAll(Collection<? extends Entry<String, Integer>> entries) {
+                return super.putAll(entries).doOnSuccess(result -> puts.countDown());
+            }
+        };
+    }
+
+    private Cached<String, Integer> batchingCached(List<Integer> batchSizes, int maxBatchSize) {
+        return Cached.build(reactorResourceFactory,
+            keyFlux -> keyFlux.collectList()
+                .doOnNext(keys -> batchSizes.add(keys.size()))
+                .flatMapMany(Flux::fromIterable)
+                .map(k -> KeyValueHolder.of(k, Integer.parseInt(k))),
+            new FluxCacheImpl<>(reactorResourceFactory.getLoopResources()),
+            CachedConfig.builder()
+                .maxBatchSize(maxBatchSize)
+                .maxBatchLinger(Duration.ofMillis(200))
+                .build()
+        );
+    }
+
+    @Test
+    @DisplayName("getAll with micro batching loads the misses of concurrent callers with one lookup")
+    public void getAll_withBatching_sharesLookupBetweenCallers() {
+        // Arrange
+        var batchSizes = new CopyOnWriteArrayList<Integer>();
+        var cached = batchingCached(batchSizes, 100);
+
+        // Act: three callers with overlapping keys subscribe concurrently
+        var result = Flux.merge(
+            cached.getAll(Flux.just("1", "2")),
+            cached.getAll(Flux.just("2", "3")),
+            cached.getAll(Flux.just("4"))
+        ).map(Entry::getValue);
+
+        // Assert: every caller gets its values, the lookup is called once with distinct keys
+        StepVerifier.create(result.collectList())
+            .assertNext(values -> assertEquals(List.of(1, 2, 2, 3, 4), values.stream().sorted().toList()))
+            .verifyComplete();
+        assertEquals(List.of(4), batchSizes);
+    }
+
+    @Test
+    @DisplayName("getAll with micro batching splits misses into batches of the maximum size")
+    public void getAll_withBatching_splitsByMaximumSize() {
+        var batchSizes = new CopyOnWriteArrayList<Integer>();
+        var cached = batchingCached(batchSizes, 4);
+
+        StepVerifier.create(cached.getAll(Flux.range(0, 10).map(String::valueOf)))
+            .expectNextCount(10)
+            .verifyComplete();
+        assertEquals(List.of(4, 4, 2), batchSizes);
+    }
+
+    @Test
+    @DisplayName("getAll with micro batching fails loads after dispose, cached values are still returned")
+    public void getAll_withBatching_failsLoadsAfterDispose() {
+        // Arrange
+        var batchSizes = new CopyOnWriteArrayList<Integer>();
+        var cached = batchingCached(batchSizes, 4);
+        StepVerifier.create(cached.getAll(Flux.just("1")))
+            .expectNextCount(1)
+            .verifyComplete();
+
+        // Act
+        cached.dispose();
+
+        // Assert
+        assertTrue(cached.isDisposed());
+        StepVerifier.create(cached.getAll(Flux.just("1")))
+            .expectNextCount(1)
+            .verifyComplete();
+        StepVerifier.create(cached.getAll(Flux.just("2")))
+            .verifyError(IllegalStateException.class);
+        assertEquals(List.of(1), batchSizes);
+    }
+
+    @Test
+    @DisplayName("getAll with micro batching fails callers of a batch still loading on dispose")
+    public void getAll_withBatching_failsPendingLoadsOnDispose() throws InterruptedException {
+        // Arrange: the lookup of the batch never completes
+        var started = new CountDownLatch(1);
+        Cached<String, Integer> cached = Cached.build(reactorResourceFactory,
+            keyFlux -> keyFlux.collectList()
+                .doOnNext(keys -> started.countDown())
+                .thenMany(Flux.<Entry<String, Integer>>never()),
+            new FluxCacheImpl<>(reactorResourceFactory.getLoopResources()),
+            CachedConfig.builder()
+                .maxBatchSize(2)
+                .maxBatchLinger(Duration.ofMinutes(1))
+                .build()
+        );
+
+        // Act & Assert
+        StepVerifier.create(cached.getAll(Flux.just("1", "2")))
+            .then(() -> {
+                try {
+                    assertTrue(started.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                cached.dispose();
+            })
+            .expectError(IllegalStateException.class)
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("getAll with negative caching answers keys the lookup did not return without lookup")
+    public void getAll_withNegativeCaching_skipsLookupOfAbsentKeys() {
+        // Arrange: the lookup only knows even keys
+        var lookups = new AtomicInteger();
+        var cacheMap = LRUCacheMap.<String, Integer>builder()
+            .map(new HashMap<>())
+            .maximumTombstones(100)
+            .build();
+        Cached<String, Integer> cached = Cached.build(reactorResourceFactory,
+            keyFlux -> keyFlux
+                .doOnNext(k -> lookups.incrementAndGet())
+                .filter(k -> Integer.parseInt(k) % 2 == 0)
+                .map(k -> KeyValueHolder.of(k, Integer.parseInt(k))),
+            new FluxCacheImpl<>(reactorResourceFactory.getLoopResources(), cacheMap),
+            CachedConfig.builder()
+                .negativeCaching(true)
+                .build()
+        );
+        StepVerifier.create(cached.getAll(Flux.just("1", "2", "3")).map(Entry::getValue))
+            .expectNext(2)
+            .verifyComplete();
+
+        // Act
+        var result = cached.getAll(Flux.just("1", "2", "3")).map(Entry::getValue);
+
+        // Assert: absent keys are cached as tombstones, counted apart from the values
+        StepVerifier.create(result)
+            .expectNext(2)
+            .verifyComplete();
+        assertEquals(3, lookups.get());
+        assertEquals(1, cacheMap.size());
+        assertEquals(2, cacheMap.getTombstoneCount());
+    }
+
+    @Test
+    @DisplayName("getAll caches values by the key of the caller without key conversion")
+    public void getAll_withLongKeys_cachesByKey() {
+        // Arrange
+        var lookups = new AtomicInteger();
+        Cached<Long, String> cached = Cached.build(reactorResourceFactory,
+            keyFlux -> keyFlux
+                .doOnNext(k -> lookups.incrementAndGet())
+                .map(k -> KeyValueHolder.of(k, "V" + k)),
+            new FluxCacheImpl<>(reactorResourceFactory.getLoopResources(), LongLRUCacheMap.<String>builder().build())
+        );
+        StepVerifier.create(cached.getAll(Flux.just(1L, 2L)))
+            .expectNextCount(2)
+            .verifyComplete();
+
+        // Act & Assert: the second request is served from the cache
+        StepVerifier.create(cached.getAll(Flux.just(1L, 2L)).map(Entry::getValue).collectList())
+            .assertNext(values -> assertEquals(List.of("V1", "V2"), values.stream().sorted().toList()))
+            .verifyComplete();
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    @DisplayName("getAll with isolated failures retries the keys of a failed lookup one by one and keeps the other keys")
+    public void getAll_withIsolatedFailures_retriesFailedKeysAlone() {
+        // Arrange: the lookup fails on key 3, after returning keys 1 and 2
+        var lookups = new CopyOnWriteArrayList<String>();
+        var failures = new CopyOnWriteArrayList<Object>();
+        Cached<String, Integer> cached = Cached.build(reactorResourceFactory,
+            keyFlux -> keyFlux
+                .doOnNext(lookups::add)
+                .map(k -> {
+                    if (k.equals("3")) {
+                        throw new IllegalStateException("Lookup down for key 3");
+                    }
+                    return KeyValueHolder.of(k, Integer.parseInt(k));
+                }),
+            new FluxCacheImpl<>(reactorResourceFactory.getLoopResources()),
+            CachedConfig.builder()
+                .isolatingFailures(true)
+                .maxRetries(2)
+                .retryBackoff(Duration.ofMillis(10))
+                .loadFailureListener((key, throwable) -> failures.add(key))
+                .build()
+        );
+
+        // Act
+        var result = cached.getAll(Flux.just("1", "2", "3", "4")).map(Entry::getValue);
+
+        // Assert: key 3 completes without value, keys 1 and 2 are not looked up again
+        StepVerifier.create(result.collectList())
+            .assertNext(values -> assertEquals(List.of(1, 2, 4), values.stream().sorted().toList()))
+            .verifyComplete();
+        assertEquals(List.of("3"), failures);
+        assertEquals(List.of("1", "2", "3", "3", "3", "3", "4"), lookups.stream().sorted().toList());
+    }
+
+    @Test
+    @DisplayName("getAll with isolated failures fails the keys of a lookup call timing out without retrying them")
+    public void getAll_withIsolatedFailures_failsKeysOfUnavailableLookup() {
+        // Arrange: the lookup never answers, the keys are looked up in one chunk
+        var lookups = new CopyOnWriteArrayList<String>();
+        var failures = new CopyOnWriteArrayList<Object>();
+        Cached<String, Integer> cached = Cached.build(reactorResourceFactory,
+            keyFlux -> keyFlux
+                .doOnNext(lookups::add)
+                .thenMany(Flux.<Entry<String, Integer>>never()),
+            new FluxCacheImpl<>(reactorResourceFactory.getLoopResources()),
+            CachedConfig.builder()
+                .isolatingFailures(true)
+                .maxChunkLinger(Duration.ofMillis(200))
+                .lookupTimeout(Duration.ofMillis(50))
+                .maxRetries(2)
+                .retryBackoff(Duration.ofMillis(10))
+                .loadFailureListener((key, throwable) -> failures.add(key))
+                .build()
+        );
+
+        // Act & Assert: one call, every key fails at once
+        StepVerifier.create(cached.getAll(Flux.just("1", "2", "3")))
+            .verifyComplete();
+        assertEquals(List.of("1", "2", "3"), failures.stream().map(String::valueOf).sorted().toList());
+        assertEquals(List.of("1", "2", "3"), lookups.stream().sorted().toList());
+    }
+
+    @Test
+    @DisplayName("getAll with lookup timeout bounds every lookup call, not the stream of keys")
+    public void getAll_withLookupTimeout_boundsLookupCalls() {
+        // Arrange
+        var calls = new AtomicInteger();
+        Cached<Long, Long> cached = Cached.build(reactorResourceFactory,
+            keyFlux -> keyFlux
+                .doOnSubscribe(subscription -> calls.incrementAndGet())
+                .<Entry<Long, Long>>map(k -> KeyValueHolder.of(k, k)),
+            new FluxCacheImpl<>(reactorResourceFactory.getLoopResources()),
+            CachedConfig.builder()
+                .lookupTimeout(Duration.ofMillis(100))
+                .build()
+        );
+
+        // Act: keys arrive over 300 ms, every key is looked up at once
+        var result = cached.getAll(Flux.interval(Duration.ofMillis(50)).take(6));
+
+        // Assert
+        StepVerifier.create(result.map(Entry::getValue).collectList())
+            .assertNext(values -> assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L), values.stream().sorted().toList()))
+            .verifyComplete();
+        assertTrue(calls.get() > 1, "Lookup calls: " + calls.get());
+    }
+
+    @Test
+    @DisplayName("getAll with stale if error returns the stale value at once and keeps it while its reload fails")
+    public void getAll_withStaleIfError_keepsStaleValueOnFailedReload() throws InterruptedException {
+        // Arrange: values are stale after 100 ms of the fake ticker, reloads fail once released
+        var time = new AtomicLong();
+        var loads = new AtomicInteger();
+        var release = Sinks.empty();
+        var failures = new CountDownLatch(1);
+        Cached<String, Integer> cached = Cached.build(reactorResourceFactory,
+            keyFlux -> keyFlux.concatMap(k -> loads.incrementAndGet() == 1
+                ? Mono.just(KeyValueHolder.of(k, 1))
+                : release.asMono().then(Mono.error(new IllegalStateException("Lookup down")))),
+            new FluxCacheImpl<>(
+                reactorResourceFactory.getLoopResources(),
+                LRUCacheMap.<String, Integer>builder()
+                    .map(new HashMap<>())
+                    .valueExpirationChronoUnit(ChronoUnit.MILLIS)
+                    .valueExpirationDuration(100)
+                    .entryExpirationChronoUnit(ChronoUnit.MINUTES)
+                    .entryExpirationDuration(1)
+                    .cleanUpExpiredValue(false)
+                    .ticker(time::get)
+                    .build()
+            ),
+            CachedConfig.builder()
+                .staleIfError(true)
+                .loadFailureListener((key, throwable) -> failures.countDown())
+                .build()
+        );
+        StepVerifier.create(cached.getAll(Flux.just("K")).map(Entry::getValue))
+            .expectNext(1)
+            .verifyComplete();
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(150));
+
+        // Act & Assert: the stale value is returned while its reload is pending
+        StepVerifier.create(cached.getAll(Flux.just("K")).map(Entry::getValue))
+            .expectNext(1)
+            .expectComplete()
+            .verify(Duration.ofSeconds(5));
+        assertEquals(2, loads.get());
+
+        // The failed reload keeps the stale value
+        release.tryEmitEmpty();
+        assertTrue(failures.await(5, TimeUnit.SECONDS));
+        StepVerifier.create(cached.getAll(Flux.just("K")).map(Entry::getValue))
+            .expectNext(1)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("getAll with ordered results emits entries in key order and bounds the concurrent lookups")
+    public void getAll_withOrderedResults_emitsInKeyOrder() {
+        // Arrange: lookups of later keys complete first, key 10 has no value. A lookup
+        // leaves the count before its values are returned, so before its chunk completes
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+        Cached<Integer, Integer> cached = Cached.build(reactorResourceFactory,
+            keyFlux -> keyFlux
+                .collectList()
+                .doOnSubscribe(subscription -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                .delayUntil(keys -> Mono.delay(Duration.ofMillis(60 - 5 * keys.get(0))))
+                .doOnNext(keys -> inFlight.decrementAndGet())
+                .flatMapMany(Flux::fromIterable)
+                .filter(k -> k < 10)
+                .<Entry<Integer, Integer>>map(k -> KeyValueHolder.of(k, k * 10)),
+            new FluxCacheImpl<>(reactorResourceFactory.getLoopResources()),
+            CachedConfig.builder()
+                .orderedResults(true)
+                .maxConcurrency(2)
+                .maxChunkSize(2)
+                .build()
+        );
+        StepVerifier.create(cached.getAll(Flux.just(5)))
+            .expectNextCount(1)
+            .verifyComplete();
+        maxInFlight.set(0);
+
+        // Act
+        var result = cached.getAll(Flux.range(1, 10)).map(Entry::getValue);
+
+        // Assert: the cached key 5 waits for the lookups of the keys before it
+        StepVerifier.create(result.collectList())
+            .assertNext(values -> assertEquals(List.of(10, 20, 30, 40, 50, 60, 70, 80, 90), values))
+            .verifyComplete();
+        assertTrue(maxInFlight.get() <= 2, "Lookups in flight: " + maxInFlight.get());
+    }
 }
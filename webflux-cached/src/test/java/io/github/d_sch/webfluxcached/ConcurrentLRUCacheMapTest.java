@@ -0,0 +1,131 @@
+package io.github.d_sch.webfluxcached;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import io.github.d_sch.webfluxcached.common.cache.impl.FluxCacheImpl;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import io.github.d_sch.webfluxcached.common.cache.internal.ConcurrentLRUCacheMap;
+import io.github.d_sch.webfluxcached.common.cache.internal.LRUCacheMap;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+public class ConcurrentLRUCacheMapTest {
+
+    private static ConcurrentLRUCacheMap<String, Integer> newCacheMap() {
+        return ConcurrentLRUCacheMap.of(
+            LRUCacheMap.<String, Integer>builder()
+                .entryExpirationChronoUnit(ChronoUnit.SECONDS)
+                .entryExpirationDuration(60)
+        );
+    }
+
+    @Test
+    @DisplayName("Concurrent puts and gets from many threads keep every latest value")
+    public void concurrentPutAndGet_keepsLatestValues() throws Exception {
+        // Arrange: a thread safe cache map accessed by several threads
+        var cacheMap = newCacheMap();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        var futures = new ArrayList<Future<?>>();
+
+        // Act: every thread writes its own key range and reads it back repeatedly
+        for (int t = 0; t < 8; t++) {
+            var thread = t;
+            futures.add(executor.submit(() -> {
+                for (int round = 0; round < 50; round++) {
+                    for (int i = 0; i < 100; i++) {
+                        var key = thread + ":" + i;
+                        cacheMap.put(key, round);
+                        assertEquals(round, cacheMap.get(key).getValue());
+                    }
+                }
+            }));
+        }
+        for (var future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        cacheMap.cleanUp();
+
+        // Assert: the last round is visible for every key
+        for (int t = 0; t < 8; t++) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(49, cacheMap.get(t + ":" + i).getValue());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Get missing key returns empty cache entry")
+    public void getMissingKey_returnsEmptyEntry() {
+        var cacheMap = newCacheMap();
+        cacheMap.put("Known", 1);
+
+        assertTrue(cacheMap.get("Unknown").isEmpty());
+        assertFalse(cacheMap.get("Known").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Expired values are removed on get")
+    public void getExpiredValue_returnsEmptyEntry() {
+        // Arrange: values expire immediately
+        var cacheMap = ConcurrentLRUCacheMap.of(
+            LRUCacheMap.<String, Integer>builder()
+                .valueExpirationChronoUnit(ChronoUnit.NANOS)
+                .valueExpirationDuration(0)
+        );
+        cacheMap.put("Key", 1);
+
+        // Act & Assert
+        assertTrue(cacheMap.get("Key").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Building a concurrent map from a non concurrent LRUCacheMap is replaced by a ConcurrentHashMap")
+    public void of_replacesMapOfBuilder() {
+        var cacheMap = ConcurrentLRUCacheMap.of(
+            LRUCacheMap.<String, Integer>builder()
+                .map(new HashMap<>())
+        );
+        cacheMap.put("Key", 1);
+        assertEquals(1, cacheMap.get("Key").getValue());
+        assertTrue(cacheMap.isThreadSafe());
+    }
+
+    @Test
+    @DisplayName("FluxCacheImpl with a concurrent cache map stores and returns entries without scheduler hop")
+    public void fluxCacheImpl_withConcurrentCacheMap_storesEntries() {
+        var loopResources = LoopResources.create("prefix");
+        FluxCache<String, Integer> cache = new FluxCacheImpl<>(loopResources, newCacheMap());
+
+        StepVerifier.create(cache.put(Flux.just(KeyValueHolder.of("K1", 1), KeyValueHolder.of("K2", 2))))
+            .expectNextCount(2).verifyComplete();
+
+        StepVerifier.create(cache.get(Flux.just("K1", "K2")).map(CacheEntry::getValue))
+            .expectNext(1, 2)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Putting a null value into a concurrent cache map throws NullPointerException")
+    public void putNullValue_throws() {
+        var cacheMap = newCacheMap();
+        assertThrows(NullPointerException.class, () -> cacheMap.put("Key", null));
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.d_sch.webfluxcached;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxcached.common.cached.DeduplicateFlux;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class DeduplicateFluxTest {
+
+    private static DeduplicateFlux<String, Map.Entry<String, Integer>> slowDeduplicateFlux(AtomicInteger loads, Duration delay) {
+        return new DeduplicateFlux<>(
+            keyFlux -> keyFlux
+                .doOnNext(key -> loads.incrementAndGet())
+                .flatMap(key -> Mono.just(KeyValueHolder.of(key, key.length())).delayElement(delay)),
+            Map.Entry::getKey
+        );
+    }
+
+    @Test
+    @DisplayName("Concurrent requests of one key share one load")
+    public void concurrentRequests_shareOneLoad() {
+        // Arrange
+        var loads = new AtomicInteger();
+        var deduplicateFlux = slowDeduplicateFlux(loads, Duration.ofMillis(100));
+
+        // Act: 500 concurrent requests of the same key
+        var results = Flux.range(0, 500)
+            .flatMap(i -> deduplicateFlux.deduplicate(Flux.just("Key")), 500);
+
+        // Assert
+        StepVerifier.create(results)
+            .expectNextCount(500)
+            .verifyComplete();
+        assertEquals(1, loads.get());
+        assertEquals(1, deduplicateFlux.getLoadCount());
+        assertEquals(499, deduplicateFlux.getCoalescedCount());
+    }
+
+    @Test
+    @DisplayName("A failing load fails every waiter and releases the key")
+    public void failingLoad_failsAllWaiters() {
+        // Arrange: the first load fails, later loads succeed
+        var loads = new AtomicInteger();
+        var deduplicateFlux = new DeduplicateFlux<String, Map.Entry<String, Integer>>(
+            keyFlux -> keyFlux.flatMap(key -> loads.incrementAndGet() == 1
+                ? Mono.<Map.Entry<String, Integer>>error(new IllegalStateException("load fail")).delaySubscription(Duration.ofMillis(100))
+                : Mono.just(KeyValueHolder.of(key, 1))),
+            Map.Entry::getKey
+        );
+
+        // Act & Assert
+        StepVerifier.create(Flux.merge(
+                deduplicateFlux.deduplicate(Flux.just("Key")).onErrorResume(e -> Mono.just(KeyValueHolder.of("Error", 0))),
+                deduplicateFlux.deduplicate(Flux.just("Key")).onErrorResume(e -> Mono.just(KeyValueHolder.of("Error", 0)))
+            ).map(Map.Entry::getKey))
+            .expectNext("Error", "Error")
+            .verifyComplete();
+        StepVerifier.create(deduplicateFlux.deduplicate(Flux.just("Key")).map(Map.Entry::getValue))
+            .expectNext(1)
+            .verifyComplete();
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Cancelling the subscription owning a load keeps serving the other waiters")
+    public void cancelledOwner_otherWaitersReceiveResult() {
+        // Arrange
+        var loads = new AtomicInteger();
+        var deduplicateFlux = slowDeduplicateFlux(loads, Duration.ofMillis(200));
+        var owner = deduplicateFlux.deduplicate(Flux.just("Key")).subscribe();
+
+        // Act: a second request joins, then the owner cancels
+        var waiter = deduplicateFlux.deduplicate(Flux.just("Key"));
+        owner.dispose();
+
+        // Assert
+        StepVerifier.create(waiter.map(Map.Entry::getValue))
+            .expectNext(3)
+            .verifyComplete();
+        assertEquals(1, loads.get());
+    }
+}
@@ -6,6 +6,8 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -45,7 +47,7 @@ public class FluxCacheImplTest {
     public void putMultipleEntries_parallelAndSequential_shouldStoreAllEntries() {
         // Arrange: create a cache and several entry streams
         var loopResources = LoopResources.create("prefix");
-        FluxCache<Integer> cache = new FluxCacheImpl<>(loopResources);
+        FluxCache<String, Integer> cache = new FluxCacheImpl<>(loopResources);
 
         var testKeys = Flux.just(
             "Key 1", "Key 2", "Key 3", "Key 4", "Key 5"
@@ -149,7 +151,7 @@ public class FluxCacheImplTest {
     public void getAfterUpdate_returnsUpdatedValues() {
         // Arrange: create cache and update entries
         var loopResources = LoopResources.create("prefix");
-        FluxCache<Integer> cache = new FluxCacheImpl<>(loopResources);
+        FluxCache<String, Integer> cache = new FluxCacheImpl<>(loopResources);
 
         var initialEntries = Flux.just(
             KeyValueHolder.of("K1", 1),
@@ -175,7 +177,7 @@ public class FluxCacheImplTest {
     @DisplayName("Get with empty Flux returns no entries")
     public void getWithEmptyFlux_returnsNoEntries() {
         var loopResources = LoopResources.create("prefix");
-        FluxCache<Integer> cache = new FluxCacheImpl<>(loopResources);
+        FluxCache<String, Integer> cache = new FluxCacheImpl<>(loopResources);
 
         // Act & Assert: nothing emitted when keys flux is empty
         StepVerifier.create(cache.get(Flux.empty())).expectNextCount(0).verifyComplete();
@@ -186,7 +188,7 @@ public class FluxCacheImplTest {
     public void getMissingKey_shouldReturnEmptyCacheEntry() {
         // Arrange: create cache and put limited keys
         var loopResources = LoopResources.create("prefix");
-        FluxCache<Integer> cache = new FluxCacheImpl<>(loopResources);
+        FluxCache<String, Integer> cache = new FluxCacheImpl<>(loopResources);
 
         var testEntries = Flux.just(
             KeyValueHolder.of("KnownKey1", 1),
@@ -210,7 +212,7 @@ public class FluxCacheImplTest {
     public void putWithNullKey_shouldThrowNullPointerException() {
         // Arrange: a cache - a null key is not supported by CacheEntryImpl; a NPE is expected.
         var loopResources = LoopResources.create("prefix");
-        FluxCache<Integer> cache = new FluxCacheImpl<>(loopResources);
+        FluxCache<String, Integer> cache = new FluxCacheImpl<>(loopResources);
 
         var entryWithNullKey = Flux.just(KeyValueHolder.of((String) null, 99));
 
@@ -225,7 +227,7 @@ public class FluxCacheImplTest {
     public void putWithNullValue_shouldThrowNullPointerException() {
         // Arrange: a cache - a null value is not supported by CacheEntryImpl; a NPE is expected.
         var loopResources = LoopResources.create("prefix");
-        FluxCache<Integer> cache = new FluxCacheImpl<>(loopResources);
+        FluxCache<String, Integer> cache = new FluxCacheImpl<>(loopResources);
 
         var entryWithNullValue = Flux.just(KeyValueHolder.<String, Integer>of("KeyNullValue", null));
 
@@ -239,6 +241,77 @@ public class FluxCacheImplTest {
     @DisplayName("Constructor with null LoopResources throws NullPointerException")
     public void constructor_withNullLoopResources_shouldThrowNullPointerException() {
         // Exceptional behavior: creating the cache with a null LoopResources should lead to NPE
-        assertThrows(NullPointerException.class, () -> new FluxCacheImpl<Integer>(null));
+        assertThrows(NullPointerException.class, () -> new FluxCacheImpl<String, Integer>(null));
+    }
+
+    @Test
+    @DisplayName("Bulk put and get serve every key in the order of the keys")
+    public void putAllAndGetAll_returnEntriesInKeyOrder() {
+        // Arrange
+        var loopResources = LoopResources.create("prefix");
+        FluxCache<String, Integer> cache = new FluxCacheImpl<>(loopResources);
+        var entries = IntStream.range(0, 100)
+            .mapToObj(i -> KeyValueHolder.of("Key " + i, i))
+            .toList();
+
+        StepVerifier.create(cache.putAll(entries))
+            .assertNext(cacheEntries -> assertEquals(100, cacheEntries.size()))
+            .verifyComplete();
+
+        // Act: known keys in reverse order and one unknown key
+        var keys = new ArrayList<String>();
+        for (int i = 99; i >= 0; i--) {
+            keys.add("Key " + i);
+        }
+        keys.add("Unknown");
+
+        // Assert
+        StepVerifier.create(cache.getAll(keys))
+            .assertNext(cacheEntries -> {
+                assertEquals(101, cacheEntries.size());
+                for (int i = 0; i < 100; i++) {
+                    assertEquals(99 - i, cacheEntries.get(i).getValue());
+                }
+                assertTrue(cacheEntries.get(100).isEmpty());
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Chunked get serves a key stream with one bulk get per chunk")
+    public void chunkedGet_returnsAllEntries() {
+        var loopResources = LoopResources.create("prefix");
+        FluxCache<String, Integer> cache = new FluxCacheImpl<>(loopResources);
+        StepVerifier.create(cache.put(Flux.range(0, 10).map(i -> KeyValueHolder.of("Key " + i, i)), 4, Duration.ofMillis(1)))
+            .expectNextCount(10)
+            .verifyComplete();
+
+        StepVerifier.create(cache.get(Flux.range(0, 10).map(i -> "Key " + i), 4, Duration.ofMillis(1)).map(CacheEntry::getValue))
+            .expectNext(0, 1, 2, 3, 4, 5, 6, 7, 8, 9)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Entries of a cache larger than a chunk are listed from most to least recently used")
+    public void entries_withManyEntries_returnsAllInOrderOfUse() {
+        // Arrange: more entries than copied by one task
+        var loopResources = LoopResources.create("prefix");
+        FluxCache<String, Integer> cache = new FluxCacheImpl<>(loopResources);
+        var entries = IntStream.range(0, 2500)
+            .mapToObj(i -> KeyValueHolder.of("Key " + i, i))
+            .toList();
+        StepVerifier.create(cache.putAll(entries))
+            .expectNextCount(1)
+            .verifyComplete();
+
+        // Act & Assert
+        StepVerifier.create(cache.entries(Integer.MAX_VALUE).map(CacheEntry::getValue).collectList())
+            .assertNext(values -> {
+                assertEquals(2500, values.size());
+                for (int i = 0; i < 2500; i++) {
+                    assertEquals(2499 - i, values.get(i));
+                }
+            })
+            .verifyComplete();
     }
 }
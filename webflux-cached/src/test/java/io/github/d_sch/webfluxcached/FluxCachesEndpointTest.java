@@ -0,0 +1,104 @@
+package io.github.d_sch.webfluxcached;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import io.github.d_sch.webfluxcached.common.cache.RemovalCause;
+import io.github.d_sch.webfluxcached.common.cache.endpoint.FluxCacheDump;
+import io.github.d_sch.webfluxcached.common.cache.endpoint.FluxCacheRegistry;
+import io.github.d_sch.webfluxcached.common.cache.endpoint.FluxCachesEndpoint;
+import io.github.d_sch.webfluxcached.common.cache.impl.FluxCacheImpl;
+import io.github.d_sch.webfluxcached.common.cache.internal.LRUCacheMap;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+public class FluxCachesEndpointTest {
+
+    private final LoopResources loopResources = LoopResources.create("prefix");
+
+    private FluxCache<String, Integer> cache(List<String> removed) {
+        FluxCache<String, Integer> cache = new FluxCacheImpl<>(loopResources, LRUCacheMap.<String, Integer>builder()
+            .map(new HashMap<>())
+            .entryExpirationChronoUnit(ChronoUnit.SECONDS)
+            .entryExpirationDuration(60)
+            .maximumSize(100)
+            .removalListener((key, value, cause) -> removed.add(key + ":" + cause))
+            .build()
+        );
+        StepVerifier.create(cache.put(Flux.just(KeyValueHolder.of("K1", 1), KeyValueHolder.of("K2", 2), KeyValueHolder.of("K3", 3))))
+            .expectNextCount(3).verifyComplete();
+        return cache;
+    }
+
+    @Test
+    @DisplayName("Caches are listed with size, settings and most recently used keys")
+    public void caches_listsRegisteredCaches() {
+        // Arrange
+        var registry = new FluxCacheRegistry().register("numbers", cache(new CopyOnWriteArrayList<>()));
+        var endpoint = new FluxCachesEndpoint(registry, 2);
+
+        // Act & Assert
+        StepVerifier.create(endpoint.caches())
+            .assertNext(caches -> {
+                var descriptor = caches.get("numbers");
+                assertEquals(3, descriptor.size());
+                assertEquals(Duration.ofSeconds(60), descriptor.settings().entryExpiration());
+                assertEquals(null, descriptor.settings().valueExpiration());
+                assertEquals(100, descriptor.settings().maximumSize());
+                assertEquals(List.of("K3", "K2"), descriptor.topKeys());
+            })
+            .verifyComplete();
+        StepVerifier.create(endpoint.cache("unknown")).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Keys, batches of keys and whole caches are invalidated")
+    public void invalidate_removesEntries() {
+        // Arrange
+        var removed = new CopyOnWriteArrayList<String>();
+        var cache = cache(removed);
+        var endpoint = new FluxCachesEndpoint(new FluxCacheRegistry().register("numbers", cache));
+
+        // Act & Assert
+        StepVerifier.create(endpoint.invalidateKey("numbers", "K1")).expectNext(1L).verifyComplete();
+        StepVerifier.create(endpoint.invalidateKeys("numbers", List.of("K1", "K2"))).expectNext(1L).verifyComplete();
+        assertEquals(List.of("K1:" + RemovalCause.EXPLICIT, "K2:" + RemovalCause.EXPLICIT), removed);
+        assertEquals(1, cache.estimatedSize());
+
+        StepVerifier.create(endpoint.invalidateAll("numbers")).expectNext(1L).verifyComplete();
+        assertEquals(0, cache.estimatedSize());
+        assertTrue(removed.contains("K3:" + RemovalCause.EXPLICIT));
+    }
+
+    @Test
+    @DisplayName("Dump streams the entries as JSON array")
+    public void dump_streamsEntries() {
+        // Arrange
+        var registry = new FluxCacheRegistry().register("numbers", cache(new CopyOnWriteArrayList<>()));
+        var client = WebTestClient.bindToRouterFunction(new FluxCacheDump(registry).route("/caches")).build();
+
+        // Act & Assert
+        client.get().uri("/caches/numbers?limit=2").exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(2)
+            .jsonPath("$[0].key").isEqualTo("K3")
+            .jsonPath("$[0].value").isEqualTo(3)
+            .jsonPath("$[1].key").isEqualTo("K2");
+        client.get().uri("/caches/unknown").exchange()
+            .expectStatus().isNotFound();
+    }
+}
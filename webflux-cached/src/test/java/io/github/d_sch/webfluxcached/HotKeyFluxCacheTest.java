@@ -0,0 +1,187 @@
+package io.github.d_sch.webfluxcached;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import io.github.d_sch.webfluxcached.common.cache.RemovalCause;
+import io.github.d_sch.webfluxcached.common.cache.hotkey.HotKeyFluxCache;
+import io.github.d_sch.webfluxcached.common.cache.hotkey.HotKeyReplicas;
+import io.github.d_sch.webfluxcached.common.cache.impl.FluxCacheImpl;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import io.github.d_sch.webfluxcached.common.cache.internal.LRUCacheMap;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+public class HotKeyFluxCacheTest {
+
+    private final LoopResources loopResources = LoopResources.create("prefix");
+
+    //Replicas are kept for non blocking threads only, one reader like one event loop
+    private static final Scheduler reader = Schedulers.newParallel("reader", 1);
+
+    private FluxCacheImpl<String, Integer> delegate;
+
+    private HotKeyFluxCache<String, Integer> cache(HotKeyReplicas<String, Integer> replicas) {
+        delegate = new FluxCacheImpl<>(loopResources, LRUCacheMap.<String, Integer>builder()
+            .map(new HashMap<>())
+            .maximumSize(3)
+            .removalListener(replicas)
+            .build());
+        return cache(delegate, replicas);
+    }
+
+    private HotKeyFluxCache<String, Integer> cache(FluxCache<String, Integer> delegate, HotKeyReplicas<String, Integer> replicas) {
+        var cache = new HotKeyFluxCache<>(delegate, replicas);
+        StepVerifier.create(cache.put(Flux.just(KeyValueHolder.of("K1", 1), KeyValueHolder.of("K2", 2), KeyValueHolder.of("K3", 3))))
+            .expectNextCount(3).verifyComplete();
+        return cache;
+    }
+
+    private static void read(HotKeyFluxCache<String, Integer> cache, String key, Integer expected) {
+        StepVerifier.create(cache.get(Flux.just(key)).subscribeOn(reader).map(entry -> entry.isEmpty() ? -1 : entry.getValue()))
+            .expectNext(expected == null ? -1 : expected)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("The most read key is replicated and invalidated when its value is replaced or evicted")
+    public void get_replicatesHotKeys() {
+        // Arrange: one hot key, every read sampled, hot keys refreshed every 10 reads
+        var replicas = new HotKeyReplicas<String, Integer>(1, 1, 10);
+        var cache = cache(replicas);
+        for (int i = 0; i < 9; i++) {
+            read(cache, "K1", 1);
+        }
+        read(cache, "K2", 2);
+        assertEquals(Set.of("K1"), replicas.getHotKeys());
+
+        // Act & Assert: the next read replicates, the one after is served by the replica
+        read(cache, "K1", 1);
+        read(cache, "K1", 1);
+        assertEquals(1, replicas.getReplicaHitCount());
+
+        StepVerifier.create(cache.getAll(List.of("K2", "K1")).subscribeOn(reader).map(entries -> entries.stream().map(CacheEntry::getValue).toList()))
+            .expectNext(List.of(2, 1))
+            .verifyComplete();
+        assertEquals(2, replicas.getReplicaHitCount());
+
+        // Replaced in the cache map, not through the hot key cache
+        StepVerifier.create(delegate.put(Flux.just(KeyValueHolder.of("K1", 10)))).expectNextCount(1).verifyComplete();
+        read(cache, "K1", 10);
+        read(cache, "K1", 10);
+        assertEquals(3, replicas.getReplicaHitCount());
+
+        // Evicted from the cache map: reads served by the replica do not renew K1
+        read(cache, "K2", 2);
+        read(cache, "K3", 3);
+        StepVerifier.create(cache.put(Flux.just(KeyValueHolder.of("K4", 4)))).expectNextCount(1).verifyComplete();
+        read(cache, "K1", null);
+        assertEquals(3, replicas.getReplicaHitCount());
+    }
+
+    @Test
+    @DisplayName("Hot keys are published as meters tagged with the key")
+    public void bindTo_publishesHotKeys() {
+        // Arrange
+        var registry = new SimpleMeterRegistry();
+        var replicas = new HotKeyReplicas<String, Integer>(2, 1, 10).bindTo(registry, "numbers");
+        var cache = cache(replicas);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            read(cache, i % 3 == 0 ? "K3" : "K1", i % 3 == 0 ? 3 : 1);
+        }
+        read(cache, "K1", 1);
+        read(cache, "K1", 1);
+
+        // Assert
+        assertEquals(2, registry.get("cache.hotkeys").gauge().value());
+        assertEquals(6, registry.get("cache.hotkeys.reads").tag("key", "K1").gauge().value());
+        assertTrue(registry.get("cache.hotkeys.reads").tag("key", "K3").gauge().value() > 0);
+        assertEquals(1, registry.get("cache.hotkeys.hits").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Invalidations of other keys do not keep a hot key from being replicated")
+    public void get_replicatesDespiteOtherInvalidations() {
+        // Arrange: every read from the cache races with the eviction of another key
+        var replicas = new HotKeyReplicas<String, Integer>(1, 1, 10);
+        var cache = cache(replicas);
+        var racing = cache(new FluxCache<String, Integer>() {
+            @Override
+            public Flux<CacheEntry<String, Integer>> get(Flux<String> keys) {
+                return keys
+                    .doOnNext(key -> replicas.onRemoval("K2", 2, RemovalCause.SIZE))
+                    .transform(delegate::get);
+            }
+
+            @Override
+            public Flux<CacheEntry<String, Integer>> put(Flux<Map.Entry<String, Integer>> entries) {
+                return delegate.put(entries);
+            }
+        }, replicas);
+        for (int i = 0; i < 9; i++) {
+            read(cache, "K1", 1);
+        }
+        read(cache, "K2", 2);
+        assertEquals(Set.of("K1"), replicas.getHotKeys());
+
+        // Act
+        read(racing, "K1", 1);
+        read(racing, "K1", 1);
+
+        // Assert
+        assertEquals(1, replicas.getReplicaHitCount());
+
+        // An invalidation of the key itself does
+        replicas.invalidate("K1");
+        read(new HotKeyFluxCache<>(new FluxCache<String, Integer>() {
+            @Override
+            public Flux<CacheEntry<String, Integer>> get(Flux<String> keys) {
+                return keys
+                    .doOnNext(replicas::invalidate)
+                    .transform(delegate::get);
+            }
+
+            @Override
+            public Flux<CacheEntry<String, Integer>> put(Flux<Map.Entry<String, Integer>> entries) {
+                return delegate.put(entries);
+            }
+        }, replicas), "K1", 1);
+        read(cache, "K1", 1);
+        assertEquals(1, replicas.getReplicaHitCount());
+    }
+
+    @Test
+    @DisplayName("Reads on blocking threads are served by the cache without replica")
+    public void get_withoutReplicaOnBlockingThreads() {
+        // Arrange
+        var replicas = new HotKeyReplicas<String, Integer>(1, 1, 10);
+        var cache = cache(replicas);
+
+        // Act: read on the test thread
+        for (int i = 0; i < 20; i++) {
+            StepVerifier.create(cache.get(Flux.just("K1")).map(CacheEntry::getValue))
+                .expectNext(1)
+                .verifyComplete();
+        }
+
+        // Assert
+        assertEquals(Set.of("K1"), replicas.getHotKeys());
+        assertEquals(0, replicas.getReplicaHitCount());
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.d_sch.webfluxcached;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import io.github.d_sch.webfluxcached.common.cache.impl.FluxCacheImpl;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import io.github.d_sch.webfluxcached.common.cache.invalidation.InvalidationBatch;
+import io.github.d_sch.webfluxcached.common.cache.invalidation.InvalidationBus;
+import io.github.d_sch.webfluxcached.common.cache.invalidation.InvalidationTransport;
+import io.github.d_sch.webfluxcached.common.cache.invalidation.LoopbackInvalidationTransport;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+public class InvalidationBusTest {
+
+    private final LoopResources loopResources = LoopResources.create("prefix");
+
+    private FluxCache<String, Integer> node() {
+        FluxCache<String, Integer> cache = new FluxCacheImpl<>(loopResources);
+        StepVerifier.create(cache.put(Flux.just(KeyValueHolder.of("K1", 1), KeyValueHolder.of("K2", 2), KeyValueHolder.of("K3", 3))))
+            .expectNextCount(3).verifyComplete();
+        return cache;
+    }
+
+    @Test
+    @DisplayName("Keys invalidated on one node are removed from the caches of all nodes")
+    public void invalidate_removesKeysOnAllNodes() {
+        // Arrange
+        var transport = new LoopbackInvalidationTransport<String>();
+        var cacheA = node();
+        var cacheB = node();
+        var busA = new InvalidationBus<>("A", cacheA, transport, 100, Duration.ofMillis(200));
+        var busB = new InvalidationBus<>("B", cacheB, transport, 100, Duration.ofMillis(200));
+
+        // Act & Assert: the keys of one window are published as one batch of distinct keys
+        StepVerifier.create(transport.batches().take(1))
+            .then(() -> Flux.concat(busA.invalidate(List.of("K1", "K1", "K2")), busA.invalidate("K1")).blockLast())
+            .assertNext(batch -> {
+                assertEquals("A", batch.origin());
+                assertEquals(Set.of("K1", "K2"), batch.keys());
+            })
+            .verifyComplete();
+        assertEquals(1, cacheA.estimatedSize());
+
+        StepVerifier.create(Mono.fromCallable(cacheB::estimatedSize)
+                .filter(size -> size == 1)
+                .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(10)))
+                .timeout(Duration.ofSeconds(5)))
+            .expectNext(1L)
+            .verifyComplete();
+        StepVerifier.create(cacheB.get(Flux.just("K1", "K2", "K3")).map(CacheEntry::isEmpty))
+            .expectNext(true, true, false)
+            .verifyComplete();
+        assertEquals(2, busA.getPublishedCount());
+        assertEquals(2, busB.getReceivedCount());
+        assertEquals(0, busA.getReceivedCount());
+
+        busA.dispose();
+        busB.dispose();
+        assertTrue(busA.isDisposed());
+        assertFalse(cacheB.get(Flux.just("K3")).blockFirst().isEmpty());
+    }
+
+    @Test
+    @DisplayName("A failing transport is subscribed again, later batches are applied")
+    public void receive_resubscribesAfterTransportFailure() {
+        // Arrange: the first subscription of node B fails like a lost connection
+        var transport = new LoopbackInvalidationTransport<String>();
+        var subscriptions = new AtomicInteger();
+        var failingOnce = new InvalidationTransport<String>() {
+            @Override
+            public Mono<Void> publish(InvalidationBatch<String> batch) {
+                return transport.publish(batch);
+            }
+
+            @Override
+            public Flux<InvalidationBatch<String>> batches() {
+                return Flux.defer(() -> subscriptions.incrementAndGet() == 1
+                    ? Flux.error(new IllegalStateException("Connection lost"))
+                    : transport.batches());
+            }
+        };
+        var cacheB = node();
+        var busA = new InvalidationBus<>("A", node(), transport, 100, Duration.ofMillis(10));
+        var busB = new InvalidationBus<>("B", cacheB, failingOnce, 100, Duration.ofMillis(10));
+        StepVerifier.create(Mono.fromCallable(subscriptions::get)
+                .filter(count -> count == 2)
+                .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(10)))
+                .timeout(Duration.ofSeconds(5)))
+            .expectNext(2)
+            .verifyComplete();
+
+        // Act
+        busA.invalidate("K1").block();
+
+        // Assert
+        StepVerifier.create(Mono.fromCallable(cacheB::estimatedSize)
+                .filter(size -> size == 2)
+                .repeatWhenEmpty(repeat -> repeat.delayElements(Duration.ofMillis(10)))
+                .timeout(Duration.ofSeconds(5)))
+            .expectNext(2L)
+            .verifyComplete();
+        busA.dispose();
+        busB.dispose();
+    }
+}
@@ -0,0 +1,394 @@
+package io.github.d_sch.webfluxcached;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.github.d_sch.webfluxcached.common.cache.RemovalCause;
+import io.github.d_sch.webfluxcached.common.cache.internal.ConcurrentLRUCacheMap;
+import io.github.d_sch.webfluxcached.common.cache.internal.EvictionPolicy;
+import io.github.d_sch.webfluxcached.common.cache.internal.LRUCacheMap;
+
+public class LRUCacheMapTest {
+
+    @Test
+    @DisplayName("Maximum size evicts the least recently used entry on insert")
+    public void maximumSize_evictsLeastRecentlyUsed() {
+        // Arrange: a map holding at most three entries
+        var removed = new ArrayList<String>();
+        var cacheMap = LRUCacheMap.<String, Integer>builder()
+            .map(new HashMap<>())
+            .maximumSize(3)
+            .removalListener((key, value, cause) -> removed.add(key + ":" + cause))
+            .build();
+
+        cacheMap.put("K1", 1);
+        cacheMap.put("K2", 2);
+        cacheMap.put("K3", 3);
+        // K1 becomes most recently used, K2 is the eviction candidate
+        cacheMap.get("K1");
+
+        // Act
+        cacheMap.put("K4", 4);
+
+        // Assert
+        assertEquals(3, cacheMap.size());
+        assertTrue(cacheMap.get("K2").isEmpty());
+        assertFalse(cacheMap.get("K1").isEmpty());
+        assertFalse(cacheMap.get("K4").isEmpty());
+        assertEquals(1, cacheMap.getEvictionCount());
+        assertEquals(List.of("K2:" + RemovalCause.SIZE), removed);
+    }
+
+    @Test
+    @DisplayName("Maximum weight evicts entries until the total weight fits")
+    public void maximumWeight_evictsUntilWeightFits() {
+        // Arrange: weight is the length of the value
+        var cacheMap = LRUCacheMap.<String, String>builder()
+            .map(new HashMap<>())
+            .maximumWeight(10)
+            .weigher((key, value) -> value.length())
+            .build();
+
+        cacheMap.put("K1", "aaaa");
+        cacheMap.put("K2", "bbbb");
+        assertEquals(8, cacheMap.getWeightedSize());
+
+        // Act: replacing a value changes the weight of the entry
+        cacheMap.put("K2", "bbbbbbbb");
+
+        // Assert
+        assertTrue(cacheMap.get("K1").isEmpty());
+        assertEquals("bbbbbbbb", cacheMap.get("K2").getValue());
+        assertEquals(8, cacheMap.getWeightedSize());
+        assertEquals(1, cacheMap.getEvictionCount());
+        assertEquals(4, cacheMap.getEvictionWeight());
+    }
+
+    @Test
+    @DisplayName("Negative weight is rejected")
+    public void negativeWeight_throws() {
+        var cacheMap = LRUCacheMap.<String, Integer>builder()
+            .map(new HashMap<>())
+            .weigher((key, value) -> -1)
+            .build();
+
+        assertThrows(IllegalArgumentException.class, () -> cacheMap.put("K1", 1));
+    }
+
+    @Test
+    @DisplayName("Concurrent cache map applies the maximum size")
+    public void concurrentCacheMap_maximumSize_evicts() {
+        var cacheMap = ConcurrentLRUCacheMap.of(
+            LRUCacheMap.<Integer, Integer>builder()
+                .maximumSize(100)
+        );
+
+        for (int i = 0; i < 1000; i++) {
+            cacheMap.put(i, i);
+        }
+        cacheMap.cleanUp();
+
+        assertEquals(100, cacheMap.size());
+        assertEquals(900, cacheMap.getEvictionCount());
+        assertFalse(cacheMap.get(999).isEmpty());
+    }
+
+    private static int hitsOfScanWorkload(LRUCacheMap<Integer, Integer> cacheMap) {
+        // Hot set of 50 keys, interleaved with scans of keys used only once
+        var hits = 0;
+        var scanKey = 1000;
+        for (int round = 0; round < 20; round++) {
+            for (int hot = 0; hot < 50; hot++) {
+                if (cacheMap.get(hot).isEmpty()) {
+                    cacheMap.put(hot, hot);
+                } else {
+                    hits++;
+                }
+            }
+            for (int scan = 0; scan < 200; scan++, scanKey++) {
+                if (cacheMap.get(scanKey).isEmpty()) {
+                    cacheMap.put(scanKey, scanKey);
+                }
+            }
+        }
+        return hits;
+    }
+
+    @Test
+    @DisplayName("Frequency admission keeps the hot set while one-hit keys are scanned")
+    public void frequencyAdmission_keepsHotSetDuringScans() {
+        // Arrange: the same bounded map with and without admission
+        var lru = LRUCacheMap.<Integer, Integer>builder()
+            .map(new HashMap<>())
+            .maximumSize(100)
+            .build();
+        var tinyLfu = LRUCacheMap.<Integer, Integer>builder()
+            .map(new HashMap<>())
+            .maximumSize(100)
+            .frequencyAdmission(true)
+            .build();
+
+        // Act
+        var lruHits = hitsOfScanWorkload(lru);
+        var tinyLfuHits = hitsOfScanWorkload(tinyLfu);
+
+        // Assert: plain LRU loses the hot set on every scan, admission protects it
+        assertEquals(0, lruHits);
+        assertTrue(tinyLfuHits > 800, "Hits with admission: " + tinyLfuHits);
+        assertEquals(100, tinyLfu.size());
+    }
+
+    private static int hitsOfRepeatedHotSet(LRUCacheMap<Integer, Integer> cacheMap) {
+        // Hot set of 50 keys used twice per round, interleaved with scans of keys used only once
+        var hits = 0;
+        var scanKey = 1000;
+        for (int round = 0; round < 20; round++) {
+            for (int access = 0; access < 2; access++) {
+                for (int hot = 0; hot < 50; hot++) {
+                    if (cacheMap.get(hot).isEmpty()) {
+                        cacheMap.put(hot, hot);
+                    } else {
+                        hits++;
+                    }
+                }
+            }
+            for (int scan = 0; scan < 200; scan++, scanKey++) {
+                if (cacheMap.get(scanKey).isEmpty()) {
+                    cacheMap.put(scanKey, scanKey);
+                }
+            }
+        }
+        return hits;
+    }
+
+    @Test
+    @DisplayName("Segmented LRU and ARC eviction keep entries used again while one-hit keys are scanned")
+    public void evictionPolicy_keepsReusedEntriesDuringScans() {
+        // Arrange: the same bounded map with each eviction policy
+        var maps = new HashMap<String, LRUCacheMap<Integer, Integer>>();
+        for (var policy : List.of("lru", "slru", "arc")) {
+            maps.put(policy, LRUCacheMap.<Integer, Integer>builder()
+                .map(new HashMap<>())
+                .maximumSize(100)
+                .evictionPolicy(switch (policy) {
+                    case "slru" -> EvictionPolicy.segmentedLru();
+                    case "arc" -> EvictionPolicy.arc();
+                    default -> EvictionPolicy.lru();
+                })
+                .build());
+        }
+
+        // Act
+        var lruHits = hitsOfRepeatedHotSet(maps.get("lru"));
+        var slruHits = hitsOfRepeatedHotSet(maps.get("slru"));
+        var arcHits = hitsOfRepeatedHotSet(maps.get("arc"));
+
+        // Assert: LRU only hits the second access of a round, the other policies keep the hot set
+        assertEquals(20 * 50, lruHits);
+        assertTrue(slruHits > 1900, "Hits with segmented LRU: " + slruHits);
+        assertTrue(arcHits > 1900, "Hits with ARC: " + arcHits);
+        maps.values().forEach(cacheMap -> assertEquals(100, cacheMap.size()));
+    }
+
+    @Test
+    @DisplayName("ARC promotes a key evicted recently and returning to the frequency queue")
+    public void arcEvictionPolicy_promotesGhostHits() {
+        // Arrange: K1 is evicted from the recency queue
+        var removed = new ArrayList<String>();
+        var cacheMap = LRUCacheMap.<String, Integer>builder()
+            .map(new HashMap<>())
+            .maximumSize(2)
+            .evictionPolicy(EvictionPolicy.arc())
+            .removalListener((key, value, cause) -> removed.add(key))
+            .build();
+        cacheMap.put("K1", 1);
+        cacheMap.put("K2", 2);
+        cacheMap.put("K3", 3);
+        assertEquals(List.of("K1"), removed);
+
+        // Act: K1 returns, the recency queue is preferred for the next victims
+        cacheMap.put("K1", 1);
+        cacheMap.put("K4", 4);
+
+        // Assert: K1 survives new keys used once
+        assertEquals(List.of("K1", "K2", "K3"), removed);
+        assertFalse(cacheMap.get("K1").isEmpty());
+        assertEquals(List.of("K1", "K4"), cacheMap.entries(10).stream().map(entry -> entry.getKey()).toList());
+    }
+
+    @Test
+    @DisplayName("Clean up removes exactly the expired entries")
+    public void cleanUp_removesExpiredEntries() {
+        // Arrange: entries expire 300 ms after the last access, time is controlled by the test
+        var time = new AtomicLong();
+        var removed = new ArrayList<String>();
+        var cacheMap = LRUCacheMap.<String, Integer>builder()
+            .map(new HashMap<>())
+            .ticker(time::get)
+            .entryExpirationChronoUnit(ChronoUnit.MILLIS)
+            .entryExpirationDuration(300)
+            .removalListener((key, value, cause) -> removed.add(key + ":" + cause))
+            .build();
+
+        cacheMap.put("K1", 1);
+        cacheMap.put("K2", 2);
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+        cacheMap.put("K3", 3);
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(150));
+
+        // Act
+        cacheMap.cleanUp();
+
+        // Assert
+        assertEquals(1, cacheMap.size());
+        assertEquals(List.of("K1:" + RemovalCause.EXPIRED, "K2:" + RemovalCause.EXPIRED), removed);
+        assertFalse(cacheMap.get("K3").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Expiration of entries is checked and listed with the ticker of the cache map")
+    public void entries_convertsDeadlinesWithTickerOfCacheMap() {
+        // Arrange: a ticker far off the system ticker, values expire after 300 ms
+        var time = new AtomicLong(Long.MIN_VALUE / 2);
+        var cacheMap = LRUCacheMap.<String, Integer>builder()
+            .map(new HashMap<>())
+            .ticker(time::get)
+            .valueExpirationChronoUnit(ChronoUnit.MILLIS)
+            .valueExpirationDuration(300)
+            .build();
+        cacheMap.put("K1", 1);
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+
+        // Act
+        var start = Instant.now();
+        var entry = cacheMap.entries(10).get(0);
+        var cached = cacheMap.get("K1");
+
+        // Assert: 200 ms of the value are left
+        assertFalse(entry.getValueExpiresAt().isBefore(start.plusMillis(200)));
+        assertTrue(entry.getValueExpiresAt().isBefore(Instant.now().plusMillis(250)));
+        assertFalse(cached.isValueExpired(time.get()));
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(300));
+        assertTrue(cached.isValueExpired(time.get()));
+    }
+
+    @Test
+    @DisplayName("Entries expiring in days are removed by the hour they expire")
+    public void cleanUp_expiresLongDurationsOnTime() {
+        // Arrange: entries expire 10 days after the last access, beyond the day wheel
+        var time = new AtomicLong(-TimeUnit.DAYS.toNanos(1));
+        var removed = new ArrayList<String>();
+        var cacheMap = LRUCacheMap.<String, Integer>builder()
+            .map(new HashMap<>())
+            .ticker(time::get)
+            .entryExpirationChronoUnit(ChronoUnit.DAYS)
+            .entryExpirationDuration(10)
+            .removalListener((key, value, cause) -> removed.add(key + "@" + TimeUnit.NANOSECONDS.toHours(time.get())))
+            .build();
+
+        cacheMap.put("K1", 1);
+        cacheMap.put("K2", 2);
+        time.addAndGet(TimeUnit.HOURS.toNanos(30));
+        cacheMap.get("K2");
+
+        // Act: advance hour by hour
+        for (int hour = 0; hour < 24 * 12; hour++) {
+            time.addAndGet(TimeUnit.HOURS.toNanos(1));
+            cacheMap.cleanUp();
+        }
+
+        // Assert: times are hours since the start, shifted by one day
+        assertEquals(List.of("K1@" + (24 * 10 - 24 + 1), "K2@" + (24 * 10 - 24 + 30 + 1)), removed);
+        assertEquals(0, cacheMap.size());
+    }
+
+    @Test
+    @DisplayName("Concurrent cache map clean up removes expired values")
+    public void concurrentCacheMap_cleanUp_removesExpiredValues() throws InterruptedException {
+        var cacheMap = ConcurrentLRUCacheMap.of(
+            LRUCacheMap.<Integer, Integer>builder()
+                .valueExpirationChronoUnit(ChronoUnit.MILLIS)
+                .valueExpirationDuration(100)
+        );
+        for (int i = 0; i < 100; i++) {
+            cacheMap.put(i, i);
+        }
+        Thread.sleep(150);
+        cacheMap.put(100, 100);
+
+        cacheMap.cleanUp();
+
+        assertEquals(1, cacheMap.size());
+        assertFalse(cacheMap.get(100).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Tombstones are bounded and expire apart from the entries with value")
+    public void tombstones_boundedAndExpiredSeparately() {
+        // Arrange: room for two values and two tombstones, tombstones expire after 100 ms
+        var time = new AtomicLong();
+        var removed = new ArrayList<String>();
+        var cacheMap = LRUCacheMap.<String, Integer>builder()
+            .map(new HashMap<>())
+            .ticker(time::get)
+            .maximumSize(2)
+            .maximumTombstones(2)
+            .tombstoneExpirationChronoUnit(ChronoUnit.MILLIS)
+            .tombstoneExpirationDuration(100)
+            .removalListener((key, value, cause) -> removed.add(key + ":" + cause))
+            .build();
+        cacheMap.put("K1", 1);
+        cacheMap.put("K2", 2);
+
+        // Act
+        cacheMap.putTombstone("A1");
+        cacheMap.putTombstone("A2");
+        cacheMap.putTombstone("A3");
+
+        // Assert: the oldest tombstone is removed, the values are kept
+        assertEquals(2, cacheMap.size());
+        assertEquals(2, cacheMap.getTombstoneCount());
+        assertTrue(cacheMap.get("A1").isEmpty());
+        assertFalse(cacheMap.get("A1").isAbsent());
+        assertTrue(cacheMap.get("A2").isAbsent());
+
+        // A value replaces its tombstone
+        cacheMap.put("A2", 2);
+        assertEquals(1, cacheMap.getTombstoneCount());
+        assertEquals(2, cacheMap.get("A2").getValue());
+        assertEquals(List.of("K1:" + RemovalCause.SIZE), removed);
+
+        // Tombstones expire without notifying the removal listener
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(150));
+        cacheMap.cleanUp();
+        assertEquals(0, cacheMap.getTombstoneCount());
+        assertTrue(cacheMap.get("A3").isEmpty());
+        assertEquals(List.of("K1:" + RemovalCause.SIZE), removed);
+    }
+
+    @Test
+    @DisplayName("Tombstones are not stored without maximum tombstones")
+    public void tombstones_disabledByDefault() {
+        var cacheMap = LRUCacheMap.<String, Integer>builder()
+            .map(new HashMap<>())
+            .build();
+
+        cacheMap.putTombstone("A1");
+
+        assertEquals(0, cacheMap.getTombstoneCount());
+        assertFalse(cacheMap.get("A1").isAbsent());
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.d_sch.webfluxcached;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import io.github.d_sch.webfluxcached.common.cache.impl.FluxCacheImpl;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import io.github.d_sch.webfluxcached.common.cache.internal.LongLRUCacheMap;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+public class LongLRUCacheMapTest {
+
+    @Test
+    @DisplayName("Random gets and puts of long keys match an access ordered LinkedHashMap of the same maximum size")
+    public void randomAccess_matchesLinkedHashMap() {
+        // Arrange: keys share their lower bits to provoke probing
+        var maximumSize = 500;
+        var cacheMap = LongLRUCacheMap.<Integer>builder()
+            .maximumSize(maximumSize)
+            .build();
+        var reference = new LinkedHashMap<Long, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+                return size() > maximumSize;
+            }
+        };
+        var random = new Random(42);
+
+        // Act & Assert
+        for (int i = 0; i < 100_000; i++) {
+            var key = (long) random.nextInt(2_000) << 32;
+            Integer value = i;
+            if (random.nextBoolean()) {
+                cacheMap.put(key, value);
+                reference.put(key, value);
+            } else {
+                assertEquals(reference.get(key), cacheMap.getIfPresent(key));
+            }
+        }
+        assertEquals(reference.size(), cacheMap.size());
+        for (var entry : reference.entrySet()) {
+            assertEquals(entry.getValue(), cacheMap.get(entry.getKey().longValue()).getValue());
+        }
+    }
+
+    @Test
+    @DisplayName("Expired entries of a long keyed map are removed")
+    public void expiredEntries_areRemoved() {
+        var time = new AtomicLong();
+        var cacheMap = LongLRUCacheMap.<String>builder()
+            .ticker(time::get)
+            .entryExpirationChronoUnit(ChronoUnit.MILLIS)
+            .entryExpirationDuration(100)
+            .build();
+        cacheMap.put(Long.MIN_VALUE, "Min");
+        cacheMap.put(0L, "Zero");
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(50));
+        cacheMap.get(0L);
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(75));
+
+        cacheMap.cleanUp();
+
+        assertEquals(1, cacheMap.size());
+        assertNull(cacheMap.getIfPresent(Long.MIN_VALUE));
+        assertTrue(cacheMap.get(Long.MIN_VALUE).isEmpty());
+        assertEquals("Zero", cacheMap.getIfPresent(0L));
+    }
+
+    @Test
+    @DisplayName("FluxCacheImpl stores and returns entries of a LongLRUCacheMap by long key")
+    public void fluxCacheImpl_withLongKeys_storesEntries() {
+        var loopResources = LoopResources.create("prefix");
+        FluxCache<Long, Integer> cache = new FluxCacheImpl<>(loopResources, LongLRUCacheMap.<Integer>builder().build());
+
+        StepVerifier.create(cache.put(Flux.just(KeyValueHolder.of(1L, 1), KeyValueHolder.of(2L, 2))))
+            .expectNextCount(2).verifyComplete();
+
+        StepVerifier.create(cache.get(Flux.just(1L, 2L, 3L)).map(CacheEntry::getKey))
+            .expectNext(1L, 2L, 3L)
+            .verifyComplete();
+    }
+}
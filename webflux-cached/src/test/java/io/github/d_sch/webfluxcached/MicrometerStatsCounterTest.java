@@ -0,0 +1,100 @@
+package io.github.d_sch.webfluxcached;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.ReactorResourceFactory;
+
+import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxcached.common.cache.impl.FluxCacheImpl;
+import io.github.d_sch.webfluxcached.common.cache.impl.MicrometerStatsCounter;
+import io.github.d_sch.webfluxcached.common.cache.internal.LRUCacheMap;
+import io.github.d_sch.webfluxcached.common.cached.Cached;
+import io.github.d_sch.webfluxcached.common.cached.CachedConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+public class MicrometerStatsCounterTest {
+
+    private static double gets(SimpleMeterRegistry registry, String result) {
+        return registry.get("cache.gets").tag("cache", "test").tag("result", result).functionCounter().count();
+    }
+
+    @Test
+    @DisplayName("LRUCacheMap records hits, misses, stale hits, evictions and size")
+    public void lruCacheMap_recordsGetsAndEvictions() {
+        // Arrange: values are stale after 100 ms and returned until removed by size
+        var registry = new SimpleMeterRegistry();
+        var time = new AtomicLong();
+        var statsCounter = new MicrometerStatsCounter(registry, "test");
+        var cacheMap = LRUCacheMap.<String, Integer>builder()
+            .map(new HashMap<>())
+            .ticker(time::get)
+            .maximumSize(2)
+            .valueExpirationChronoUnit(ChronoUnit.MILLIS)
+            .valueExpirationDuration(100)
+            .cleanUpExpiredValue(false)
+            .statsCounter(statsCounter)
+            .build();
+        statsCounter.monitor(cacheMap);
+
+        // Act
+        cacheMap.put("K1", 1);
+        cacheMap.get("K1");
+        cacheMap.get("Unknown");
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(150));
+        cacheMap.get("K1");
+        cacheMap.put("K2", 2);
+        cacheMap.put("K3", 3);
+
+        // Assert
+        assertEquals(1, gets(registry, "hit"));
+        assertEquals(1, gets(registry, "miss"));
+        assertEquals(1, gets(registry, "stale"));
+        assertEquals(1, registry.get("cache.evictions").tag("cause", "size").functionCounter().count());
+        assertEquals(0, registry.get("cache.evictions").tag("cause", "expired").functionCounter().count());
+        assertEquals(2, registry.get("cache.size").gauge().value());
+        assertEquals(2, registry.get("cache.weight").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Cached records load latency and FluxCacheImpl the queueing delay of cache tasks")
+    public void cached_recordsLoads() {
+        // Arrange
+        var registry = new SimpleMeterRegistry();
+        var statsCounter = new MicrometerStatsCounter(registry, "test");
+        var reactorResourceFactory = new ReactorResourceFactory();
+        reactorResourceFactory.afterPropertiesSet();
+        Cached<String, Integer> cached = Cached.build(reactorResourceFactory,
+            keyFlux -> keyFlux.map(k -> KeyValueHolder.of(k, k.length())),
+            new FluxCacheImpl<>(
+                reactorResourceFactory.getLoopResources(),
+                LRUCacheMap.<String, Integer>builder().map(new HashMap<>()).statsCounter(statsCounter).build(),
+                statsCounter
+            ),
+            CachedConfig.builder().statsCounter(statsCounter).build()
+        );
+
+        // Act: one load, then served from the cache
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(cached.getAll(Flux.just("K1", "K22")))
+                .expectNextCount(2)
+                .verifyComplete();
+        }
+
+        // Assert
+        assertEquals(1, registry.get("cache.loads").tag("result", "success").timer().count());
+        assertEquals(2, gets(registry, "hit"));
+        assertEquals(2, gets(registry, "miss"));
+        assertTrue(registry.get("cache.queue.delay").timer().count() >= 3);
+        reactorResourceFactory.destroy();
+    }
+}
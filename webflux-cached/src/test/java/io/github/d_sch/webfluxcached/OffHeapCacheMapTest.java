@@ -0,0 +1,97 @@
+package io.github.d_sch.webfluxcached;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxcached.common.cache.impl.JacksonValueCodec;
+import io.github.d_sch.webfluxcached.common.cache.impl.OffHeapFluxCacheImpl;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import io.github.d_sch.webfluxcached.common.cache.internal.OffHeapCacheMap;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+public class OffHeapCacheMapTest {
+
+    public record Greeting(long id, String content) {}
+
+    @Test
+    @DisplayName("Values are encoded off-heap and decoded on get")
+    public void putAndGet_roundTripsValues() {
+        // Arrange
+        try (var cacheMap = OffHeapCacheMap.<String, Greeting>builder()
+                .codec(JacksonValueCodec.of(Greeting.class))
+                .build()) {
+
+            // Act
+            cacheMap.put("K1", new Greeting(1, "Hello"));
+            cacheMap.put("K2", new Greeting(2, "World"));
+            cacheMap.put("K1", new Greeting(1, "Hello again"));
+
+            // Assert
+            assertEquals(new Greeting(1, "Hello again"), cacheMap.get("K1").getValue());
+            assertEquals(new Greeting(2, "World"), cacheMap.get("K2").getValue());
+            assertTrue(cacheMap.get("K3").isEmpty());
+            assertEquals(2, cacheMap.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Least recently used entries are evicted when the off-heap capacity is exhausted")
+    public void capacityExhausted_evictsLeastRecentlyUsed() {
+        // Arrange: two slabs of 4 KB, values of random length
+        try (var cacheMap = OffHeapCacheMap.<Integer, String>builder()
+                .codec(JacksonValueCodec.of(String.class))
+                .slabSize(4096)
+                .maximumCapacity(8192)
+                .build()) {
+            var random = new Random(42);
+
+            // Act
+            for (int i = 0; i < 10_000; i++) {
+                cacheMap.put(i, "x".repeat(random.nextInt(1000)));
+                // Assert: the latest value is always kept
+                assertEquals(i, cacheMap.get(i).getKey());
+            }
+
+            // Assert
+            assertTrue(cacheMap.getEvictionCount() > 9_000);
+            assertTrue(cacheMap.getAllocatedBytes() <= 8192);
+            // Freed blocks are merged, a value of the maximum size fits again
+            cacheMap.put(-1, "y".repeat(4000));
+            assertEquals(4000, cacheMap.get(-1).getValue().length());
+            assertThrows(IllegalArgumentException.class, () -> cacheMap.put(-2, "z".repeat(5000)));
+        }
+    }
+
+    @Test
+    @DisplayName("OffHeapFluxCacheImpl stores and returns entries")
+    public void offHeapFluxCacheImpl_storesEntries() {
+        var loopResources = LoopResources.create("prefix");
+        var cache = new OffHeapFluxCacheImpl<>(
+            loopResources,
+            OffHeapCacheMap.<String, Integer>builder()
+                .codec(JacksonValueCodec.of(Integer.class))
+                .build()
+        );
+
+        StepVerifier.create(cache.put(Flux.just(KeyValueHolder.of("K1", 1), KeyValueHolder.of("K2", 2))))
+            .expectNextCount(2).verifyComplete();
+
+        StepVerifier.create(cache.get(Flux.just("K1", "K2")).map(CacheEntry::getValue))
+            .expectNext(1, 2)
+            .verifyComplete();
+
+        cache.dispose();
+        assertTrue(cache.isDisposed());
+        StepVerifier.create(cache.get(Flux.just("K1")))
+            .verifyErrorMessage("Off-heap cache map closed.");
+    }
+}
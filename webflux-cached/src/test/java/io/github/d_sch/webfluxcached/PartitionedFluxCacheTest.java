@@ -0,0 +1,147 @@
+package io.github.d_sch.webfluxcached;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.ReactorResourceFactory;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxcached.common.cache.ValueCodec;
+import io.github.d_sch.webfluxcached.common.cache.cluster.ClusterPeer;
+import io.github.d_sch.webfluxcached.common.cache.cluster.ConsistentHashRing;
+import io.github.d_sch.webfluxcached.common.cache.cluster.PartitionedFluxCache;
+import io.github.d_sch.webfluxcached.common.cache.cluster.PeerCacheHandler;
+import io.github.d_sch.webfluxcached.common.cache.impl.FluxCacheImpl;
+import io.github.d_sch.webfluxcached.common.cache.impl.JacksonValueCodec;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import io.github.d_sch.webfluxcached.common.cached.Cached;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+public class PartitionedFluxCacheTest {
+
+    @Test
+    @DisplayName("Nodes built from the same peers agree on the owner, keys spread over all nodes")
+    public void ring_assignsKeysConsistently() {
+        var ring = new ConsistentHashRing(List.of("a", "b", "c"));
+        var sameRing = new ConsistentHashRing(List.of("c", "b", "a"));
+        var owners = new HashMap<String, Integer>();
+        for (int i = 0; i < 3_000; i++) {
+            var key = ValueCodec.string().encode("Key " + i);
+            assertEquals(ring.ownerOf(key), sameRing.ownerOf(key));
+            owners.merge(ring.ownerOf(key), 1, Integer::sum);
+        }
+        assertEquals(3, owners.size());
+        owners.values().forEach(count -> assertTrue(count > 600, "Unbalanced ring: " + owners));
+    }
+
+    @Test
+    @DisplayName("Keys are loaded once per cluster, gets of keys owned by a peer are forwarded")
+    public void get_loadsKeysOncePerCluster() {
+        // Arrange: two nodes on local ports, each with a cached lookup counting loads
+        var reactorResourceFactory = new ReactorResourceFactory();
+        reactorResourceFactory.afterPropertiesSet();
+        var loads = new AtomicInteger();
+        var handlers = List.of(new AtomicReference<HttpHandler>(), new AtomicReference<HttpHandler>());
+        var servers = new ArrayList<DisposableServer>();
+        var peers = new ArrayList<ClusterPeer>();
+        for (int i = 0; i < 2; i++) {
+            var handler = handlers.get(i);
+            var server = HttpServer.create()
+                .port(0)
+                .handle((request, response) -> new ReactorHttpHandlerAdapter(handler.get()).apply(request, response))
+                .bindNow();
+            servers.add(server);
+            peers.add(new ClusterPeer("node-" + i, "http://localhost:" + server.port()));
+        }
+        var nodes = new ArrayList<Cached<String, Integer>>();
+        for (int i = 0; i < 2; i++) {
+            var local = new FluxCacheImpl<String, Integer>(reactorResourceFactory.getLoopResources());
+            var cache = PartitionedFluxCache.<String, Integer>builder()
+                .selfId("node-" + i)
+                .peers(peers)
+                .local(local)
+                .webClient(WebClient.create())
+                .keyCodec(ValueCodec.string())
+                .valueCodec(JacksonValueCodec.of(Integer.class))
+                .build();
+            Cached<String, Integer> cached = Cached.build(reactorResourceFactory, keyFlux -> keyFlux
+                .doOnNext(key -> loads.incrementAndGet())
+                .<Map.Entry<String, Integer>>map(key -> KeyValueHolder.of(key, Integer.parseInt(key))),
+                cache
+            );
+            nodes.add(cached);
+            handlers.get(i).set(RouterFunctions.toHttpHandler(
+                new PeerCacheHandler<>(local, cached::getAll, ValueCodec.string(), JacksonValueCodec.of(Integer.class)).route()
+            ));
+        }
+        var keys = IntStream.range(0, 50).mapToObj(String::valueOf).toList();
+
+        try {
+            // Act & Assert
+            for (var node : nodes) {
+                StepVerifier.create(node.getAll(Flux.fromIterable(keys)).filter(entry -> entry.getKey().equals(String.valueOf(entry.getValue()))))
+                    .expectNextCount(50)
+                    .verifyComplete();
+            }
+            assertEquals(50, loads.get());
+        } finally {
+            servers.forEach(DisposableServer::disposeNow);
+        }
+    }
+
+    @Test
+    @DisplayName("A peer not answering is treated as a miss and does not fail invalidations")
+    public void get_withPeerNotAnswering_returnsMisses() {
+        // Arrange: node-1 accepts requests and never answers
+        var reactorResourceFactory = new ReactorResourceFactory();
+        reactorResourceFactory.afterPropertiesSet();
+        var server = HttpServer.create()
+            .port(0)
+            .handle((request, response) -> Mono.never())
+            .bindNow();
+        var cache = PartitionedFluxCache.<String, Integer>builder()
+            .selfId("node-0")
+            .peers(List.of(new ClusterPeer("node-0", "http://localhost:1"), new ClusterPeer("node-1", "http://localhost:" + server.port())))
+            .local(new FluxCacheImpl<String, Integer>(reactorResourceFactory.getLoopResources()))
+            .webClient(WebClient.create())
+            .keyCodec(ValueCodec.string())
+            .valueCodec(JacksonValueCodec.of(Integer.class))
+            .requestTimeout(Duration.ofMillis(200))
+            .build();
+        var keys = IntStream.range(0, 20).mapToObj(String::valueOf).toList();
+        assertTrue(keys.stream().anyMatch(key -> cache.ownerOf(key).equals("node-1")));
+
+        try {
+            // Act & Assert
+            StepVerifier.create(cache.get(Flux.fromIterable(keys)).filter(CacheEntry::isEmpty))
+                .expectNextCount(20)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+            StepVerifier.create(cache.invalidate(Flux.fromIterable(keys)))
+                .expectNextCount(20)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+        } finally {
+            server.disposeNow();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.d_sch.webfluxcached;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxcached.common.cache.FluxCache;
+import io.github.d_sch.webfluxcached.common.cache.impl.ShardedFluxCacheImpl;
+import io.github.d_sch.webfluxcached.common.cache.internal.CacheEntry;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+public class ShardedFluxCacheImplTest {
+
+    @Test
+    @DisplayName("Put and get across shards returns every stored entry")
+    public void putAndGet_acrossShards_returnsAllEntries() {
+        // Arrange: a cache split into four shards
+        var loopResources = LoopResources.create("sharded");
+        FluxCache<String, Integer> cache = new ShardedFluxCacheImpl<>(loopResources, 4);
+
+        var entries = Flux.range(0, 100)
+            .map(i -> KeyValueHolder.of("Key " + i, i));
+
+        StepVerifier.create(cache.put(entries)).expectNextCount(100).verifyComplete();
+
+        // Act & Assert: each key is routed back to the shard holding its value
+        StepVerifier.create(
+            cache.get(Flux.range(0, 100).map(i -> "Key " + i))
+                .collect(Collectors.toMap(CacheEntry::getKey, CacheEntry::getValue))
+        ).assertNext(actual -> {
+            assertEquals(100, actual.size());
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, actual.get("Key " + i));
+            }
+        }).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Get missing key on a sharded cache returns empty cache entry")
+    public void getMissingKey_returnsEmptyCacheEntry() {
+        var loopResources = LoopResources.create("sharded");
+        FluxCache<String, Integer> cache = new ShardedFluxCacheImpl<>(loopResources, 2);
+
+        StepVerifier.create(cache.put(Flux.just(KeyValueHolder.of("Known", 1)))).expectNextCount(1).verifyComplete();
+
+        StepVerifier.create(cache.get(Flux.just("Unknown")))
+            .assertNext(entry -> assertTrue(entry.isEmpty()))
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Updating keys on a sharded cache returns the updated values")
+    public void put_updatesExistingKeysInTheirShard() {
+        var loopResources = LoopResources.create("sharded");
+        FluxCache<String, Integer> cache = new ShardedFluxCacheImpl<>(loopResources, 3);
+
+        StepVerifier.create(cache.put(Flux.just(KeyValueHolder.of("K1", 1), KeyValueHolder.of("K2", 2)))).expectNextCount(2).verifyComplete();
+        StepVerifier.create(cache.put(Flux.just(KeyValueHolder.of("K1", 11), KeyValueHolder.of("K2", 12)))).expectNextCount(2).verifyComplete();
+
+        StepVerifier.create(
+            cache.get(Flux.just("K1", "K2"))
+                .collectMap(CacheEntry::getKey, CacheEntry::getValue)
+        ).assertNext(actual -> assertEquals(Map.of("K1", 11, "K2", 12), actual))
+         .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Constructor with a non positive shard count throws IllegalArgumentException")
+    public void constructor_withZeroShards_throws() {
+        var loopResources = LoopResources.create("sharded");
+        assertThrows(IllegalArgumentException.class, () -> new ShardedFluxCacheImpl<String, Integer>(loopResources, 0));
+    }
+
+    @Test
+    @DisplayName("Bulk get on a sharded cache returns entries in the order of the keys")
+    public void getAll_acrossShards_keepsKeyOrder() {
+        var loopResources = LoopResources.create("sharded");
+        FluxCache<String, Integer> cache = new ShardedFluxCacheImpl<>(loopResources, 4);
+        var entries = IntStream.range(0, 100)
+            .mapToObj(i -> KeyValueHolder.of("Key " + i, i))
+            .toList();
+        StepVerifier.create(cache.putAll(entries)).expectNextCount(1).verifyComplete();
+
+        StepVerifier.create(cache.getAll(entries.stream().map(Map.Entry::getKey).toList()))
+            .assertNext(cacheEntries -> {
+                assertEquals(100, cacheEntries.size());
+                for (int i = 0; i < 100; i++) {
+                    assertEquals(i, cacheEntries.get(i).getValue());
+                }
+            })
+            .verifyComplete();
+    }
+}
@@ -0,0 +1,104 @@
+package io.github.d_sch.webfluxconfig.r2dbc;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import io.github.d_sch.webfluxcached.common.KeyValueHolder;
+import io.github.d_sch.webfluxconfig.config.R2DBCConfigurationProperties;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+/// Lookup function for `Cached` loading the values of a batch of keys with one query.
+///
+/// The keys requested are collected into chunks of distinct keys bounded by a maximum
+/// size and a maximum linger time. Every chunk is bound as a collection to the named
+/// parameter of the query, e.g. `SELECT id, name FROM person WHERE id IN (:keys)`, and
+/// runs as one query. Rows are streamed back as entries of key and value.
+///
+/// Keys without row are not returned, `Cached` completes them without value.
+@Slf4j
+@Builder
+public class R2DBCBatchLookup<K, T> implements Function<Flux<K>, Flux<Map.Entry<K, T>>> {
+
+    @NonNull
+    private final DatabaseClient databaseClient;
+
+    /// Query with a named parameter for the keys of a chunk.
+    @Getter
+    @NonNull
+    private final String sql;
+
+    @Getter
+    @Default
+    private final String keyParameter = "keys";
+
+    /// Read the key of a row.
+    @NonNull
+    private final Function<Readable, K> keyMapper;
+
+    /// Read the value of a row.
+    @NonNull
+    private final Function<Readable, T> valueMapper;
+
+    /// Maximum number of keys of one query, databases limit the size of an IN list.
+    @Getter
+    @Default
+    private final int maxChunkSize = 256;
+
+    @Getter
+    @Default
+    private final Duration maxChunkLinger = Duration.ofMillis(1);
+
+    /// Select the value column of the rows of a table by the key column.
+    public static <K, T> R2DBCBatchLookupBuilder<K, T> forColumns(@NonNull String table, @NonNull String keyColumn, @NonNull Class<K> keyType, @NonNull String valueColumn, @NonNull Class<T> valueType) {
+        return R2DBCBatchLookup.<K, T>builder()
+            .sql("SELECT " + keyColumn + ", " + valueColumn + " FROM " + table + " WHERE " + keyColumn + " IN (:keys)")
+            .keyMapper(row -> row.get(keyColumn, keyType))
+            .valueMapper(row -> row.get(valueColumn, valueType));
+    }
+
+    @Override
+    public Flux<Map.Entry<K, T>> apply(Flux<K> keys) {
+        if (maxChunkSize < 1) {
+            return Flux.error(new IllegalArgumentException("Maximum chunk size must be positive: " + maxChunkSize));
+        }
+        return keys
+            .bufferTimeout(maxChunkSize, maxChunkLinger, LinkedHashSet::new, true)
+            .concatMap(chunk -> query(List.copyOf(chunk)));
+    }
+
+    private Flux<Map.Entry<K, T>> query(List<K> chunk) {
+        log.debug("Query {} keys.", chunk.size());
+        return databaseClient.sql(sql)
+            .bind(keyParameter, chunk)
+            .map(row -> KeyValueHolder.of(keyMapper.apply(row), valueMapper.apply(row)))
+            .all();
+    }
+
+    public static class R2DBCBatchLookupBuilder<K, T> {
+
+        public R2DBCBatchLookupBuilder<K, T> connectionFactory(@NonNull ConnectionFactory connectionFactory) {
+            return databaseClient(DatabaseClient.create(connectionFactory));
+        }
+
+        /// Connect with the named options of the R2DBC configuration properties.
+        public R2DBCBatchLookupBuilder<K, T> connectionFactory(@NonNull R2DBCConfigurationProperties properties, @NonNull String name) {
+            return connectionFactory(ConnectionFactoryBuilder
+                .withOptions(properties.getConnectionFactoryOptions(name))
+                .build()
+            );
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.d_sch.webfluxconfig;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.ReactorResourceFactory;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import io.github.d_sch.webfluxcached.common.cached.Cached;
+import io.github.d_sch.webfluxconfig.r2dbc.R2DBCBatchLookup;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+public class R2DBCBatchLookupTest {
+
+    private final AtomicInteger queries = new AtomicInteger();
+    private DatabaseClient databaseClient;
+
+    @BeforeEach
+    public void createTable() {
+        ConnectionFactory connectionFactory = ConnectionFactories.get("r2dbc:h2:mem:///lookup;DB_CLOSE_DELAY=-1");
+        databaseClient = DatabaseClient.builder()
+            .connectionFactory(connectionFactory)
+            .executeFunction(statement -> {
+                queries.incrementAndGet();
+                return Mono.from(statement.execute());
+            })
+            .build();
+        Flux.just(
+            "DROP TABLE IF EXISTS person",
+            "CREATE TABLE person (id INT PRIMARY KEY, name VARCHAR(64))",
+            "INSERT INTO person VALUES (1, 'Ada'), (2, 'Grace'), (3, 'Edsger'), (4, 'Barbara'), (5, 'Donald')"
+        ).concatMap(sql -> databaseClient.sql(sql).then()).blockLast();
+        queries.set(0);
+    }
+
+    @Test
+    @DisplayName("Keys of a batch are loaded by one query per chunk, keys without row are not returned")
+    public void apply_queriesChunksOfKeys() {
+        // Arrange
+        var lookup = R2DBCBatchLookup.forColumns("person", "id", Integer.class, "name", String.class)
+            .databaseClient(databaseClient)
+            .maxChunkSize(3)
+            .build();
+
+        // Act & Assert
+        StepVerifier.create(lookup.apply(Flux.just(1, 2, 2, 3, 4, 6)).map(entry -> entry.getKey() + ":" + entry.getValue()).collectList())
+            .assertNext(entries -> assertEquals(
+                List.of("1:Ada", "2:Grace", "3:Edsger", "4:Barbara"),
+                entries.stream().sorted().toList()
+            ))
+            .verifyComplete();
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    @DisplayName("Cached misses are loaded with one query")
+    public void cached_loadsMissesWithOneQuery() {
+        // Arrange
+        var reactorResourceFactory = new ReactorResourceFactory();
+        reactorResourceFactory.afterPropertiesSet();
+        //Misses are handed over one by one from the cache loop, wait for all of them
+        Cached<Integer, String> cached = Cached.build(reactorResourceFactory, R2DBCBatchLookup.forColumns("person", "id", Integer.class, "name", String.class)
+            .databaseClient(databaseClient)
+            .maxChunkLinger(Duration.ofMillis(100))
+            .build()
+        );
+
+        // Act & Assert
+        StepVerifier.create(cached.getAll(Flux.just(1, 2, 3, 4, 5)))
+            .expectNextCount(5)
+            .verifyComplete();
+        assertEquals(1, queries.get());
+        StepVerifier.create(cached.getAll(Flux.just(1, 5)))
+            .expectNextCount(2)
+            .verifyComplete();
+        assertEquals(1, queries.get());
+    }
+}